@@ -26,10 +26,15 @@ public class SecurityConfig {
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .authorizeHttpRequests(requests -> requests
+                        // Импорт каталога только для вошедших продавцов
+                        .requestMatchers("/product/import").authenticated()
                         // Публичные пути
                         .requestMatchers("/", "/product/**", "/images/**", "/registration", "/user/**", "/static/**", "/h2-console/**").permitAll()
                         // Требуют авторизации
                         .requestMatchers("/cart/**", "/my/products", "/product/create", "/product/edit/**", "/product/delete/**").authenticated()
+                        // Метрики только для администратора
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         // Все остальные пути требуют авторизации
                         .anyRequest().authenticated()
                 )
@@ -2,6 +2,8 @@ package com.example.onlineShop.controllers;
 
 import com.example.onlineShop.models.User;
 import com.example.onlineShop.models.enums.Role;
+import com.example.onlineShop.services.ProductViewCounter;
+import com.example.onlineShop.services.SearchAnalytics;
 import com.example.onlineShop.services.UserService;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
@@ -18,9 +20,14 @@ import java.util.Map;
 @PreAuthorize("hasAuthority('ROLE_ADMIN')")
 public class AdminController {
     private final UserService userService;
+    private final SearchAnalytics searchAnalytics;
+    private final ProductViewCounter viewCounter;
+    private static final int MOST_VIEWED_LIMIT = 50;
 
-    public AdminController(UserService userService) {
+    public AdminController(UserService userService, SearchAnalytics searchAnalytics, ProductViewCounter viewCounter) {
         this.userService = userService;
+        this.searchAnalytics = searchAnalytics;
+        this.viewCounter = viewCounter;
     }
 
     @GetMapping("/admin")
@@ -30,6 +37,23 @@ public class AdminController {
         return "admin";
     }
 
+    @GetMapping("/admin/search")
+    public String searchAnalytics(@RequestParam(name = "days", required = false) Integer days,
+                                  Model model, Principal principal){
+        int period = days == null ? 7 : Math.max(1, Math.min(days, 365));
+        model.addAttribute("report", searchAnalytics.report(period));
+        model.addAttribute("user", userService.getUserByPrincipal(principal));
+        return "admin-search";
+    }
+
+    @GetMapping("/admin/views")
+    public String productViews(Model model, Principal principal){
+        model.addAttribute("products", viewCounter.mostViewed(MOST_VIEWED_LIMIT));
+        model.addAttribute("pendingViews", viewCounter.pendingTotal());
+        model.addAttribute("user", userService.getUserByPrincipal(principal));
+        return "admin-views";
+    }
+
     @PostMapping("/admin/user/ban/{id}")
     public String userBan(@PathVariable("id") Long id){
         userService.banUser(id);
@@ -0,0 +1,52 @@
+package com.example.onlineShop.controllers;
+
+import com.example.onlineShop.models.User;
+import com.example.onlineShop.models.enums.ExportFormat;
+import com.example.onlineShop.services.ExportService;
+import com.example.onlineShop.services.UserService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.security.Principal;
+import java.time.LocalDate;
+
+@RestController
+public class ExportController {
+    private final ExportService exportService;
+    private final UserService userService;
+
+    public ExportController(ExportService exportService, UserService userService) {
+        this.exportService = exportService;
+        this.userService = userService;
+    }
+
+    // the body is written on an async thread after the headers are sent, straight from the database cursor
+    @GetMapping("/export/products")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(name = "format", defaultValue = "CSV") ExportFormat format, Principal principal) {
+        User user = userService.getUserByPrincipal(principal);
+        return download("products", format, out -> exportService.exportProducts(user, format, out));
+    }
+
+    @GetMapping("/export/orders")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(name = "format", defaultValue = "CSV") ExportFormat format, Principal principal) {
+        User user = userService.getUserByPrincipal(principal);
+        return download("orders", format, out -> exportService.exportOrders(user, format, out));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> download(String name, ExportFormat format,
+                                                                  StreamingResponseBody body) {
+        String filename = name + "-" + LocalDate.now() + "." + format.getExtension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+}
@@ -1,31 +1,178 @@
 package com.example.onlineShop.controllers;
 
 import com.example.onlineShop.models.Image;
+import com.example.onlineShop.repositories.BlobStore;
 import com.example.onlineShop.repositories.ImageRepository;
-import lombok.RequiredArgsConstructor;
+import com.example.onlineShop.services.ImageVariants;
+import com.example.onlineShop.services.OffHeapImageCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 public class ImageController {
+    // Tomcat's own static file threshold: below it a buffered write costs less than setting up sendfile
+    static final long SENDFILE_MIN_BYTES = 48 * 1024;
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    // an image id always names the same bytes: replacing a product image creates a new row
+    private static final String IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+            .getHeaderValue();
+    private static final String PROVISIONAL = CacheControl.maxAge(1, TimeUnit.MINUTES).getHeaderValue();
+
     private final ImageRepository imageRepository;
-    public ImageController(ImageRepository imageRepository) {
+    private final BlobStore blobStore;
+    private final ImageVariants imageVariants;
+    private final OffHeapImageCache imageCache;
+    public ImageController(ImageRepository imageRepository, BlobStore blobStore, ImageVariants imageVariants,
+                           OffHeapImageCache imageCache) {
         this.imageRepository = imageRepository;
+        this.blobStore = blobStore;
+        this.imageVariants = imageVariants;
+        this.imageCache = imageCache;
     }
 
+    // The image bytes never enter the heap: large files are handed to the connector, which copies them to
+    // the socket with FileChannel.transferTo after the headers are written; small ones, most of all card
+    // previews, are served from an off-heap cache and written to the response from its direct buffers.
+    // The content hash is a strong ETag, so a revalidation is answered from the image row and a stat of the file.
+    // Ranges let an interrupted download resume; each is read from its offset, never the whole file.
+    // With w, the narrowest pre-scaled variant at least that wide is sent instead of the original.
     @GetMapping("/images/{id}")
-    private ResponseEntity<?> getImageById(@PathVariable Long id){
+    private ResponseEntity<?> getImageById(@PathVariable Long id, @RequestParam(required = false) Integer w,
+                                           HttpServletRequest request, HttpServletResponse servletResponse)
+            throws IOException {
         Image image = imageRepository.findById(id).orElse(null);
-        return ResponseEntity.ok().header("filename", image.getOriginalFileName())
-                                  .contentType(MediaType.valueOf(image.getContentType()))
-                                  .contentLength(image.getSize())
-                                  .body(new InputStreamResource(new ByteArrayInputStream(image.getBytes())));
+        if (image == null || image.getContentHash() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        Resource content = blobStore.resource(image.getContentHash());
+        if (!content.exists()) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = '"' + image.getContentHash() + '"';
+        MediaType contentType = MediaType.valueOf(image.getContentType());
+        String cacheControl = IMMUTABLE;
+        if (w != null && w > 0) {
+            if (imageVariants.isGenerated(image.getContentHash())) {
+                ImageVariants.Variant variant = imageVariants.nearest(image.getContentHash(), w);
+                if (variant != null) {
+                    content = variant.content();
+                    etag = '"' + image.getContentHash() + '-' + variant.width() + '"';
+                    contentType = variant.contentType();
+                }
+            } else {
+                // the original stands in until the variants exist, and must not be cached as this URL for good
+                imageVariants.generateLater(image.getContentHash());
+                cacheControl = PROVISIONAL;
+            }
+        }
+        long lastModified = content.lastModified();
+        servletResponse.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        // sets ETag and Last-Modified either way, and the 304 status when the browser's copy is current
+        if (new ServletWebRequest(request, servletResponse).checkNotModified(etag, lastModified)) {
+            return null;
+        }
+        // the ETag names exactly these bytes, so it keys the cache
+        content = imageCache.get(etag, content);
+        long length = content.contentLength();
+        List<HttpRange> ranges = requestedRanges(request, etag, lastModified);
+        ResourceRegion region = null;
+        if (ranges.size() == 1) {
+            try {
+                region = ranges.get(0).toResourceRegion(content);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length).build();
+            }
+        }
+        if (region != null && sendfile(request, content, region.getPosition(), region.getCount())) {
+            long end = region.getPosition() + region.getCount() - 1;
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).header("filename", image.getOriginalFileName())
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + region.getPosition() + '-' + end + '/' + length)
+                    .contentType(contentType).contentLength(region.getCount()).build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().header("filename", image.getOriginalFileName())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .contentType(contentType);
+        if (!ranges.isEmpty()) {
+            // Spring answers a Resource body with 206 and the Range header's regions (multipart/byteranges for
+            // several), reading each one from its offset in the file
+            return response.body(content);
+        }
+
+        response.contentLength(length);
+        if (sendfile(request, content, 0, length)) {
+            return response.build();
+        }
+        // pinned before any header is set, so an entry evicted meanwhile still gets the response below
+        try (OffHeapImageCache.Slices slices = imageCache.slices(content)) {
+            if (slices != null) {
+                servletResponse.setStatus(HttpServletResponse.SC_OK);
+                servletResponse.setHeader("filename", image.getOriginalFileName());
+                servletResponse.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+                servletResponse.setContentType(contentType.toString());
+                servletResponse.setContentLength(slices.length());
+                slices.writeTo(Channels.newChannel(servletResponse.getOutputStream()));
+                return null;
+            }
+        }
+        // Spring never splits an InputStreamResource into ranges, so an ignored Range header stays ignored
+        return response.body(request.getHeader(HttpHeaders.RANGE) != null
+                ? new InputStreamResource(content.getInputStream()) : content);
+    }
+
+    // hands [start, start + count) of the file to the connector when it is large enough and sendfile is available
+    private static boolean sendfile(HttpServletRequest request, Resource content, long start, long count)
+            throws IOException {
+        if (!content.isFile() || count < SENDFILE_MIN_BYTES || !Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            return false;
+        }
+        request.setAttribute(SENDFILE_FILENAME, content.getFile().getAbsolutePath());
+        request.setAttribute(SENDFILE_START, start);
+        request.setAttribute(SENDFILE_END, start + count);
+        return true;
+    }
 
+    // The ranges to send, or none for the whole image: when there is no Range header, when it cannot be parsed,
+    // or when If-Range names a different version than the one being served.
+    private static List<HttpRange> requestedRanges(HttpServletRequest request, String etag, long lastModified) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range == null) return List.of();
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        try {
+            if (ifRange != null) {
+                // only a strong comparison counts, so a weak validator never matches
+                boolean matches = ifRange.startsWith("\"") || ifRange.startsWith("W/")
+                        ? ifRange.equals(etag)
+                        : request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+                if (!matches) return List.of();
+            }
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            // an unparseable Range or If-Range date
+            return List.of();
+        }
     }
 }
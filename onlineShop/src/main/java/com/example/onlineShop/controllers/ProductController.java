@@ -1,8 +1,19 @@
 package com.example.onlineShop.controllers;
 
+import com.example.onlineShop.filters.PageCacheFilter;
+import com.example.onlineShop.models.CatalogFilter;
+import com.example.onlineShop.models.CatalogPage;
+import com.example.onlineShop.models.CursorPage;
 import com.example.onlineShop.models.Product;
+import com.example.onlineShop.models.ProductCard;
+import com.example.onlineShop.models.ProductDetails;
 import com.example.onlineShop.models.User;
+import com.example.onlineShop.models.enums.CatalogSort;
 import com.example.onlineShop.services.ProductService;
+import com.example.onlineShop.services.ProductViewCounter;
+import com.example.onlineShop.services.RecommendationService;
+import com.example.onlineShop.services.SearchAnalytics;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,29 +25,75 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.security.Principal;
+import java.util.List;
 
 @Controller
 public class ProductController {
     private final ProductService productService;
+    private final SearchAnalytics searchAnalytics;
+    private final RecommendationService recommendationService;
+    private final ProductViewCounter viewCounter;
+    private static final int ALSO_BOUGHT_LIMIT = 6;
+    private static final int BESTSELLERS_LIMIT = 6;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, SearchAnalytics searchAnalytics,
+                             RecommendationService recommendationService, ProductViewCounter viewCounter) {
         this.productService = productService;
+        this.searchAnalytics = searchAnalytics;
+        this.recommendationService = recommendationService;
+        this.viewCounter = viewCounter;
     }
 
     @GetMapping("/")
-    public String products(@RequestParam(name = "searchWord", required = false) String title, Principal principal, Model model){
-        model.addAttribute("products", productService.listProducts(title));
+    public String products(@RequestParam(name = "searchWord", required = false) String title,
+                           @RequestParam(name = "sort", required = false) CatalogSort sort,
+                           @RequestParam(name = "minPrice", required = false) Integer minPrice,
+                           @RequestParam(name = "maxPrice", required = false) Integer maxPrice,
+                           @RequestParam(name = "after", required = false) Long after,
+                           @RequestParam(name = "before", required = false) Long before,
+                           @RequestParam(name = "size", required = false) Integer size,
+                           Principal principal, Model model, HttpServletRequest request){
+        CatalogFilter filter = new CatalogFilter(title, sort, minPrice, maxPrice);
+        CatalogPage page = productService.listProducts(filter, after, before, size);
+        // paging through the results of a query is not another search
+        if (page.getMatchCount() != null && after == null && before == null) {
+            searchAnalytics.record(title, page.getMatchCount());
+            request.setAttribute(SearchAnalytics.SEARCH_ATTRIBUTE, new SearchAnalytics.Search(title, page.getMatchCount()));
+        }
+        model.addAttribute("page", page);
+        model.addAttribute("products", page.getItems());
+        model.addAttribute("priceFacets", page.getPriceFacets());
         model.addAttribute("user", productService.getUserByPrincipal(principal));
         model.addAttribute("searchWord", title);
+        model.addAttribute("sort", sort);
+        model.addAttribute("sorts", CatalogSort.values());
+        model.addAttribute("minPrice", minPrice);
+        model.addAttribute("maxPrice", maxPrice);
+        model.addAttribute("size", size);
+        // only on the front page of the unfiltered catalog
+        boolean frontPage = !filter.hasTitle() && !filter.hasPriceRange() && sort == null && after == null && before == null;
+        model.addAttribute("bestsellers", frontPage ? productService.listBestsellers(BESTSELLERS_LIMIT) : List.of());
+        if (frontPage || sort == CatalogSort.BESTSELLING) {
+            // sales reorder the bestsellers without changing the catalog
+            request.setAttribute(PageCacheFilter.LIVE_CONTENT_ATTRIBUTE, Boolean.TRUE);
+        }
         return "products";
     }
     @GetMapping("/product/{id}")
-    public String productInfo(@PathVariable Long id, Model model, Principal principal){
-        Product product = productService.getProductById(id);
+    public String productInfo(@PathVariable Long id, Model model, Principal principal, HttpServletRequest request){
+        ProductDetails product = productService.getProductDetails(id);
+        if (product == null) {
+            return "redirect:/";
+        }
+        viewCounter.record(id);
+        request.setAttribute(ProductViewCounter.VIEWED_PRODUCT_ATTRIBUTE, id);
         model.addAttribute("user", productService.getUserByPrincipal(principal));
         model.addAttribute("product", product);
         model.addAttribute("images", product.getImages());
-        model.addAttribute("authorProduct", product.getUser());
+        model.addAttribute("authorProduct", product.getAuthor());
+        model.addAttribute("alsoBought", recommendationService.alsoBought(id, ALSO_BOUGHT_LIMIT));
+        // the recommendations follow checkouts, not catalog changes
+        request.setAttribute(PageCacheFilter.LIVE_CONTENT_ATTRIBUTE, Boolean.TRUE);
         return "product-info";
     }
 
@@ -54,12 +111,14 @@ public class ProductController {
     }
 
     @GetMapping("/my/products")
-    public String userProducts(Principal principal, Model model) {
+    public String userProducts(@RequestParam(name = "after", required = false) Long after,
+                               @RequestParam(name = "before", required = false) Long before,
+                               Principal principal, Model model) {
         User user = productService.getUserByPrincipal(principal);
+        CursorPage<ProductCard> page = productService.listSellerProducts(user.getId(), after, before, null);
         model.addAttribute("user", user);
-        model.addAttribute("products", user.getProducts().stream()
-                .filter(Product::isActive)
-                .toList());
+        model.addAttribute("page", page);
+        model.addAttribute("products", page.getItems());
 
         return "my-products";
     }
@@ -0,0 +1,33 @@
+package com.example.onlineShop.controllers;
+
+import com.example.onlineShop.models.ImportReport;
+import com.example.onlineShop.services.ProductImportService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.Principal;
+
+@RestController
+public class ProductImportController {
+    private final ProductImportService productImportService;
+
+    public ProductImportController(ProductImportService productImportService) {
+        this.productImportService = productImportService;
+    }
+
+    // the upload is spooled to disk by the servlet container and read back as a stream
+    @PostMapping("/product/import")
+    public ResponseEntity<?> importProducts(@RequestParam("file") MultipartFile file, Principal principal) throws IOException {
+        try (InputStream input = file.getInputStream()) {
+            ImportReport report = productImportService.importProducts(principal, file.getOriginalFilename(), input);
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.onlineShop.controllers;
+
+import com.example.onlineShop.models.ProductSuggestion;
+import com.example.onlineShop.services.TitleAutocomplete;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+public class ProductSuggestController {
+    private final TitleAutocomplete titleAutocomplete;
+
+    public ProductSuggestController(TitleAutocomplete titleAutocomplete) {
+        this.titleAutocomplete = titleAutocomplete;
+    }
+
+    @GetMapping("/product/suggest")
+    public List<ProductSuggestion> suggest(@RequestParam(name = "q", defaultValue = "") String prefix,
+                                           @RequestParam(name = "limit", defaultValue = "8") int limit) {
+        return titleAutocomplete.suggest(prefix, limit);
+    }
+}
@@ -1,21 +1,27 @@
 package com.example.onlineShop.controllers;
 
+import com.example.onlineShop.models.CursorPage;
+import com.example.onlineShop.models.ProductCard;
 import com.example.onlineShop.models.User;
+import com.example.onlineShop.services.ProductService;
 import com.example.onlineShop.services.UserService;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.security.Principal;
 
 @Controller
 public class UserController {
     private final UserService userService;
+    private final ProductService productService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ProductService productService) {
         this.userService = userService;
+        this.productService = productService;
     }
 
     @GetMapping("/login")
@@ -50,14 +56,19 @@ public class UserController {
     }
 
     @GetMapping("/user/{id}")
-    public String userInfo(@PathVariable("id") Long id, Model model, Principal principal) {
+    public String userInfo(@PathVariable("id") Long id,
+                           @RequestParam(name = "after", required = false) Long after,
+                           @RequestParam(name = "before", required = false) Long before,
+                           Model model, Principal principal) {
         User user = userService.getUserById(id); // Предполагается, что добавим метод getUserById
         if (user == null) {
             return "redirect:/"; // Если пользователь не найден, перенаправляем
         }
         model.addAttribute("user", user);
         model.addAttribute("userByPrincipal", userService.getUserByPrincipal(principal));
-        model.addAttribute("products", user.getProducts());
+        CursorPage<ProductCard> page = productService.listSellerProducts(user.getId(), after, before, null);
+        model.addAttribute("page", page);
+        model.addAttribute("products", page.getItems());
         return "user-info";
     }
 }
@@ -0,0 +1,5 @@
+package com.example.onlineShop.events;
+
+// the last image referring to the content was deleted
+public record BlobReleasedEvent(String contentHash) {
+}
@@ -0,0 +1,5 @@
+package com.example.onlineShop.events;
+
+// content was written to the blob store on behalf of an image row that is not committed yet
+public record BlobStoredEvent(String contentHash) {
+}
@@ -0,0 +1,9 @@
+package com.example.onlineShop.events;
+
+import java.util.List;
+
+// Published when a customer checks out: one quantity per product, and what they had bought before this order.
+// The order rows of one checkout get consecutive ids starting at firstOrderId.
+public record OrderPlacedEvent(Long userId, Long firstOrderId, List<Long> productIds, List<Integer> quantities,
+                               List<Long> previousProductIds) {
+}
@@ -0,0 +1,7 @@
+package com.example.onlineShop.events;
+
+import java.util.List;
+
+// Many products changed in one transaction, such as an import chunk; listeners apply them in one pass.
+public record ProductBatchChangedEvent(List<ProductChangedEvent> changes) {
+}
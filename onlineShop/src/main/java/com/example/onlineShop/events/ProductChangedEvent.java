@@ -0,0 +1,11 @@
+package com.example.onlineShop.events;
+
+import com.example.onlineShop.models.Product;
+
+public record ProductChangedEvent(Long productId, String title, String description, int price, boolean active) {
+
+    public static ProductChangedEvent of(Product product) {
+        return new ProductChangedEvent(product.getId(), product.getTitle(), product.getDescription(),
+                product.getPrice(), product.isActive());
+    }
+}
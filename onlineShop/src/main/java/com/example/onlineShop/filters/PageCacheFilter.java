@@ -0,0 +1,225 @@
+package com.example.onlineShop.filters;
+
+import com.example.onlineShop.services.CatalogVersion;
+import com.example.onlineShop.services.ProductViewCounter;
+import com.example.onlineShop.services.SearchAnalytics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+// Caches the rendered catalog and product pages for anonymous visitors, tagged with the catalog version
+// they were rendered at. Runs after Spring Security, so signed-in users are recognised and always rendered.
+// A page with blocks that change without a catalog change, such as bestsellers, also expires after liveTtl.
+@Component
+public class PageCacheFilter extends OncePerRequestFilter implements MeterBinder {
+    // set by a controller whose page shows live blocks
+    public static final String LIVE_CONTENT_ATTRIBUTE = PageCacheFilter.class.getName() + ".liveContent";
+    private static final String CACHE_NAME = "pages";
+    private static final Pattern CACHED_PATHS = Pattern.compile("/|/product/\\d+");
+    private static final byte[] CSRF_FIELD = "_csrf".getBytes(StandardCharsets.US_ASCII);
+
+    private final CatalogVersion catalogVersion;
+    private final SearchAnalytics searchAnalytics;
+    private final ProductViewCounter viewCounter;
+    private final long maxBytes;
+    private final long liveTtlMillis;
+    private final Clock clock;
+    private final LinkedHashMap<String, Page> pages = new LinkedHashMap<>(256, 0.75f, true);
+    private long weight;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public PageCacheFilter(CatalogVersion catalogVersion,
+                           SearchAnalytics searchAnalytics,
+                           ProductViewCounter viewCounter,
+                           @Value("${catalog.page-cache.max-bytes:33554432}") long maxBytes,
+                           @Value("${catalog.page-cache.live-ttl:1m}") Duration liveTtl) {
+        this(catalogVersion, searchAnalytics, viewCounter, maxBytes, liveTtl, Clock.systemUTC());
+    }
+
+    public PageCacheFilter(CatalogVersion catalogVersion, SearchAnalytics searchAnalytics,
+                           ProductViewCounter viewCounter, long maxBytes, Duration liveTtl, Clock clock) {
+        this.catalogVersion = catalogVersion;
+        this.searchAnalytics = searchAnalytics;
+        this.viewCounter = viewCounter;
+        this.maxBytes = maxBytes;
+        this.liveTtlMillis = liveTtl.toMillis();
+        this.clock = clock;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod())
+                || request.getUserPrincipal() != null
+                || !CACHED_PATHS.matcher(request.getRequestURI()).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = key(request);
+        long version = catalogVersion.current();
+        Page page = lookup(key, version);
+        if (page != null) {
+            hits.increment();
+            if (page.search != null) {
+                searchAnalytics.record(page.search.query(), page.search.resultCount());
+            }
+            if (page.viewedProductId != null) {
+                viewCounter.record(page.viewedProductId);
+            }
+            send(page, request, response);
+            return;
+        }
+        misses.increment();
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        byte[] body = wrapper.getContentAsByteArray();
+        if (!isCacheable(request, wrapper, body)) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        long expiresAt = request.getAttribute(LIVE_CONTENT_ATTRIBUTE) != null
+                ? clock.millis() + liveTtlMillis : Long.MAX_VALUE;
+        page = new Page(body, wrapper.getContentType(), etag(body), version, expiresAt,
+                (SearchAnalytics.Search) request.getAttribute(SearchAnalytics.SEARCH_ATTRIBUTE),
+                (Long) request.getAttribute(ProductViewCounter.VIEWED_PRODUCT_ATTRIBUTE));
+        store(key, page);
+        send(page, request, response);
+    }
+
+    public synchronized int size() {
+        return pages.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tag("cache", CACHE_NAME).tag("result", "hit").register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tag("cache", CACHE_NAME).tag("result", "miss").register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tag("cache", CACHE_NAME).register(registry);
+        Gauge.builder("cache.size", this, PageCacheFilter::size)
+                .tag("cache", CACHE_NAME).register(registry);
+        Gauge.builder("cache.weight", this, PageCacheFilter::weight)
+                .tag("cache", CACHE_NAME).baseUnit("bytes").register(registry);
+    }
+
+    private boolean isCacheable(HttpServletRequest request, ContentCachingResponseWrapper response, byte[] body) {
+        if (response.getStatus() != HttpServletResponse.SC_OK) return false;
+        String contentType = response.getContentType();
+        if (contentType == null || !MediaType.TEXT_HTML.isCompatibleWith(MediaType.parseMediaType(contentType))) {
+            return false;
+        }
+        if (response.containsHeader(HttpHeaders.SET_COOKIE) || !catalogVersion.isSettled()) return false;
+        // a session opened while rendering holds per-visitor state such as a CSRF token
+        HttpSession session = request.getSession(false);
+        if (session != null && session.isNew()) return false;
+        return indexOf(body, CSRF_FIELD) < 0;
+    }
+
+    // revalidated on every use: the browser keeps the page and gets a 304 until it is rendered differently
+    private static void send(Page page, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (new ServletWebRequest(request, response).checkNotModified(page.etag)) return;
+        response.setContentType(page.contentType);
+        response.setContentLength(page.body.length);
+        response.getOutputStream().write(page.body);
+    }
+
+    private synchronized Page lookup(String key, long version) {
+        Page page = pages.get(key);
+        if (page == null) return null;
+        if (page.version != version || clock.millis() >= page.expiresAt) {
+            remove(key);
+            return null;
+        }
+        return page;
+    }
+
+    private synchronized void store(String key, Page page) {
+        // the catalog changed while this page was rendered, so it may already be stale
+        if (page.version != catalogVersion.current() || page.body.length > maxBytes) return;
+        remove(key);
+        pages.put(key, page);
+        weight += page.body.length;
+        // access order: the first entries are the least recently read
+        Iterator<Map.Entry<String, Page>> eldest = pages.entrySet().iterator();
+        while (weight > maxBytes && eldest.hasNext()) {
+            weight -= eldest.next().getValue().body.length;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private void remove(String key) {
+        Page removed = pages.remove(key);
+        if (removed != null) {
+            weight -= removed.body.length;
+        }
+    }
+
+    private static String key(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return query == null ? request.getRequestURI() : request.getRequestURI() + '?' + query;
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return '"' + HexFormat.of().formatHex(digest, 0, 16) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private record Page(byte[] body, String contentType, String etag, long version, long expiresAt,
+                        SearchAnalytics.Search search, Long viewedProductId) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.onlineShop.models;
+
+import com.example.onlineShop.models.enums.CatalogSort;
+
+// sort == null means "default": relevance for searches, newest first when browsing
+public record CatalogFilter(String title, CatalogSort sort, Integer minPrice, Integer maxPrice) {
+
+    public static CatalogFilter title(String title) {
+        return new CatalogFilter(title, null, null, null);
+    }
+
+    public boolean hasTitle() {
+        return title != null && !title.isBlank();
+    }
+
+    public boolean hasPriceRange() {
+        return minPrice != null || maxPrice != null;
+    }
+
+    public CatalogSort sortOrDefault() {
+        return sort == null ? CatalogSort.NEWEST : sort;
+    }
+}
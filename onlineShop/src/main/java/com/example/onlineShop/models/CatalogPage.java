@@ -0,0 +1,24 @@
+package com.example.onlineShop.models;
+
+import java.util.List;
+
+// A catalog page together with the price facet counts of the query that produced it.
+// matchCount is the number of products matching the text query, or null when there was no indexed text search.
+public class CatalogPage extends CursorPage<ProductCard> {
+    private final List<PriceFacet> priceFacets;
+    private final Integer matchCount;
+
+    public CatalogPage(CursorPage<ProductCard> page, List<PriceFacet> priceFacets, Integer matchCount) {
+        super(page.getItems(), page.getNextCursor(), page.getPrevCursor(), page.getSize());
+        this.priceFacets = priceFacets;
+        this.matchCount = matchCount;
+    }
+
+    public List<PriceFacet> getPriceFacets() {
+        return priceFacets;
+    }
+
+    public Integer getMatchCount() {
+        return matchCount;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.onlineShop.models;
+
+import java.util.List;
+
+public class CursorPage<T> {
+    private final List<T> items;
+    private final Long nextCursor;
+    private final Long prevCursor;
+    private final int size;
+
+    public CursorPage(List<T> items, Long nextCursor, Long prevCursor, int size) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.prevCursor = prevCursor;
+        this.size = size;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public Long getPrevCursor() {
+        return prevCursor;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean isHasPrev() {
+        return prevCursor != null;
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.onlineShop.models;
+
+public record CustomerPurchase(Long userId, Long productId) {
+}
@@ -23,9 +23,11 @@ public class Image {
     private String contentType;
     @Column(name = "previewImage")
     private boolean previewImage;
-    @Lob
-    private byte[] bytes;
-    @ManyToOne(cascade = CascadeType.REFRESH, fetch = FetchType.EAGER)
+    // key of the content in the BlobStore; the bytes themselves are not in the database
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+    // lazy: serving an image only needs this row, not the product and its seller
+    @ManyToOne(cascade = CascadeType.REFRESH, fetch = FetchType.LAZY)
     private Product product;
 
     public Long getId() {
@@ -76,12 +78,12 @@ public class Image {
         this.previewImage = previewImage;
     }
 
-    public byte[] getBytes() {
-        return bytes;
+    public String getContentHash() {
+        return contentHash;
     }
 
-    public void setBytes(byte[] bytes) {
-        this.bytes = bytes;
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
     }
 
     public Product getProduct() {
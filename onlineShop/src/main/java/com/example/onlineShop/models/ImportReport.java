@@ -0,0 +1,61 @@
+package com.example.onlineShop.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of a bulk product import. Only the first maxErrors rejected rows are listed; failed counts them all.
+public class ImportReport {
+    private final int maxErrors;
+    private int imported;
+    private int failed;
+    private final List<RowError> errors = new ArrayList<>();
+
+    public ImportReport(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    public void imported(int rows) {
+        imported += rows;
+    }
+
+    public void reject(long line, String message) {
+        failed++;
+        if (errors.size() < maxErrors) {
+            errors.add(new RowError(line, message));
+        }
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public boolean isErrorsTruncated() {
+        return failed > errors.size();
+    }
+
+    public static class RowError {
+        private final long line;
+        private final String message;
+
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.onlineShop.models;
+
+import java.time.LocalDateTime;
+
+// One order line as written by the order export; price is the product's current price.
+public record OrderExportRow(Long id, LocalDateTime purchaseDate, Long buyerId, String buyerEmail,
+                             Long productId, String productTitle, int price, int quantity) {
+}
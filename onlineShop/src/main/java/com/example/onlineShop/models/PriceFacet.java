@@ -0,0 +1,32 @@
+package com.example.onlineShop.models;
+
+// One price bucket with the number of matching products; min and max are inclusive, null means open-ended.
+public class PriceFacet {
+    private final String label;
+    private final Integer minPrice;
+    private final Integer maxPrice;
+    private final int count;
+
+    public PriceFacet(String label, Integer minPrice, Integer maxPrice, int count) {
+        this.label = label;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.count = count;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Integer getMinPrice() {
+        return minPrice;
+    }
+
+    public Integer getMaxPrice() {
+        return maxPrice;
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
@@ -8,7 +8,15 @@ import java.util.List;
 import java.util.Objects;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // keyset pages walk these in order, so every catalog sort reads a bounded index range
+        @Index(name = "idx_products_active_price", columnList = "active, price, id"),
+        @Index(name = "idx_products_active_created", columnList = "active, date_of_created, id"),
+        // batch loads of the in-memory indexes walk active products by id
+        @Index(name = "idx_products_active_id", columnList = "active, id"),
+        // a seller's listings, newest first
+        @Index(name = "idx_products_user_active_created", columnList = "user_id, active, date_of_created, id")
+})
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -40,6 +48,10 @@ public class Product {
 
     private LocalDateTime dateOfCreated;
 
+    // only ever incremented in place by ProductViewCounter, so saving a product never overwrites it
+    @Column(name = "views", insertable = false, updatable = false, columnDefinition = "bigint default 0 not null")
+    private long views;
+
     public Product() {
     }
 
@@ -130,6 +142,10 @@ public class Product {
         this.dateOfCreated = dateOfCreated;
     }
 
+    public long getViews() {
+        return views;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
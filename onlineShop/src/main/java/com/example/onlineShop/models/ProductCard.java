@@ -0,0 +1,48 @@
+package com.example.onlineShop.models;
+
+import java.util.Objects;
+
+// Read-only view of a product for catalog listings; never enters the persistence context.
+// A class with getters rather than a record so FreeMarker templates can read ${card.title}.
+public class ProductCard {
+    private final Long id;
+    private final String title;
+    private final int price;
+    private final Long previewImageId;
+
+    public ProductCard(Long id, String title, int price, Long previewImageId) {
+        this.id = id;
+        this.title = title;
+        this.price = price;
+        this.previewImageId = previewImageId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getPrice() {
+        return price;
+    }
+
+    public Long getPreviewImageId() {
+        return previewImageId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ProductCard that)) return false;
+        return price == that.price && Objects.equals(id, that.id) && Objects.equals(title, that.title)
+                && Objects.equals(previewImageId, that.previewImageId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, title, price, previewImageId);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.onlineShop.models;
+
+import java.util.List;
+
+// Everything product-info.ftlh renders, detached from JPA so it can be cached between requests.
+public class ProductDetails {
+    private final Long id;
+    private final String title;
+    private final String description;
+    private final int price;
+    private final List<ImageRef> images;
+    private final Author author;
+
+    public ProductDetails(Long id, String title, String description, int price, List<ImageRef> images, Author author) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.price = price;
+        this.images = images;
+        this.author = author;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getPrice() {
+        return price;
+    }
+
+    public List<ImageRef> getImages() {
+        return images;
+    }
+
+    public Author getAuthor() {
+        return author;
+    }
+
+    // rough retained size, used to keep the cache within its byte budget
+    public int estimatedBytes() {
+        int bytes = 128 + images.size() * 48;
+        bytes += title == null ? 0 : title.length() * 2;
+        bytes += description == null ? 0 : description.length() * 2;
+        bytes += author.getName() == null ? 0 : author.getName().length() * 2;
+        return bytes;
+    }
+
+    public static class ImageRef {
+        private final Long id;
+        private final boolean previewImage;
+
+        public ImageRef(Long id, boolean previewImage) {
+            this.id = id;
+            this.previewImage = previewImage;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public boolean isPreviewImage() {
+            return previewImage;
+        }
+    }
+
+    public static class Author {
+        private final Long id;
+        private final String name;
+
+        public Author(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.onlineShop.models;
+
+public record ProductDocument(Long id, String title, String description, int price) {
+
+    public ProductDocument(Long id, String title, String description) {
+        this(id, title, description, 0);
+    }
+
+    public ProductDocument(Long id, String title) {
+        this(id, title, null, 0);
+    }
+
+    public ProductDocument(Long id, int price) {
+        this(id, null, null, price);
+    }
+}
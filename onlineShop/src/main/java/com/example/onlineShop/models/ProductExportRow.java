@@ -0,0 +1,8 @@
+package com.example.onlineShop.models;
+
+import java.time.LocalDateTime;
+
+// One product as written by the catalog export.
+public record ProductExportRow(Long id, String title, String description, int price, boolean active,
+                               Long sellerId, LocalDateTime dateOfCreated) {
+}
@@ -0,0 +1,6 @@
+package com.example.onlineShop.models;
+
+import java.time.LocalDateTime;
+
+public record ProductSale(Long productId, int quantity, LocalDateTime purchaseDate) {
+}
@@ -0,0 +1,41 @@
+package com.example.onlineShop.models;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Snapshot of a product's time-decayed sales score; score is the decayed value as of scoredAt.
+@Entity
+@Table(name = "product_sales_scores")
+public class ProductSalesScore {
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "score", nullable = false)
+    private double score;
+
+    @Column(name = "scored_at", nullable = false)
+    private LocalDateTime scoredAt;
+
+    public ProductSalesScore() {
+    }
+
+    public ProductSalesScore(Long productId, double score, LocalDateTime scoredAt) {
+        this.productId = productId;
+        this.score = score;
+        this.scoredAt = scoredAt;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public LocalDateTime getScoredAt() {
+        return scoredAt;
+    }
+}
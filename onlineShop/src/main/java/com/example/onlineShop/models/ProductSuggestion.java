@@ -0,0 +1,4 @@
+package com.example.onlineShop.models;
+
+public record ProductSuggestion(Long id, String title) {
+}
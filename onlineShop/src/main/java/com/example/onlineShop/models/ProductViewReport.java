@@ -0,0 +1,36 @@
+package com.example.onlineShop.models;
+
+// How often a product page was viewed, including views not yet written to the database.
+public class ProductViewReport {
+    private final Long id;
+    private final String title;
+    private final boolean active;
+    private final long views;
+
+    public ProductViewReport(Long id, String title, Boolean active, Long views) {
+        this.id = id;
+        this.title = title;
+        this.active = active;
+        this.views = views;
+    }
+
+    public ProductViewReport withPendingViews(long pending) {
+        return pending == 0 ? this : new ProductViewReport(id, title, active, views + pending);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public long getViews() {
+        return views;
+    }
+}
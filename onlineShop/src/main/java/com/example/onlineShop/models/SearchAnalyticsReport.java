@@ -0,0 +1,65 @@
+package com.example.onlineShop.models;
+
+import java.util.List;
+
+// What customers searched for over the last few days; searches not flushed yet are only counted in pendingSearches.
+public class SearchAnalyticsReport {
+    private final int days;
+    private final List<SearchQueryReport> topQueries;
+    private final List<SearchQueryReport> zeroResultQueries;
+    private final List<ResultCountBucket> resultCounts;
+    private final long pendingSearches;
+
+    public SearchAnalyticsReport(int days, List<SearchQueryReport> topQueries, List<SearchQueryReport> zeroResultQueries,
+                                 List<ResultCountBucket> resultCounts, long pendingSearches) {
+        this.days = days;
+        this.topQueries = topQueries;
+        this.zeroResultQueries = zeroResultQueries;
+        this.resultCounts = resultCounts;
+        this.pendingSearches = pendingSearches;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public List<SearchQueryReport> getTopQueries() {
+        return topQueries;
+    }
+
+    public List<SearchQueryReport> getZeroResultQueries() {
+        return zeroResultQueries;
+    }
+
+    public List<ResultCountBucket> getResultCounts() {
+        return resultCounts;
+    }
+
+    public long getPendingSearches() {
+        return pendingSearches;
+    }
+
+    public static class ResultCountBucket {
+        private final String label;
+        private final long searches;
+        private final int percent;
+
+        public ResultCountBucket(String label, long searches, int percent) {
+            this.label = label;
+            this.searches = searches;
+            this.percent = percent;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getSearches() {
+            return searches;
+        }
+
+        public int getPercent() {
+            return percent;
+        }
+    }
+}
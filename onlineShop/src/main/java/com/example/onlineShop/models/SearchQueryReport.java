@@ -0,0 +1,32 @@
+package com.example.onlineShop.models;
+
+// Totals for one search query over the reported period.
+public class SearchQueryReport {
+    private final String query;
+    private final long searches;
+    private final long zeroResults;
+    private final long totalResults;
+
+    public SearchQueryReport(String query, Long searches, Long zeroResults, Long totalResults) {
+        this.query = query;
+        this.searches = searches;
+        this.zeroResults = zeroResults;
+        this.totalResults = totalResults;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public long getSearches() {
+        return searches;
+    }
+
+    public long getZeroResults() {
+        return zeroResults;
+    }
+
+    public double getAverageResults() {
+        return searches == 0 ? 0 : (double) totalResults / searches;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.onlineShop.models;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+// Daily totals for one normalized search query, accumulated from the in-memory analytics window.
+@Entity
+@Table(name = "search_query_stats", uniqueConstraints =
+        @UniqueConstraint(name = "uk_search_query_stats_day_query", columnNames = {"stat_day", "query_text"}))
+public class SearchQueryStat {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "stat_day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "query_text", nullable = false)
+    private String query;
+
+    @Column(name = "searches", nullable = false)
+    private long searches;
+
+    @Column(name = "zero_results", nullable = false)
+    private long zeroResults;
+
+    @Column(name = "total_results", nullable = false)
+    private long totalResults;
+
+    public SearchQueryStat() {
+    }
+
+    public SearchQueryStat(LocalDate day, String query, long searches, long zeroResults, long totalResults) {
+        this.day = day;
+        this.query = query;
+        this.searches = searches;
+        this.zeroResults = zeroResults;
+        this.totalResults = totalResults;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public long getSearches() {
+        return searches;
+    }
+
+    public long getZeroResults() {
+        return zeroResults;
+    }
+
+    public long getTotalResults() {
+        return totalResults;
+    }
+}
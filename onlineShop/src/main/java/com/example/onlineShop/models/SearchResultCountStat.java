@@ -0,0 +1,50 @@
+package com.example.onlineShop.models;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+// Daily number of searches whose result count fell into one bucket of SearchAnalytics.RESULT_COUNT_BOUNDS.
+@Entity
+@Table(name = "search_result_counts", uniqueConstraints =
+        @UniqueConstraint(name = "uk_search_result_counts_day_bucket", columnNames = {"stat_day", "bucket"}))
+public class SearchResultCountStat {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "stat_day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "bucket", nullable = false)
+    private int bucket;
+
+    @Column(name = "searches", nullable = false)
+    private long searches;
+
+    public SearchResultCountStat() {
+    }
+
+    public SearchResultCountStat(LocalDate day, int bucket, long searches) {
+        this.day = day;
+        this.bucket = bucket;
+        this.searches = searches;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public int getBucket() {
+        return bucket;
+    }
+
+    public long getSearches() {
+        return searches;
+    }
+}
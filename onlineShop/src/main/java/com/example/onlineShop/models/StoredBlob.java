@@ -0,0 +1,31 @@
+package com.example.onlineShop.models;
+
+import jakarta.persistence.*;
+
+// How many image rows point to a BlobStore key. A row at zero marks content whose file is due for collection.
+@Entity
+@Table(name = "stored_blobs")
+public class StoredBlob {
+    @Id
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "ref_count", nullable = false)
+    private long refCount;
+
+    public StoredBlob() {
+    }
+
+    public StoredBlob(String contentHash, long refCount) {
+        this.contentHash = contentHash;
+        this.refCount = refCount;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public long getRefCount() {
+        return refCount;
+    }
+}
@@ -25,7 +25,8 @@ public class User implements UserDetails {
     @Column(name = "active")
     private boolean active;
 
-    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    // lazy: the user is looked up on every authenticated request, and nothing there shows the avatar
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn(name = "image_id")
     private Image avatar;
 
@@ -0,0 +1,25 @@
+package com.example.onlineShop.models.enums;
+
+public enum CatalogSort {
+    NEWEST("dateOfCreated", false),
+    PRICE_ASC("price", true),
+    PRICE_DESC("price", false),
+    // ranked in memory by BestsellerRanking, never by a query
+    BESTSELLING(null, false);
+
+    private final String property;
+    private final boolean ascending;
+
+    CatalogSort(String property, boolean ascending) {
+        this.property = property;
+        this.ascending = ascending;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.onlineShop.repositories;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Immutable binary content addressed by the hex SHA-256 of its bytes. Storing the same content twice keeps one copy.
+public interface BlobStore {
+    // reads the stream to the end, hashing it on the way, and returns the key of the stored content
+    String put(InputStream content) throws IOException;
+    // throws NoSuchFileException for an unknown key
+    InputStream open(String key) throws IOException;
+    // for serving: a file-backed store returns a resource whose getFile() the server can send without copying
+    Resource resource(String key);
+    long size(String key) throws IOException;
+    boolean exists(String key);
+    void delete(String key) throws IOException;
+}
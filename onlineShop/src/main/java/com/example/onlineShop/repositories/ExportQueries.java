@@ -0,0 +1,22 @@
+package com.example.onlineShop.repositories;
+
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.stream.Stream;
+
+final class ExportQueries {
+    static final int FETCH_SIZE = 500;
+
+    private ExportQueries() {
+    }
+
+    // Exports read constructor projections through a forward-only cursor: rows are fetched from the driver
+    // a batch at a time and never become managed entities, so memory stays flat however many rows there are.
+    static <T> Stream<T> stream(TypedQuery<T> query) {
+        return query
+                .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.onlineShop.repositories;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+// Blobs as files under the root, sharded by the first two bytes of the key (ab/cd/abcd…) so no directory
+// grows past a few thousand entries. Content is written to incoming/ first and renamed into place once
+// it is on disk, so a key never names a partly written file.
+@Component
+public class FileSystemBlobStore implements BlobStore {
+    private static final Logger log = LoggerFactory.getLogger(FileSystemBlobStore.class);
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+    private final Path incoming;
+
+    public FileSystemBlobStore(@Value("${images.storage.root:./data/images}") Path root) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.incoming = this.root.resolve("incoming");
+        Files.createDirectories(incoming);
+        removeIncomplete();
+    }
+
+    @Override
+    public String put(InputStream content) throws IOException {
+        Path temp = Files.createTempFile(incoming, "blob-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                OutputStream out = new DigestOutputStream(Channels.newOutputStream(channel), digest);
+                content.transferTo(out);
+                // on disk before any row refers to the key
+                channel.force(true);
+            }
+            String key = HexFormat.of().formatHex(digest.digest());
+            Path target = pathOf(key);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                // the same content stored concurrently is simply replaced by an identical file
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return key;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(pathOf(key));
+    }
+
+    @Override
+    public Resource resource(String key) {
+        return new FileSystemResource(pathOf(key));
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return Files.size(pathOf(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(pathOf(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(pathOf(key));
+    }
+
+    Path pathOf(String key) {
+        if (key == null || !KEY.matcher(key).matches()) {
+            throw new IllegalArgumentException("Not a blob key: " + key);
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    // uploads interrupted by a crash; nothing refers to them
+    private void removeIncomplete() throws IOException {
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(incoming)) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+                log.info("Removed incomplete blob {}", leftover.getFileName());
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.onlineShop.repositories;
+
+import com.example.onlineShop.models.CustomerPurchase;
+import com.example.onlineShop.models.Order;
+import com.example.onlineShop.models.OrderExportRow;
+import com.example.onlineShop.models.ProductSale;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface OrderRepository {
+    Stream<OrderExportRow> streamExportRows(Long sellerId);
+    Order save(Order order);
+    long findMaxId();
+    Stream<CustomerPurchase> streamPurchases(long maxOrderId);
+    Stream<ProductSale> streamSales();
+    List<Long> findRecentProductIdsByUser(Long userId, int limit);
+}
@@ -0,0 +1,80 @@
+package com.example.onlineShop.repositories;
+
+import com.example.onlineShop.models.CustomerPurchase;
+import com.example.onlineShop.models.Order;
+import com.example.onlineShop.models.OrderExportRow;
+import com.example.onlineShop.models.ProductSale;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public class OrderRepositoryImpl implements OrderRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // a new order gets its identity value as soon as it is persisted
+    @Override
+    public Order save(Order order) {
+        if (order.getId() == null) {
+            entityManager.persist(order);
+            return order;
+        }
+        return entityManager.merge(order);
+    }
+
+    // 0 when there are no orders
+    @Override
+    public long findMaxId() {
+        return entityManager.createQuery("SELECT COALESCE(MAX(o.id), 0) FROM Order o", Long.class)
+                .getSingleResult();
+    }
+
+    // all orders, or only those for products of one seller; must be consumed inside a transaction and closed
+    @Override
+    public Stream<OrderExportRow> streamExportRows(Long sellerId) {
+        TypedQuery<OrderExportRow> query = entityManager.createQuery(
+                "SELECT new com.example.onlineShop.models.OrderExportRow(o.id, o.purchaseDate, u.id, u.email, " +
+                        "p.id, p.title, p.price, o.quantity) FROM Order o JOIN o.user u JOIN o.product p" +
+                        (sellerId != null ? " WHERE p.user.id = :sellerId" : "") +
+                        " ORDER BY o.id", OrderExportRow.class);
+        if (sellerId != null) {
+            query.setParameter("sellerId", sellerId);
+        }
+        return ExportQueries.stream(query);
+    }
+
+    // every purchase up to an order id, grouped by customer and most recent first; must be consumed inside a
+    // transaction and closed
+    @Override
+    public Stream<CustomerPurchase> streamPurchases(long maxOrderId) {
+        return ExportQueries.stream(entityManager.createQuery(
+                "SELECT new com.example.onlineShop.models.CustomerPurchase(o.user.id, o.product.id) " +
+                        "FROM Order o WHERE o.id <= :maxOrderId ORDER BY o.user.id, o.purchaseDate DESC, o.id DESC",
+                CustomerPurchase.class).setParameter("maxOrderId", maxOrderId));
+    }
+
+    // every order line; must be consumed inside a transaction and closed
+    @Override
+    public Stream<ProductSale> streamSales() {
+        return ExportQueries.stream(entityManager.createQuery(
+                "SELECT new com.example.onlineShop.models.ProductSale(o.product.id, o.quantity, o.purchaseDate) " +
+                        "FROM Order o", ProductSale.class));
+    }
+
+    // distinct products a customer bought, most recently bought first
+    @Override
+    public List<Long> findRecentProductIdsByUser(Long userId, int limit) {
+        return entityManager.createQuery(
+                        "SELECT o.product.id FROM Order o WHERE o.user.id = :userId " +
+                                "GROUP BY o.product.id ORDER BY MAX(o.purchaseDate) DESC, o.product.id DESC", Long.class)
+                .setParameter("userId", userId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
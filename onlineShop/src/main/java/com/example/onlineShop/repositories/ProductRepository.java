@@ -1,15 +1,32 @@
 package com.example.onlineShop.repositories;
 
+import com.example.onlineShop.models.CatalogFilter;
 import com.example.onlineShop.models.Product;
+import com.example.onlineShop.models.ProductCard;
+import com.example.onlineShop.models.ProductDetails;
+import com.example.onlineShop.models.ProductDocument;
+import com.example.onlineShop.models.ProductExportRow;
+import com.example.onlineShop.models.ProductViewReport;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ProductRepository {
-    List<Product> findByTitleContainingAndActiveTrue(String title);
-    List<Product> findByActiveTrue();
+    List<ProductCard> findActiveCards(CatalogFilter filter, Long afterId, Long beforeId, int limit);
+    List<ProductCard> findActiveCardsBySeller(Long sellerId, Long afterId, Long beforeId, int limit);
+    List<ProductCard> findActiveCardsByIdIn(List<Long> ids);
+    List<ProductDocument> findActiveDocuments(Long afterId, int limit);
+    List<ProductDocument> findActiveTitles(Long afterId, int limit);
+    List<ProductDocument> findActivePrices(Long afterId, int limit);
     Product save(Product product);
+    void insertAll(List<Product> products);
     Optional<Product> findById(Long id);
+    Optional<ProductDetails> findDetailsById(Long id);
     void delete(Product product);
+    Stream<ProductExportRow> streamExportRows(Long sellerId);
+    void addViews(Map<Long, Long> viewsByProductId);
+    List<ProductViewReport> findMostViewed(int limit);
 }
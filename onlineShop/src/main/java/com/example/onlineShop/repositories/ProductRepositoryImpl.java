@@ -1,35 +1,190 @@
 package com.example.onlineShop.repositories;
 
+import com.example.onlineShop.models.CatalogFilter;
 import com.example.onlineShop.models.Product;
+import com.example.onlineShop.models.ProductCard;
+import com.example.onlineShop.models.ProductDetails;
+import com.example.onlineShop.models.ProductDocument;
+import com.example.onlineShop.models.ProductExportRow;
+import com.example.onlineShop.models.ProductViewReport;
+import com.example.onlineShop.models.enums.CatalogSort;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 @Transactional
 public class ProductRepositoryImpl implements ProductRepository {
 
+    // listings only render these columns, so they skip the description text, the user proxy
+    // and dirty checking of managed entities
+    private static final String CARD =
+            "new com.example.onlineShop.models.ProductCard(p.id, p.title, p.price, p.previewImageId)";
+
     @PersistenceContext
     private EntityManager entityManager;
 
     @Override
-    public List<Product> findByTitleContainingAndActiveTrue(String title) {
+    public List<ProductCard> findActiveCards(CatalogFilter filter, Long afterId, Long beforeId, int limit) {
+        CatalogSort sort = filter.sortOrDefault();
+        Long cursorId = afterId != null ? afterId : beforeId;
+        boolean backward = afterId == null && beforeId != null;
+        Object cursorKey = null;
+        if (cursorId != null) {
+            cursorKey = sortKeyOf(sort, cursorId);
+            if (cursorKey == null) return new ArrayList<>();
+        }
+
+        // "after" walks on in the sort direction, "before" walks against it and the rows are reversed
+        boolean ascending = sort.isAscending() != backward;
+        String key = "p." + sort.getProperty();
+        String direction = ascending ? " ASC" : " DESC";
+        StringBuilder jpql = new StringBuilder("SELECT " + CARD + " FROM Product p WHERE p.active = true");
+        // searches only get here while the in-memory indexes are still loading
+        if (filter.hasTitle()) {
+            jpql.append(" AND LOWER(p.title) LIKE :title");
+        }
+        if (filter.minPrice() != null) {
+            jpql.append(" AND p.price >= :minPrice");
+        }
+        if (filter.maxPrice() != null) {
+            jpql.append(" AND p.price <= :maxPrice");
+        }
+        if (cursorId != null) {
+            // (key, id) past (cursorKey, cursorId), with the key bound first so it stays an index range
+            String past = ascending ? ">" : "<";
+            jpql.append(String.format(" AND %1$s %2$s= :cursorKey AND (%1$s %2$s :cursorKey OR p.id %2$s :cursorId)",
+                    key, past));
+        }
+        // active is constant here, but H2 only walks a composite index in order when the ORDER BY names
+        // its leading column; without it every page sorts all active rows
+        jpql.append(" ORDER BY p.active").append(direction)
+                .append(", ").append(key).append(direction).append(", p.id").append(direction);
+
+        TypedQuery<ProductCard> query = entityManager.createQuery(jpql.toString(), ProductCard.class)
+                .setMaxResults(limit);
+        if (filter.hasTitle()) {
+            query.setParameter("title", "%" + filter.title().trim().toLowerCase(Locale.ROOT) + "%");
+        }
+        if (filter.minPrice() != null) {
+            query.setParameter("minPrice", filter.minPrice());
+        }
+        if (filter.maxPrice() != null) {
+            query.setParameter("maxPrice", filter.maxPrice());
+        }
+        if (cursorId != null) {
+            query.setParameter("cursorKey", cursorKey);
+            query.setParameter("cursorId", cursorId);
+        }
+
+        List<ProductCard> cards = new ArrayList<>(query.getResultList());
+        if (backward) {
+            Collections.reverse(cards);
+        }
+        return cards;
+    }
+
+    // one seller's active products, newest first, read as a range of idx_products_user_active_created
+    @Override
+    public List<ProductCard> findActiveCardsBySeller(Long sellerId, Long afterId, Long beforeId, int limit) {
+        Long cursorId = afterId != null ? afterId : beforeId;
+        boolean backward = afterId == null && beforeId != null;
+        Object cursorKey = null;
+        if (cursorId != null) {
+            cursorKey = sortKeyOf(CatalogSort.NEWEST, cursorId);
+            if (cursorKey == null) return new ArrayList<>();
+        }
+
+        String direction = backward ? " ASC" : " DESC";
+        StringBuilder jpql = new StringBuilder("SELECT " + CARD + " FROM Product p " +
+                "WHERE p.user.id = :sellerId AND p.active = true");
+        if (cursorId != null) {
+            String past = backward ? ">" : "<";
+            jpql.append(String.format(" AND p.dateOfCreated %1$s= :cursorKey " +
+                    "AND (p.dateOfCreated %1$s :cursorKey OR p.id %1$s :cursorId)", past));
+        }
+        jpql.append(" ORDER BY p.user.id").append(direction).append(", p.active").append(direction)
+                .append(", p.dateOfCreated").append(direction).append(", p.id").append(direction);
+
+        TypedQuery<ProductCard> query = entityManager.createQuery(jpql.toString(), ProductCard.class)
+                .setParameter("sellerId", sellerId)
+                .setMaxResults(limit);
+        if (cursorId != null) {
+            query.setParameter("cursorKey", cursorKey);
+            query.setParameter("cursorId", cursorId);
+        }
+
+        List<ProductCard> cards = new ArrayList<>(query.getResultList());
+        if (backward) {
+            Collections.reverse(cards);
+        }
+        return cards;
+    }
+
+    @Override
+    public List<ProductCard> findActiveCardsByIdIn(List<Long> ids) {
+        if (ids.isEmpty()) return new ArrayList<>();
+        return entityManager.createQuery(
+                        "SELECT " + CARD + " FROM Product p WHERE p.id IN :ids AND p.active = true", ProductCard.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    @Override
+    public List<ProductDocument> findActiveDocuments(Long afterId, int limit) {
+        return entityManager.createQuery(
+                        "SELECT new com.example.onlineShop.models.ProductDocument(p.id, p.title, p.description) " +
+                                "FROM Product p WHERE p.active = true AND p.id > :afterId ORDER BY p.active, p.id",
+                        ProductDocument.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<ProductDocument> findActiveTitles(Long afterId, int limit) {
         return entityManager.createQuery(
-                        "SELECT p FROM Product p WHERE p.title LIKE :title AND p.active = true",
-                        Product.class)
-                .setParameter("title", "%" + title + "%")
+                        "SELECT new com.example.onlineShop.models.ProductDocument(p.id, p.title) " +
+                                "FROM Product p WHERE p.active = true AND p.id > :afterId ORDER BY p.active, p.id",
+                        ProductDocument.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
                 .getResultList();
     }
 
     @Override
-    public List<Product> findByActiveTrue() {
+    public List<ProductDocument> findActivePrices(Long afterId, int limit) {
         return entityManager.createQuery(
-                        "SELECT p FROM Product p WHERE p.active = true",
-                        Product.class)
+                        "SELECT new com.example.onlineShop.models.ProductDocument(p.id, p.price) " +
+                                "FROM Product p WHERE p.active = true AND p.id > :afterId ORDER BY p.active, p.id",
+                        ProductDocument.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    // the cursor is a product id; its sort key is looked up so the URL stays a single number
+    private Object sortKeyOf(CatalogSort sort, Long productId) {
+        List<Object> keys = entityManager.createQuery(
+                        "SELECT p." + sort.getProperty() + " FROM Product p WHERE p.id = :id", Object.class)
+                .setParameter("id", productId)
                 .getResultList();
+        return keys.isEmpty() ? null : keys.get(0);
     }
 
     @Override
@@ -42,15 +197,110 @@ public class ProductRepositoryImpl implements ProductRepository {
         }
     }
 
+    // Identity ids make Hibernate insert entities one statement at a time, so new rows go through a single
+    // JDBC batch. The products are not attached to the persistence context; their ids are filled in.
+    @Override
+    public void insertAll(List<Product> products) {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO products (title, description, price, active, user_id, date_of_created) " +
+                            "VALUES (?, ?, ?, ?, ?, ?)", new String[]{"id"})) {
+                for (Product product : products) {
+                    insert.setString(1, product.getTitle());
+                    insert.setString(2, product.getDescription());
+                    insert.setInt(3, product.getPrice());
+                    insert.setBoolean(4, product.isActive());
+                    if (product.getUser() != null) {
+                        insert.setLong(5, product.getUser().getId());
+                    } else {
+                        insert.setNull(5, Types.BIGINT);
+                    }
+                    insert.setTimestamp(6, Timestamp.valueOf(product.getDateOfCreated()));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    for (int i = 0; i < products.size() && keys.next(); i++) {
+                        products.get(i).setId(keys.getLong(1));
+                    }
+                }
+            }
+        });
+    }
+
     @Override
     public Optional<Product> findById(Long id) {
         Product product = entityManager.find(Product.class, id);
         return Optional.ofNullable(product);
     }
 
+    // two narrow queries instead of the entity graph: no image bytes, no eager author avatar
+    @Override
+    public Optional<ProductDetails> findDetailsById(Long id) {
+        List<Object[]> rows = entityManager.createQuery(
+                        "SELECT p.id, p.title, p.description, p.price, u.id, u.name " +
+                                "FROM Product p LEFT JOIN p.user u WHERE p.id = :id", Object[].class)
+                .setParameter("id", id)
+                .getResultList();
+        if (rows.isEmpty()) return Optional.empty();
+        Object[] row = rows.get(0);
+
+        List<ProductDetails.ImageRef> images = new ArrayList<>();
+        for (Object[] image : entityManager.createQuery(
+                        "SELECT i.id, i.previewImage FROM Image i WHERE i.product.id = :id ORDER BY i.id", Object[].class)
+                .setParameter("id", id)
+                .getResultList()) {
+            images.add(new ProductDetails.ImageRef((Long) image[0], (Boolean) image[1]));
+        }
+        return Optional.of(new ProductDetails((Long) row[0], (String) row[1], (String) row[2], (Integer) row[3],
+                images, new ProductDetails.Author((Long) row[4], (String) row[5])));
+    }
+
     @Override
     public void delete(Product product) {
         entityManager.remove(entityManager.contains(product) ?
                 product : entityManager.merge(product));
     }
+
+    // every product including inactive ones, or one seller's; must be consumed inside a transaction and closed
+    @Override
+    public Stream<ProductExportRow> streamExportRows(Long sellerId) {
+        TypedQuery<ProductExportRow> query = entityManager.createQuery(
+                "SELECT new com.example.onlineShop.models.ProductExportRow(p.id, p.title, p.description, p.price, " +
+                        "p.active, p.user.id, p.dateOfCreated) FROM Product p" +
+                        (sellerId != null ? " WHERE p.user.id = :sellerId" : "") +
+                        " ORDER BY p.id", ProductExportRow.class);
+        if (sellerId != null) {
+            query.setParameter("sellerId", sellerId);
+        }
+        return ExportQueries.stream(query);
+    }
+
+    // One JDBC batch per flush. Rows are updated in id order, so concurrent flushes lock them in the same order.
+    @Override
+    public void addViews(Map<Long, Long> viewsByProductId) {
+        List<Long> ids = new ArrayList<>(viewsByProductId.keySet());
+        Collections.sort(ids);
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement update = connection.prepareStatement(
+                    "UPDATE products SET views = views + ? WHERE id = ?")) {
+                for (Long id : ids) {
+                    update.setLong(1, viewsByProductId.get(id));
+                    update.setLong(2, id);
+                    update.addBatch();
+                }
+                update.executeBatch();
+            }
+        });
+    }
+
+    // an admin report: scans the products table rather than keeping an index on a column updated every minute
+    @Override
+    public List<ProductViewReport> findMostViewed(int limit) {
+        return entityManager.createQuery(
+                        "SELECT new com.example.onlineShop.models.ProductViewReport(p.id, p.title, p.active, p.views) " +
+                                "FROM Product p WHERE p.views > 0 ORDER BY p.views DESC, p.id", ProductViewReport.class)
+                .setMaxResults(limit)
+                .getResultList();
+    }
 }
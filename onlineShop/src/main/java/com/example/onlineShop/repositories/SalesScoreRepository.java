@@ -0,0 +1,11 @@
+package com.example.onlineShop.repositories;
+
+import com.example.onlineShop.models.ProductSalesScore;
+
+import java.util.List;
+
+public interface SalesScoreRepository {
+    List<ProductSalesScore> findAll();
+    void saveAll(List<ProductSalesScore> scores);
+    void deleteByProductIdIn(List<Long> productIds);
+}
@@ -0,0 +1,37 @@
+package com.example.onlineShop.repositories;
+
+import com.example.onlineShop.models.ProductSalesScore;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public class SalesScoreRepositoryImpl implements SalesScoreRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductSalesScore> findAll() {
+        return entityManager.createQuery("SELECT s FROM ProductSalesScore s", ProductSalesScore.class)
+                .getResultList();
+    }
+
+    // the id is the product id, so merge inserts new products and overwrites known ones
+    @Override
+    public void saveAll(List<ProductSalesScore> scores) {
+        for (ProductSalesScore score : scores) {
+            entityManager.merge(score);
+        }
+    }
+
+    @Override
+    public void deleteByProductIdIn(List<Long> productIds) {
+        if (productIds.isEmpty()) return;
+        entityManager.createQuery("DELETE FROM ProductSalesScore s WHERE s.productId IN :ids")
+                .setParameter("ids", productIds)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.onlineShop.repositories;
+
+import com.example.onlineShop.models.SearchQueryReport;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SearchStatsRepository {
+    void addQueryStats(LocalDate day, String query, long searches, long zeroResults, long totalResults);
+    void addResultCounts(LocalDate day, int bucket, long searches);
+    List<SearchQueryReport> findTopQueries(LocalDate since, int limit);
+    List<SearchQueryReport> findTopZeroResultQueries(LocalDate since, int limit);
+    long[] sumResultCounts(LocalDate since, int buckets);
+}
@@ -0,0 +1,90 @@
+package com.example.onlineShop.repositories;
+
+import com.example.onlineShop.models.SearchQueryReport;
+import com.example.onlineShop.models.SearchQueryStat;
+import com.example.onlineShop.models.SearchResultCountStat;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public class SearchStatsRepositoryImpl implements SearchStatsRepository {
+    private static final String REPORT_SELECT =
+            "SELECT new com.example.onlineShop.models.SearchQueryReport(s.query, SUM(s.searches), " +
+                    "SUM(s.zeroResults), SUM(s.totalResults)) FROM SearchQueryStat s WHERE s.day >= :since " +
+                    "GROUP BY s.query";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // adds to the day's row, creating it on the first flush of the day
+    @Override
+    public void addQueryStats(LocalDate day, String query, long searches, long zeroResults, long totalResults) {
+        int updated = entityManager.createQuery(
+                        "UPDATE SearchQueryStat s SET s.searches = s.searches + :searches, " +
+                                "s.zeroResults = s.zeroResults + :zeroResults, " +
+                                "s.totalResults = s.totalResults + :totalResults " +
+                                "WHERE s.day = :day AND s.query = :query")
+                .setParameter("searches", searches)
+                .setParameter("zeroResults", zeroResults)
+                .setParameter("totalResults", totalResults)
+                .setParameter("day", day)
+                .setParameter("query", query)
+                .executeUpdate();
+        if (updated == 0) {
+            entityManager.persist(new SearchQueryStat(day, query, searches, zeroResults, totalResults));
+        }
+    }
+
+    @Override
+    public void addResultCounts(LocalDate day, int bucket, long searches) {
+        int updated = entityManager.createQuery(
+                        "UPDATE SearchResultCountStat s SET s.searches = s.searches + :searches " +
+                                "WHERE s.day = :day AND s.bucket = :bucket")
+                .setParameter("searches", searches)
+                .setParameter("day", day)
+                .setParameter("bucket", bucket)
+                .executeUpdate();
+        if (updated == 0) {
+            entityManager.persist(new SearchResultCountStat(day, bucket, searches));
+        }
+    }
+
+    @Override
+    public List<SearchQueryReport> findTopQueries(LocalDate since, int limit) {
+        return entityManager.createQuery(REPORT_SELECT + " ORDER BY SUM(s.searches) DESC, s.query",
+                        SearchQueryReport.class)
+                .setParameter("since", since)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<SearchQueryReport> findTopZeroResultQueries(LocalDate since, int limit) {
+        return entityManager.createQuery(REPORT_SELECT + " HAVING SUM(s.zeroResults) > 0 " +
+                                "ORDER BY SUM(s.zeroResults) DESC, s.query", SearchQueryReport.class)
+                .setParameter("since", since)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public long[] sumResultCounts(LocalDate since, int buckets) {
+        long[] sums = new long[buckets];
+        List<Object[]> rows = entityManager.createQuery(
+                        "SELECT s.bucket, SUM(s.searches) FROM SearchResultCountStat s WHERE s.day >= :since " +
+                                "GROUP BY s.bucket", Object[].class)
+                .setParameter("since", since)
+                .getResultList();
+        for (Object[] row : rows) {
+            int bucket = (Integer) row[0];
+            if (bucket >= 0 && bucket < buckets) {
+                sums[bucket] = (Long) row[1];
+            }
+        }
+        return sums;
+    }
+}
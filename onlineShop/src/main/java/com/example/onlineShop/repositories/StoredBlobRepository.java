@@ -0,0 +1,22 @@
+package com.example.onlineShop.repositories;
+
+import com.example.onlineShop.models.StoredBlob;
+
+import java.util.List;
+import java.util.Optional;
+
+// Reference counts per stored content. The counting upserts are written for H2, the database this application
+// runs on (spring.datasource and H2Dialect), whatever other drivers are on the classpath: they use H2's
+// MERGE ... USING, and retry a statement that hit a unique violation, which H2 rolls back on its own. PostgreSQL
+// aborts the whole transaction on such an error, so another database needs its own upsert in the implementation.
+public interface StoredBlobRepository {
+    void addReference(String contentHash);
+    // counts the key with no references, unless it is counted already
+    void addUnreferenced(String contentHash);
+    // returns the references left, or -1 when the key is not counted
+    long removeReference(String contentHash);
+    List<String> findUnreferenced();
+    // locks the row until the transaction ends
+    Optional<StoredBlob> findForUpdate(String contentHash);
+    void delete(StoredBlob blob);
+}
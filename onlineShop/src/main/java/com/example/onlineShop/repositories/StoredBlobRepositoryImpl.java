@@ -0,0 +1,89 @@
+package com.example.onlineShop.repositories;
+
+import com.example.onlineShop.models.StoredBlob;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class StoredBlobRepositoryImpl implements StoredBlobRepository {
+    private static final String ADD_REFERENCE =
+            "MERGE INTO stored_blobs b USING (VALUES CAST(? AS VARCHAR(64))) s(content_hash) " +
+                    "ON b.content_hash = s.content_hash " +
+                    "WHEN MATCHED THEN UPDATE SET ref_count = b.ref_count + 1 " +
+                    "WHEN NOT MATCHED THEN INSERT (content_hash, ref_count) VALUES (s.content_hash, 1)";
+    private static final String ADD_UNREFERENCED =
+            "MERGE INTO stored_blobs b USING (VALUES CAST(? AS VARCHAR(64))) s(content_hash) " +
+                    "ON b.content_hash = s.content_hash " +
+                    "WHEN NOT MATCHED THEN INSERT (content_hash, ref_count) VALUES (s.content_hash, 0)";
+    // H2's SQLState for a duplicate key; retrying after it relies on H2 rolling back only the failed statement
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // The upsert locks the row until commit, so a collection of the same key waits for this upload.
+    // Two first uploads of the same content both find no row; the later insert fails on the key once the other
+    // commits and runs again as an update. H2 rolls back just the failed statement, and it runs on the session's
+    // connection so Hibernate never sees the error and does not mark the transaction for rollback. Both the MERGE
+    // syntax and the retry are H2-specific; see StoredBlobRepository.
+    @Override
+    public void addReference(String contentHash) {
+        upsert(ADD_REFERENCE, contentHash);
+    }
+
+    @Override
+    public void addUnreferenced(String contentHash) {
+        upsert(ADD_UNREFERENCED, contentHash);
+    }
+
+    private void upsert(String sql, String contentHash) {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement merge = connection.prepareStatement(sql)) {
+                merge.setString(1, contentHash);
+                try {
+                    merge.executeUpdate();
+                } catch (SQLException e) {
+                    if (!UNIQUE_VIOLATION.equals(e.getSQLState())) throw e;
+                    merge.executeUpdate();
+                }
+            }
+        });
+    }
+
+    @Override
+    public long removeReference(String contentHash) {
+        int updated = entityManager.createQuery(
+                        "UPDATE StoredBlob b SET b.refCount = b.refCount - 1 " +
+                                "WHERE b.contentHash = :hash AND b.refCount > 0")
+                .setParameter("hash", contentHash)
+                .executeUpdate();
+        if (updated == 0) return -1;
+        return entityManager.createQuery("SELECT b.refCount FROM StoredBlob b WHERE b.contentHash = :hash", Long.class)
+                .setParameter("hash", contentHash)
+                .getSingleResult();
+    }
+
+    @Override
+    public List<String> findUnreferenced() {
+        return entityManager.createQuery("SELECT b.contentHash FROM StoredBlob b WHERE b.refCount = 0", String.class)
+                .getResultList();
+    }
+
+    @Override
+    public Optional<StoredBlob> findForUpdate(String contentHash) {
+        return Optional.ofNullable(entityManager.find(StoredBlob.class, contentHash, LockModeType.PESSIMISTIC_WRITE));
+    }
+
+    @Override
+    public void delete(StoredBlob blob) {
+        entityManager.remove(blob);
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.onlineShop.services;
+
+import com.example.onlineShop.events.OrderPlacedEvent;
+import com.example.onlineShop.events.ProductBatchChangedEvent;
+import com.example.onlineShop.events.ProductChangedEvent;
+import com.example.onlineShop.models.ProductSale;
+import com.example.onlineShop.models.ProductSalesScore;
+import com.example.onlineShop.repositories.OrderRepository;
+import com.example.onlineShop.repositories.SalesScoreRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+// Products ranked by units sold, each sale weighing half as much per half-life as it ages.
+// Scores use forward decay: a sale adds quantity * e^(λ(t - landmark)), so ageing never touches the stored
+// scores and their order only changes when something sells. The landmark moves forward before the weights
+// get large enough to lose precision. Checkouts update the ranking as they commit; it is snapshotted to
+// product_sales_scores periodically and on shutdown, and bootstrapped from the orders table when no snapshot exists.
+// Readers walk the ordered scores directly, so a page of the ranking costs its own size. A product taken off sale
+// loses its score.
+@Component
+public class BestsellerRanking {
+    private static final Logger log = LoggerFactory.getLogger(BestsellerRanking.class);
+    private static final double RENORMALIZE_EXPONENT = 300;
+    // a score decayed below this is dropped, so the map only holds products that still sell
+    private static final double FORGET_BELOW = 0.01;
+    private static final long[] NONE = new long[0];
+    private static final Comparator<Score> BEST_FIRST =
+            Comparator.comparingDouble(Score::value).reversed().thenComparingLong(Score::productId);
+
+    private final OrderRepository orderRepository;
+    private final SalesScoreRepository scoreRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final double decayPerSecond;
+    private final Clock clock;
+    private final Map<Long, Score> scores = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Score> ordered = new ConcurrentSkipListSet<>(BEST_FIRST);
+    // guarded by this
+    private long landmark;
+    private final Set<Long> changedSinceSnapshot = new HashSet<>();
+    private final Set<Long> droppedSinceSnapshot = new HashSet<>();
+
+    @Autowired
+    public BestsellerRanking(OrderRepository orderRepository,
+                             SalesScoreRepository scoreRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${bestsellers.half-life:7d}") Duration halfLife) {
+        this(orderRepository, scoreRepository, transactionManager, halfLife, Clock.systemDefaultZone());
+    }
+
+    public BestsellerRanking(OrderRepository orderRepository, SalesScoreRepository scoreRepository,
+                             PlatformTransactionManager transactionManager, Duration halfLife, Clock clock) {
+        this.orderRepository = orderRepository;
+        this.scoreRepository = scoreRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.decayPerSecond = Math.log(2) / halfLife.toSeconds();
+        this.clock = clock;
+        this.landmark = clock.instant().getEpochSecond();
+    }
+
+    // the best selling products, best first
+    public long[] top(int limit) {
+        return below(null, limit);
+    }
+
+    // Up to limit products ranked below the given one, best first; from the top when it is null or has no score.
+    // Taken under the lock, so a product whose score is being replaced is neither skipped nor seen twice.
+    public synchronized long[] below(Long productId, int limit) {
+        Score score = productId == null ? null : scores.get(productId);
+        return productIds(score == null ? ordered : ordered.tailSet(score, false), limit);
+    }
+
+    // up to limit products ranked above the given one, nearest first; none when it has no score
+    public synchronized long[] above(long productId, int limit) {
+        Score score = scores.get(productId);
+        return score == null ? NONE : productIds(ordered.headSet(score, false).descendingSet(), limit);
+    }
+
+    // the given products with the ones that sell first, best first; the rest keep their order
+    public long[] rank(long[] productIds) {
+        List<Score> selling = new ArrayList<>();
+        for (long productId : productIds) {
+            Score score = scores.get(productId);
+            if (score != null) {
+                selling.add(score);
+            }
+        }
+        if (selling.isEmpty()) return productIds;
+        selling.sort(BEST_FIRST);
+        long[] ranked = new long[productIds.length];
+        int position = 0;
+        for (Score score : selling) {
+            ranked[position++] = score.productId();
+        }
+        for (long productId : productIds) {
+            if (!scores.containsKey(productId)) {
+                ranked[position++] = productId;
+            }
+        }
+        return ranked;
+    }
+
+    // units sold, decayed to now
+    public synchronized double score(long productId) {
+        Score score = scores.get(productId);
+        return score == null ? 0 : score.value() * decayFactor(clock.instant());
+    }
+
+    @TransactionalEventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        Instant now = clock.instant();
+        for (int i = 0; i < event.productIds().size(); i++) {
+            addSale(event.productIds().get(i), event.quantities().get(i), now);
+        }
+    }
+
+    @Order(CatalogVersion.CATALOG_LISTENER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!event.active()) {
+            drop(event.productId());
+        }
+    }
+
+    @Order(CatalogVersion.CATALOG_LISTENER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductsChanged(ProductBatchChangedEvent batch) {
+        for (ProductChangedEvent event : batch.changes()) {
+            onProductChanged(event);
+        }
+    }
+
+    public synchronized void addSale(long productId, double quantity, Instant at) {
+        double exponent = decayPerSecond * (at.getEpochSecond() - landmark);
+        if (exponent > RENORMALIZE_EXPONENT) {
+            moveLandmark(at.getEpochSecond());
+            exponent = 0;
+        }
+        add(productId, quantity * Math.exp(exponent));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        Instant now = clock.instant();
+        Map<Long, Double> loaded = transactionTemplate.execute(status -> {
+            Map<Long, Double> decayed = new HashMap<>();
+            for (ProductSalesScore snapshot : scoreRepository.findAll()) {
+                decayed.put(snapshot.getProductId(), snapshot.getScore() * decay(toInstant(snapshot.getScoredAt()), now));
+            }
+            if (decayed.isEmpty()) {
+                try (Stream<ProductSale> sales = orderRepository.streamSales()) {
+                    sales.forEach(sale -> decayed.merge(sale.productId(),
+                            sale.quantity() * decay(toInstant(sale.purchaseDate()), now), Double::sum));
+                }
+            }
+            return decayed;
+        });
+        // sales recorded since startup are already in the map, so loaded scores are added to them
+        synchronized (this) {
+            double weight = Math.exp(decayPerSecond * (now.getEpochSecond() - landmark));
+            loaded.forEach((productId, value) -> add(productId, value * weight));
+        }
+        log.info("BestsellerRanking loaded: {} products in {} ms", loaded.size(), System.currentTimeMillis() - started);
+    }
+
+    @Scheduled(fixedDelayString = "${bestsellers.snapshot-interval:5m}",
+            initialDelayString = "${bestsellers.snapshot-interval:5m}")
+    public void snapshot() {
+        Instant now = clock.instant();
+        LocalDateTime scoredAt = LocalDateTime.ofInstant(now, clock.getZone());
+        List<ProductSalesScore> changed = new ArrayList<>();
+        List<Long> forgotten;
+        synchronized (this) {
+            forgotten = new ArrayList<>(droppedSinceSnapshot);
+            droppedSinceSnapshot.clear();
+            double factor = decayFactor(now);
+            for (Iterator<Score> scoresLeft = scores.values().iterator(); scoresLeft.hasNext(); ) {
+                Score score = scoresLeft.next();
+                if (score.value() * factor < FORGET_BELOW) {
+                    scoresLeft.remove();
+                    ordered.remove(score);
+                    forgotten.add(score.productId());
+                } else if (changedSinceSnapshot.contains(score.productId())) {
+                    changed.add(new ProductSalesScore(score.productId(), score.value() * factor, scoredAt));
+                }
+            }
+            changedSinceSnapshot.clear();
+        }
+        if (changed.isEmpty() && forgotten.isEmpty()) return;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                scoreRepository.saveAll(changed);
+                scoreRepository.deleteByProductIdIn(forgotten);
+            });
+            log.debug("Snapshotted {} sales scores, forgot {}", changed.size(), forgotten.size());
+        } catch (DataAccessException e) {
+            synchronized (this) {
+                changed.forEach(score -> changedSinceSnapshot.add(score.getProductId()));
+                // unless one sold again meanwhile
+                forgotten.stream().filter(productId -> !scores.containsKey(productId))
+                        .forEach(droppedSinceSnapshot::add);
+            }
+            log.warn("Could not snapshot {} sales scores: {}", changed.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void snapshotOnShutdown() {
+        snapshot();
+    }
+
+    private void add(long productId, double weightedQuantity) {
+        Score old = scores.get(productId);
+        Score updated = new Score(productId, (old == null ? 0 : old.value()) + weightedQuantity);
+        if (old != null) {
+            ordered.remove(old);
+        }
+        ordered.add(updated);
+        scores.put(productId, updated);
+        changedSinceSnapshot.add(productId);
+        droppedSinceSnapshot.remove(productId);
+    }
+
+    private synchronized void drop(long productId) {
+        Score score = scores.remove(productId);
+        if (score == null) return;
+        ordered.remove(score);
+        changedSinceSnapshot.remove(productId);
+        droppedSinceSnapshot.add(productId);
+    }
+
+    // rescales every score to a later landmark; the order is unchanged
+    private void moveLandmark(long newLandmark) {
+        double factor = Math.exp(-decayPerSecond * (newLandmark - landmark));
+        List<Score> rescaled = new ArrayList<>(scores.size());
+        for (Score score : scores.values()) {
+            rescaled.add(new Score(score.productId(), score.value() * factor));
+        }
+        ordered.clear();
+        ordered.addAll(rescaled);
+        for (Score score : rescaled) {
+            scores.put(score.productId(), score);
+        }
+        landmark = newLandmark;
+    }
+
+    // the size of a skiplist view takes a walk, so the array is bounded by the whole ranking instead
+    private long[] productIds(NavigableSet<Score> ranked, int limit) {
+        long[] ids = new long[Math.min(limit, scores.size())];
+        int size = 0;
+        for (Iterator<Score> next = ranked.iterator(); size < ids.length && next.hasNext(); ) {
+            ids[size++] = next.next().productId();
+        }
+        return size == ids.length ? ids : Arrays.copyOf(ids, size);
+    }
+
+    // from forward-decayed units at the landmark to units decayed to the given time
+    private double decayFactor(Instant at) {
+        return Math.exp(-decayPerSecond * (at.getEpochSecond() - landmark));
+    }
+
+    private double decay(Instant from, Instant to) {
+        return Math.exp(-decayPerSecond * Math.max(0, to.getEpochSecond() - from.getEpochSecond()));
+    }
+
+    private Instant toInstant(LocalDateTime time) {
+        return time.atZone(clock.getZone()).toInstant();
+    }
+
+    private record Score(long productId, double value) {
+    }
+}
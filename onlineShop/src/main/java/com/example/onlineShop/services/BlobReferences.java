@@ -0,0 +1,125 @@
+package com.example.onlineShop.services;
+
+import com.example.onlineShop.events.BlobReleasedEvent;
+import com.example.onlineShop.events.BlobStoredEvent;
+import com.example.onlineShop.models.StoredBlob;
+import com.example.onlineShop.repositories.BlobStore;
+import com.example.onlineShop.repositories.StoredBlobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+// Image content shared between image rows. The BlobStore keeps one file per distinct content; stored_blobs counts
+// the rows using each one, and the file and its variants are deleted once the count drops to zero.
+// Collection runs after the releasing transaction commits and re-checks the count under a row lock, so content
+// uploaded again in the meantime is kept. Content written for an image save that rolls back gets a row at zero
+// and goes through the same collection.
+@Service
+public class BlobReferences {
+    private static final Logger log = LoggerFactory.getLogger(BlobReferences.class);
+
+    private final StoredBlobRepository storedBlobRepository;
+    private final BlobStore blobStore;
+    private final ImageVariants imageVariants;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    public BlobReferences(StoredBlobRepository storedBlobRepository, BlobStore blobStore, ImageVariants imageVariants,
+                          ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager) {
+        this.storedBlobRepository = storedBlobRepository;
+        this.blobStore = blobStore;
+        this.imageVariants = imageVariants;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // collection runs after the releasing transaction has committed, which must not be joined
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Stores the content, hashing it as it streams in, and counts one more reference to it. Must run in the
+    // transaction that saves the image row. Returns the key.
+    public String store(InputStreamSource content) throws IOException {
+        String key;
+        try (InputStream in = content.getInputStream()) {
+            key = blobStore.put(in);
+        }
+        // from here on a rollback leaves the file without a row counting it
+        eventPublisher.publishEvent(new BlobStoredEvent(key));
+        storedBlobRepository.addReference(key);
+        // a collection that committed between the put and the reference may have just deleted the file;
+        // with the reference counted, none can start until this transaction ends
+        if (!blobStore.exists(key)) {
+            try (InputStream in = content.getInputStream()) {
+                blobStore.put(in);
+            }
+        }
+        return key;
+    }
+
+    // Counts one reference less. Must run in the transaction that deletes the image row.
+    public void release(String key) {
+        if (key == null) return;
+        long left = storedBlobRepository.removeReference(key);
+        if (left == 0) {
+            eventPublisher.publishEvent(new BlobReleasedEvent(key));
+        }
+    }
+
+    @TransactionalEventListener
+    public void onBlobReleased(BlobReleasedEvent event) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> collect(event.contentHash()));
+        } catch (RuntimeException e) {
+            // the row stays at zero and the file is kept; harmless apart from the space
+            log.warn("Could not collect blob {}: {}", event.contentHash(), e.getMessage());
+        }
+    }
+
+    // The image save rolled back, so its reference was never counted. The zero row lets the collection take the
+    // row lock like for a released key: an upload of the same content that is still running increments it and
+    // keeps the file, one that has already committed leaves a count above zero.
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_ROLLBACK)
+    public void onBlobStoreRolledBack(BlobStoredEvent event) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> storedBlobRepository.addUnreferenced(event.contentHash()));
+        } catch (RuntimeException e) {
+            log.warn("Could not collect blob {}: {}", event.contentHash(), e.getMessage());
+            return;
+        }
+        onBlobReleased(new BlobReleasedEvent(event.contentHash()));
+    }
+
+    // content released just before a crash or a failed collection
+    @EventListener(ApplicationReadyEvent.class)
+    public void collectUnreferenced() {
+        List<String> keys = transactionTemplate.execute(status -> storedBlobRepository.findUnreferenced());
+        for (String key : keys) {
+            onBlobReleased(new BlobReleasedEvent(key));
+        }
+    }
+
+    private void collect(String key) {
+        StoredBlob blob = storedBlobRepository.findForUpdate(key).orElse(null);
+        if (blob == null || blob.getRefCount() > 0) return;
+        try {
+            blobStore.delete(key);
+            imageVariants.delete(key);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        storedBlobRepository.delete(blob);
+        log.info("Collected blob {}", key);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.onlineShop.services;
 
+import com.example.onlineShop.events.OrderPlacedEvent;
 import com.example.onlineShop.models.Cart;
 import com.example.onlineShop.models.Order;
 import com.example.onlineShop.models.CartItem;
@@ -7,15 +8,19 @@ import com.example.onlineShop.models.Product;
 import com.example.onlineShop.models.User;
 import com.example.onlineShop.repositories.CartItemRepository;
 import com.example.onlineShop.repositories.CartRepository;
+import com.example.onlineShop.repositories.OrderRepository;
 import com.example.onlineShop.repositories.ProductRepository;
 import com.example.onlineShop.repositories.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.security.Principal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 public class CartService {
@@ -24,15 +29,20 @@ public class CartService {
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final EmailService emailService;
+    private final OrderRepository orderRepository;
+    private final ApplicationEventPublisher eventPublisher;
     private static final Logger log = LoggerFactory.getLogger(CartService.class);
 
     public CartService(CartRepository cartRepository, CartItemRepository cartItemRepository,
-                       ProductRepository productRepository, UserRepository userRepository, EmailService emailService) {
+                       ProductRepository productRepository, UserRepository userRepository, EmailService emailService,
+                       OrderRepository orderRepository, ApplicationEventPublisher eventPublisher) {
         this.cartRepository = cartRepository;
         this.cartItemRepository = cartItemRepository;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
         this.emailService = emailService;
+        this.orderRepository = orderRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -131,12 +141,23 @@ public class CartService {
             return;
         }
 
+        List<Long> previousProductIds = orderRepository.findRecentProductIdsByUser(user.getId(),
+                RecommendationService.MAX_HISTORY);
+        List<Long> productIds = new ArrayList<>(cart.getItems().size());
+        List<Integer> quantities = new ArrayList<>(cart.getItems().size());
+        Long firstOrderId = null;
         for (CartItem item : cart.getItems()) {
+            productIds.add(item.getProduct().getId());
+            quantities.add(item.getQuantity());
             Order order = new Order();
             order.setUser(user);
             order.setProduct(item.getProduct());
             order.setQuantity(item.getQuantity());
             order.setPurchaseDate(LocalDateTime.now());
+            orderRepository.save(order);
+            if (firstOrderId == null) {
+                firstOrderId = order.getId();
+            }
             user.getOrders().add(order); // чтобы сохранить с каскадом, если так настроено
 
 
@@ -155,5 +176,6 @@ public class CartService {
         cart.getItems().clear(); // очищаем корзину
         cartRepository.save(cart);
         userRepository.save(user); // сохраняем заказы пользователя
+        eventPublisher.publishEvent(new OrderPlacedEvent(user.getId(), firstOrderId, productIds, quantities, previousProductIds));
     }
 }
\ No newline at end of file
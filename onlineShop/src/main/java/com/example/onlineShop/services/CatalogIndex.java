@@ -0,0 +1,133 @@
+package com.example.onlineShop.services;
+
+import com.example.onlineShop.events.ProductBatchChangedEvent;
+import com.example.onlineShop.events.ProductChangedEvent;
+import com.example.onlineShop.models.ProductDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index over active products: built from the database once the application is ready,
+ * then kept current from {@link ProductChangedEvent}s and {@link ProductBatchChangedEvent}s published after commit.
+ *
+ * @param <S> index state, swapped as a whole on rebuild
+ * @param <D> analyzed document, produced in parallel during rebuild
+ */
+public abstract class CatalogIndex<S, D> {
+    private static final Logger log = LoggerFactory.getLogger(CatalogIndex.class);
+    private static final int BUILD_BATCH_SIZE = 2000;
+
+    protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    protected S state = newState();
+    private volatile boolean ready;
+    // events that arrive while a rebuild is loading the catalog are replayed on top of it
+    private List<ProductChangedEvent> pendingDuringRebuild;
+
+    protected abstract S newState();
+
+    protected abstract List<ProductDocument> loadBatch(Long afterId, int limit);
+
+    protected abstract D analyze(ProductDocument document);
+
+    protected abstract void add(S target, D document);
+
+    protected abstract void remove(S target, Long productId);
+
+    protected abstract int size(S target);
+
+    // called once a rebuild has loaded every batch, before queued events are replayed and the state goes live
+    protected void loaded(S fresh) {
+    }
+
+    // called around the changes of one event batch, under the write lock
+    protected void startBatch(S target, int changes) {
+    }
+
+    protected void finishBatch(S target) {
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        S fresh = newState();
+        Long afterId = 0L;
+        while (true) {
+            List<ProductDocument> batch = loadBatch(afterId, BUILD_BATCH_SIZE);
+            if (batch.isEmpty()) break;
+            // analysis is the expensive part, so it runs on the common pool; documents are added in id order
+            List<D> analyzed = batch.parallelStream().map(this::analyze).toList();
+            for (D document : analyzed) {
+                add(fresh, document);
+            }
+            afterId = batch.get(batch.size() - 1).id();
+        }
+
+        loaded(fresh);
+        lock.writeLock().lock();
+        try {
+            startBatch(fresh, pendingDuringRebuild.size());
+            for (ProductChangedEvent event : pendingDuringRebuild) {
+                apply(fresh, event);
+            }
+            finishBatch(fresh);
+            pendingDuringRebuild = null;
+            state = fresh;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("{} built: {} products in {} ms", getClass().getSimpleName(), size(fresh),
+                System.currentTimeMillis() - started);
+    }
+
+    @Order(CatalogVersion.CATALOG_LISTENER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        onProductsChanged(new ProductBatchChangedEvent(List.of(event)));
+    }
+
+    // a whole batch under one write lock
+    @Order(CatalogVersion.CATALOG_LISTENER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductBatchChangedEvent batch) {
+        lock.writeLock().lock();
+        try {
+            startBatch(state, batch.changes().size());
+            for (ProductChangedEvent event : batch.changes()) {
+                if (pendingDuringRebuild != null) {
+                    pendingDuringRebuild.add(event);
+                }
+                apply(state, event);
+            }
+            finishBatch(state);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(S target, ProductChangedEvent event) {
+        remove(target, event.productId());
+        if (event.active()) {
+            add(target, analyze(new ProductDocument(event.productId(), event.title(), event.description(), event.price())));
+        }
+    }
+}
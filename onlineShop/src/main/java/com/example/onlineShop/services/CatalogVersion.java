@@ -0,0 +1,51 @@
+package com.example.onlineShop.services;
+
+import com.example.onlineShop.events.ProductBatchChangedEvent;
+import com.example.onlineShop.events.ProductChangedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Advances on every committed product change. Anything rendered from the catalog can be tagged with
+// the version it was built at and thrown away once the version moves on.
+@Component
+public class CatalogVersion {
+    // listeners that patch the in-memory catalog run before this one, so a reader who sees the new
+    // version also sees the indexes and caches that reflect it
+    public static final int CATALOG_LISTENER_ORDER = 0;
+
+    private final AtomicLong version = new AtomicLong();
+    private final List<CatalogIndex<?, ?>> indexes;
+
+    public CatalogVersion(List<CatalogIndex<?, ?>> indexes) {
+        this.indexes = indexes;
+    }
+
+    public long current() {
+        return version.get();
+    }
+
+    // pages rendered before every index is built fall back to slower, less complete results
+    public boolean isSettled() {
+        for (CatalogIndex<?, ?> index : indexes) {
+            if (!index.isReady()) return false;
+        }
+        return true;
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        version.incrementAndGet();
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductBatchChangedEvent batch) {
+        version.incrementAndGet();
+    }
+}
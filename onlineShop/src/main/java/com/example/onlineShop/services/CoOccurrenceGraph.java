@@ -0,0 +1,141 @@
+package com.example.onlineShop.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// How many customers bought each pair of products, kept as one primitive neighbour map per product,
+// with the top neighbours of every product ready to serve. Not thread-safe: callers hold a lock or own it.
+final class CoOccurrenceGraph {
+    private static final long[] NONE = new long[0];
+
+    private final int topSize;
+    // product id -> position in neighbours and top
+    private final LongIntHashMap slots = new LongIntHashMap(1024, -1);
+    private final List<LongIntHashMap> neighbours = new ArrayList<>();
+    // neighbour ids by count, highest first; replaced rather than modified, so readers may keep a reference
+    private final List<long[]> top = new ArrayList<>();
+
+    CoOccurrenceGraph(int topSize) {
+        this.topSize = topSize;
+    }
+
+    int products() {
+        return neighbours.size();
+    }
+
+    long[] top(long productId) {
+        int slot = slots.get(productId);
+        return slot < 0 ? NONE : top.get(slot);
+    }
+
+    int count(long productId, long neighbourId) {
+        int slot = slots.get(productId);
+        return slot < 0 ? 0 : Math.max(0, neighbours.get(slot).get(neighbourId));
+    }
+
+    // one more customer bought both; the top lists of both products are adjusted in O(top size)
+    void addPair(long a, long b) {
+        add(a, b, 1);
+        add(b, a, 1);
+        offer(slotOf(a), b);
+        offer(slotOf(b), a);
+    }
+
+    // counts only; the top lists are computed once at the end with rankAll()
+    void addPairCounts(long a, long b) {
+        add(a, b, 1);
+        add(b, a, 1);
+    }
+
+    void mergeCounts(CoOccurrenceGraph other) {
+        other.slots.forEach((productId, slot) -> other.neighbours.get(slot)
+                .forEach((neighbourId, count) -> add(productId, neighbourId, count)));
+    }
+
+    // products are independent, so their top lists are ranked in parallel on the common pool
+    void rankAll() {
+        while (top.size() < neighbours.size()) {
+            top.add(NONE);
+        }
+        IntStream.range(0, neighbours.size()).parallel().forEach(slot -> top.set(slot, rank(neighbours.get(slot))));
+    }
+
+    private long[] rank(LongIntHashMap counts) {
+        long[] ids = new long[Math.min(topSize, counts.size())];
+        int[] best = new int[ids.length];
+        int[] size = {0};
+        counts.forEach((neighbourId, count) -> {
+            int position = size[0];
+            if (position == ids.length) {
+                if (!before(count, neighbourId, best[position - 1], ids[position - 1])) return;
+                position--;
+            } else {
+                size[0]++;
+            }
+            while (position > 0 && before(count, neighbourId, best[position - 1], ids[position - 1])) {
+                ids[position] = ids[position - 1];
+                best[position] = best[position - 1];
+                position--;
+            }
+            ids[position] = neighbourId;
+            best[position] = count;
+        });
+        return ids;
+    }
+
+    private void offer(int slot, long neighbourId) {
+        LongIntHashMap counts = neighbours.get(slot);
+        long[] current = top.get(slot);
+        int position = indexOf(current, neighbourId);
+        long[] updated;
+        if (position >= 0) {
+            updated = current.clone();
+        } else if (current.length < topSize) {
+            updated = Arrays.copyOf(current, current.length + 1);
+            position = current.length;
+        } else if (before(counts.get(neighbourId), neighbourId, counts.get(current[current.length - 1]),
+                current[current.length - 1])) {
+            updated = current.clone();
+            position = current.length - 1;
+        } else {
+            return;
+        }
+        // a count only ever grows here, so the neighbour can only move up
+        int count = counts.get(neighbourId);
+        while (position > 0 && before(count, neighbourId, counts.get(updated[position - 1]), updated[position - 1])) {
+            updated[position] = updated[position - 1];
+            position--;
+        }
+        updated[position] = neighbourId;
+        top.set(slot, updated);
+    }
+
+    private void add(long productId, long neighbourId, int delta) {
+        neighbours.get(slotOf(productId)).addTo(neighbourId, delta);
+    }
+
+    private int slotOf(long productId) {
+        int slot = slots.get(productId);
+        if (slot < 0) {
+            slot = neighbours.size();
+            slots.put(productId, slot);
+            neighbours.add(new LongIntHashMap(4, 0));
+            top.add(NONE);
+        }
+        return slot;
+    }
+
+    // higher count first; ties go to the older product so the order is stable
+    private static boolean before(int count, long id, int otherCount, long otherId) {
+        return count > otherCount || (count == otherCount && id < otherId);
+    }
+
+    private static int indexOf(long[] ids, long id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.onlineShop.services;
+
+import com.example.onlineShop.models.OrderExportRow;
+import com.example.onlineShop.models.ProductExportRow;
+import com.example.onlineShop.models.User;
+import com.example.onlineShop.models.enums.ExportFormat;
+import com.example.onlineShop.repositories.OrderRepository;
+import com.example.onlineShop.repositories.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Writes full product and order exports straight from a database cursor to the response, one row at a time.
+// Admins get everything; anyone else gets their own products and the orders placed for them.
+@Service
+public class ExportService {
+    private static final Logger log = LoggerFactory.getLogger(ExportService.class);
+    private static final String[] PRODUCT_COLUMNS =
+            {"id", "title", "description", "price", "active", "sellerId", "dateOfCreated"};
+    private static final String[] ORDER_COLUMNS =
+            {"id", "purchaseDate", "buyerId", "buyerEmail", "productId", "productTitle", "price", "quantity"};
+
+    private final ProductRepository productRepository;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+
+    public ExportService(ProductRepository productRepository,
+                         OrderRepository orderRepository,
+                         PlatformTransactionManager transactionManager,
+                         ObjectMapper objectMapper) {
+        this.productRepository = productRepository;
+        this.orderRepository = orderRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    public void exportProducts(User requester, ExportFormat format, OutputStream out) {
+        Long sellerId = scopeOf(requester);
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<ProductExportRow> rows = productRepository.streamExportRows(sellerId)) {
+                long written = write(rows, format, PRODUCT_COLUMNS, row -> new Object[]{row.id(), row.title(),
+                        row.description(), row.price(), row.active(), row.sellerId(), row.dateOfCreated()}, out);
+                log.info("Exported {} products as {} for {}", written, format, requester.getEmail());
+            }
+        });
+    }
+
+    public void exportOrders(User requester, ExportFormat format, OutputStream out) {
+        Long sellerId = scopeOf(requester);
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<OrderExportRow> rows = orderRepository.streamExportRows(sellerId)) {
+                long written = write(rows, format, ORDER_COLUMNS, row -> new Object[]{row.id(), row.purchaseDate(),
+                        row.buyerId(), row.buyerEmail(), row.productId(), row.productTitle(), row.price(),
+                        row.quantity()}, out);
+                log.info("Exported {} orders as {} for {}", written, format, requester.getEmail());
+            }
+        });
+    }
+
+    private static Long scopeOf(User requester) {
+        return requester.isAdmin() ? null : requester.getId();
+    }
+
+    private <T> long write(Stream<T> rows, ExportFormat format, String[] columns, Function<T, Object[]> values,
+                           OutputStream out) {
+        long written = 0;
+        Iterator<T> iterator = rows.iterator();
+        try {
+            if (format == ExportFormat.JSONL) {
+                while (iterator.hasNext()) {
+                    out.write(objectMapper.writeValueAsBytes(iterator.next()));
+                    out.write('\n');
+                    written++;
+                }
+                out.flush();
+            } else {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+                writeCsvRow(writer, columns);
+                while (iterator.hasNext()) {
+                    writeCsvRow(writer, values.apply(iterator.next()));
+                    written++;
+                }
+                writer.flush();
+            }
+        } catch (IOException e) {
+            // usually the client went away; the cursor and transaction are released by the caller
+            throw new UncheckedIOException(e);
+        }
+        return written;
+    }
+
+    private static void writeCsvRow(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) writer.write(',');
+            if (values[i] != null) {
+                writer.write(csvField(values[i].toString()));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    // RFC 4180: fields holding a separator, quote or line break are quoted, with quotes doubled
+    private static String csvField(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+}
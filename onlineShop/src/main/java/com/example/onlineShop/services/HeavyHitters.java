@@ -0,0 +1,97 @@
+package com.example.onlineShop.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Approximate per-key counts for one reporting window, without locks. A Count-Min sketch estimates how often
+// every key was seen; a key gets exact counters only while the tracked set has room, or once its estimate
+// reaches its fair share of the window (total / capacity), so the long tail costs sketch cells, not map entries.
+final class HeavyHitters {
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final int mask;
+    private final int capacity;
+    private final AtomicLongArray cells;
+    private final LongAdder total = new LongAdder();
+    private final Map<String, Counts> tracked = new ConcurrentHashMap<>();
+
+    HeavyHitters(int width, int capacity) {
+        int rowWidth = Integer.highestOneBit(Math.max(16, width - 1)) << 1;
+        this.mask = rowWidth - 1;
+        this.capacity = capacity;
+        this.cells = new AtomicLongArray(DEPTH * rowWidth);
+    }
+
+    // returns the key's counters, or null when it is not tracked (yet)
+    Counts add(String key) {
+        total.increment();
+        Counts counts = tracked.get(key);
+        if (counts == null) {
+            // tracked keys are counted exactly and stay out of the sketch
+            long estimate = increment(key);
+            int size = tracked.size();
+            // the hard limit bounds the map even when the sketch overestimates many colliding keys
+            if (size >= 2 * capacity || (size >= capacity && estimate * capacity <= total.sum())) {
+                return null;
+            }
+            // a late key inherits the sketch's count of its earlier occurrences, as in Space-Saving
+            counts = tracked.computeIfAbsent(key, k -> new Counts(estimate - 1));
+        }
+        counts.hits.increment();
+        return counts;
+    }
+
+    long total() {
+        return total.sum();
+    }
+
+    Map<String, Counts> tracked() {
+        return tracked;
+    }
+
+    private long increment(String key) {
+        int hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int cell = row * (mask + 1) + (mix(hash ^ SEEDS[row]) & mask);
+            estimate = Math.min(estimate, cells.incrementAndGet(cell));
+        }
+        return estimate;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x7FEB352D;
+        h ^= h >>> 15;
+        h *= 0x846CA68B;
+        return h ^ (h >>> 16);
+    }
+
+    static final class Counts {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder results = new LongAdder();
+        private final LongAdder samples = new LongAdder();
+
+        private Counts(long initialHits) {
+            hits.add(initialHits);
+        }
+
+        void addResults(int count) {
+            results.add(count);
+            samples.increment();
+        }
+
+        long hits() {
+            return hits.sum();
+        }
+
+        // inherited hits carry no result counts, so the total is extrapolated from the sampled ones
+        long results() {
+            long sampled = samples.sum();
+            return sampled == 0 ? 0 : Math.round((double) results.sum() * hits() / sampled);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.onlineShop.services;
+
+import com.example.onlineShop.repositories.BlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// One-time move of image bytes from the legacy images.bytes column into the BlobStore. Runs before the web
+// server starts, so no request sees an image without its content. Each batch is committed only after its
+// blobs are on disk, so an interrupted run resumes where it stopped; the column is dropped once it is empty.
+// Images stored before reference counting get their stored_blobs counts here too, before any upload can
+// count a reference to the same content.
+@Component
+public class ImageBlobMigration implements SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(ImageBlobMigration.class);
+    private static final int BATCH_SIZE = 100;
+
+    private final DataSource dataSource;
+    private final BlobStore blobStore;
+
+    public ImageBlobMigration(DataSource dataSource, BlobStore blobStore) {
+        this.dataSource = dataSource;
+        this.blobStore = blobStore;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            migrate();
+            countReferences();
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Could not move image bytes to the blob store", e);
+        }
+    }
+
+    // returns the number of images moved
+    public int migrate() throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!hasBytesColumn(connection)) return 0;
+            long started = System.currentTimeMillis();
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            int moved = 0;
+            try {
+                int batch;
+                do {
+                    batch = moveBatch(connection);
+                    connection.commit();
+                    moved += batch;
+                } while (batch == BATCH_SIZE);
+                try (Statement drop = connection.createStatement()) {
+                    drop.execute("ALTER TABLE images DROP COLUMN bytes");
+                }
+                connection.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            log.info("Moved {} images to the blob store in {} ms", moved, System.currentTimeMillis() - started);
+            return moved;
+        }
+    }
+
+    // returns the number of keys that had no count yet
+    public int countReferences() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement insert = connection.createStatement()) {
+            int counted = insert.executeUpdate("INSERT INTO stored_blobs (content_hash, ref_count) " +
+                    "SELECT content_hash, COUNT(*) FROM images WHERE content_hash IS NOT NULL " +
+                    "AND content_hash NOT IN (SELECT content_hash FROM stored_blobs) GROUP BY content_hash");
+            if (counted > 0) {
+                log.info("Counted references to {} stored images", counted);
+            }
+            return counted;
+        }
+    }
+
+    private int moveBatch(Connection connection) throws SQLException, IOException {
+        List<Long> ids = new ArrayList<>(BATCH_SIZE);
+        List<String> keys = new ArrayList<>(BATCH_SIZE);
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT id, bytes FROM images WHERE bytes IS NOT NULL ORDER BY id FETCH FIRST ? ROWS ONLY")) {
+            select.setInt(1, BATCH_SIZE);
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    // streamed from the LOB into the store, never held whole in the heap
+                    try (InputStream content = rows.getBinaryStream(2)) {
+                        keys.add(blobStore.put(content));
+                    }
+                    ids.add(rows.getLong(1));
+                }
+            }
+        }
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE images SET content_hash = ?, bytes = NULL WHERE id = ?")) {
+            for (int i = 0; i < ids.size(); i++) {
+                update.setString(1, keys.get(i));
+                update.setLong(2, ids.get(i));
+                update.addBatch();
+            }
+            update.executeBatch();
+        }
+        return ids.size();
+    }
+
+    private static boolean hasBytesColumn(Connection connection) throws SQLException {
+        try (ResultSet columns = connection.getMetaData().getColumns(null, null, "IMAGES", "BYTES")) {
+            return columns.next();
+        }
+    }
+}
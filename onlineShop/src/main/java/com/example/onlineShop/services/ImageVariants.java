@@ -0,0 +1,220 @@
+package com.example.onlineShop.services;
+
+import com.example.onlineShop.repositories.BlobStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+// Fixed-width copies of uploaded images for catalog cards, so a page does not download every original.
+// Variants are derived from the content, so they are keyed by its BlobStore key and shared by every image with
+// the same content: root/ab/<key>/<width>.jpg (.png when the original has transparency). Each set is written
+// to a temporary directory and renamed into place whole, so an existing directory means generation is done;
+// it holds no variant at all when the original is not a readable image or is narrower than every width.
+@Service
+public class ImageVariants {
+    private static final Logger log = LoggerFactory.getLogger(ImageVariants.class);
+    public static final int[] WIDTHS = {200, 400, 800};
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}");
+    private static final String TEMP_PREFIX = "variants-";
+
+    private final BlobStore blobStore;
+    private final Path root;
+    private final ThreadPoolExecutor executor;
+    // keys queued or being generated, so a burst of requests for a new image queues it only once
+    private final Set<String> scheduled = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ImageVariants(BlobStore blobStore,
+                         @Value("${images.variants.root:./data/images/variants}") Path root,
+                         @Value("${images.variants.threads:2}") int threads,
+                         @Value("${images.variants.queue-capacity:200}") int queueCapacity) throws IOException {
+        this.blobStore = blobStore;
+        this.root = root.toAbsolutePath().normalize();
+        Files.createDirectories(this.root);
+        removeIncomplete();
+        AtomicInteger threadNumber = new AtomicInteger();
+        // decoding is CPU and heap heavy, so only a few images are scaled at a time and the queue is bounded;
+        // what does not fit is generated the first time a variant of it is requested
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+    }
+
+    public record Variant(int width, Resource content, MediaType contentType) {
+    }
+
+    // queues generation and returns at once; never blocks the caller
+    public void generateLater(String key) {
+        if (isGenerated(key) || !scheduled.add(key)) return;
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(key);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not generate variants of image {}: {}", key, e.getMessage());
+                } finally {
+                    scheduled.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            scheduled.remove(key);
+            log.debug("Variant queue full, image {} left for later", key);
+        }
+    }
+
+    public boolean isGenerated(String key) {
+        return Files.isDirectory(directoryOf(key));
+    }
+
+    // the narrowest variant at least as wide as requested, or null when the original is the best fit
+    public Variant nearest(String key, int width) {
+        Path directory = directoryOf(key);
+        for (int candidate : WIDTHS) {
+            if (candidate < width) continue;
+            Path jpeg = directory.resolve(candidate + ".jpg");
+            if (Files.exists(jpeg)) return new Variant(candidate, new FileSystemResource(jpeg), MediaType.IMAGE_JPEG);
+            Path png = directory.resolve(candidate + ".png");
+            if (Files.exists(png)) return new Variant(candidate, new FileSystemResource(png), MediaType.IMAGE_PNG);
+        }
+        return null;
+    }
+
+    // returns the number of variants written
+    public int generate(String key) throws IOException {
+        Path directory = directoryOf(key);
+        if (Files.isDirectory(directory)) return 0;
+        BufferedImage original = read(key);
+        Path temp = Files.createTempDirectory(root, TEMP_PREFIX);
+        try {
+            int written = 0;
+            if (original != null) {
+                boolean alpha = original.getColorModel().hasAlpha();
+                for (int width : WIDTHS) {
+                    // only ever scaled down; wider requests get the original
+                    if (width >= original.getWidth()) break;
+                    BufferedImage scaled = scale(original, width, alpha);
+                    ImageIO.write(scaled, alpha ? "png" : "jpg", temp.resolve(width + (alpha ? ".png" : ".jpg")).toFile());
+                    written++;
+                }
+            }
+            Files.createDirectories(directory.getParent());
+            Files.move(temp, directory, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Generated {} variants of image {}", written, key);
+            return written;
+        } catch (IOException e) {
+            FileSystemUtils.deleteRecursively(temp);
+            // another thread got there first
+            if (Files.isDirectory(directory)) return 0;
+            throw e;
+        }
+    }
+
+    public void delete(String key) throws IOException {
+        FileSystemUtils.deleteRecursively(directoryOf(key));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    Path directoryOf(String key) {
+        if (key == null || !KEY.matcher(key).matches()) {
+            throw new IllegalArgumentException("Not a blob key: " + key);
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    // sets being written when the application stopped
+    private void removeIncomplete() throws IOException {
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(root, TEMP_PREFIX + "*")) {
+            for (Path leftover : leftovers) {
+                FileSystemUtils.deleteRecursively(leftover);
+                log.info("Removed incomplete image variants {}", leftover.getFileName());
+            }
+        }
+    }
+
+    // Decodes with subsampling, so a large photo takes a few times the widest variant's pixels in the heap
+    // rather than all of its own. Returns null when ImageIO cannot read the content.
+    private BufferedImage read(String key) throws IOException {
+        try (InputStream content = blobStore.open(key);
+             ImageInputStream input = ImageIO.createImageInputStream(content)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, reader.getWidth(0) / (2 * WIDTHS[WIDTHS.length - 1]));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } catch (IIOException e) {
+                // recognised but undecodable, which a retry will not change
+                log.debug("Could not decode image {}: {}", key, e.getMessage());
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // halves the size in steps before the last bilinear pass, which keeps fine detail from aliasing
+    private static BufferedImage scale(BufferedImage original, int width, boolean alpha) {
+        BufferedImage current = original;
+        int currentWidth = original.getWidth();
+        int currentHeight = original.getHeight();
+        int height = Math.max(1, Math.round((float) original.getHeight() * width / original.getWidth()));
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight,
+                    alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (currentWidth > width);
+        return current;
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.onlineShop.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Reads an uploaded catalog file one row at a time, so only the current row is ever held in memory.
+// Column names are case-insensitive; a row that cannot be parsed is returned with an error instead of values.
+public abstract class ImportRowReader implements Closeable {
+    private static final ObjectMapper JSON = new ObjectMapper();
+    static final int MAX_RECORD_LENGTH = 256 * 1024;
+
+    protected final BufferedReader reader;
+    protected long line;
+
+    protected ImportRowReader(InputStream input) {
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    public static ImportRowReader open(String filename, InputStream input) {
+        String name = filename == null ? "" : filename.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) return new Csv(input);
+        if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) return new JsonLines(input);
+        throw new IllegalArgumentException("Unsupported file type, expected .csv or .jsonl: " + filename);
+    }
+
+    // the next row, or null at the end of the file
+    public abstract Row next() throws IOException;
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    public record Row(long line, Map<String, String> values, String error) {
+
+        static Row of(long line, Map<String, String> values) {
+            return new Row(line, values, null);
+        }
+
+        static Row invalid(long line, String error) {
+            return new Row(line, Map.of(), error);
+        }
+
+        public String get(String column) {
+            return values.get(column);
+        }
+    }
+
+    // RFC 4180: a header row, comma separators, double-quoted fields that may hold commas, quotes and newlines.
+    // A field or record over its limit is read to its end without being kept, and its row is rejected; an
+    // unterminated quote makes the rest of the file one such row.
+    static final class Csv extends ImportRowReader {
+        static final int MAX_FIELD_LENGTH = 64 * 1024;
+
+        private List<String> header;
+        private long recordStart;
+        private boolean unterminatedQuote;
+        private String oversized;
+        // characters read into the current field, kept or not
+        private int fieldLength;
+
+        Csv(InputStream input) {
+            super(input);
+        }
+
+        @Override
+        public Row next() throws IOException {
+            if (header == null) {
+                List<String> names = readRecord();
+                if (names == null) return null;
+                header = new ArrayList<>(names.size());
+                for (String name : names) {
+                    header.add(name.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+                }
+            }
+            List<String> fields;
+            do {
+                fields = readRecord();
+                if (fields == null) return null;
+            } while (fields.size() == 1 && fields.get(0).isEmpty());
+            long start = recordStart;
+            if (unterminatedQuote) {
+                return Row.invalid(start, "Unterminated quoted field");
+            }
+            if (oversized != null) {
+                return Row.invalid(start, oversized);
+            }
+            if (fields.size() != header.size()) {
+                return Row.invalid(start, "Expected " + header.size() + " fields but found " + fields.size());
+            }
+            Map<String, String> values = new HashMap<>(header.size() * 2);
+            for (int i = 0; i < fields.size(); i++) {
+                values.put(header.get(i), fields.get(i));
+            }
+            return Row.of(start, values);
+        }
+
+        private List<String> readRecord() throws IOException {
+            int c = reader.read();
+            if (c < 0) return null;
+            line++;
+            recordStart = line;
+            unterminatedQuote = false;
+            oversized = null;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            fieldLength = 0;
+            int recordLength = 0;
+            while (true) {
+                if (oversized == null && ++recordLength > MAX_RECORD_LENGTH) {
+                    oversized = "Row is longer than " + MAX_RECORD_LENGTH + " characters";
+                }
+                if (quoted) {
+                    if (c < 0) {
+                        unterminatedQuote = true;
+                        fields.add(field.toString());
+                        return fields;
+                    }
+                    if (c == '"') {
+                        reader.mark(1);
+                        int following = reader.read();
+                        if (following == '"') {
+                            append(field, '"');
+                        } else {
+                            quoted = false;
+                            reader.reset();
+                        }
+                    } else {
+                        if (c == '\n') line++;
+                        append(field, c);
+                    }
+                } else if (c < 0 || c == '\n') {
+                    fields.add(stripCarriageReturn(field));
+                    return fields;
+                } else if (c == ',') {
+                    if (oversized == null) fields.add(field.toString());
+                    field.setLength(0);
+                    fieldLength = 0;
+                } else if (c == '"' && fieldLength == 0) {
+                    quoted = true;
+                } else {
+                    append(field, c);
+                }
+                c = reader.read();
+            }
+        }
+
+        private void append(StringBuilder field, int c) {
+            fieldLength++;
+            if (oversized != null) return;
+            if (field.length() == MAX_FIELD_LENGTH) {
+                oversized = "Field is longer than " + MAX_FIELD_LENGTH + " characters";
+                return;
+            }
+            field.append((char) c);
+        }
+
+        private static String stripCarriageReturn(StringBuilder field) {
+            int length = field.length();
+            if (length > 0 && field.charAt(length - 1) == '\r') {
+                field.setLength(length - 1);
+            }
+            return field.toString();
+        }
+    }
+
+    // one JSON object per line; blank lines are skipped. A line over the record limit is read to its end
+    // without being kept, and its row is rejected.
+    static final class JsonLines extends ImportRowReader {
+        private boolean oversized;
+
+        JsonLines(InputStream input) {
+            super(input);
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String text;
+            do {
+                text = readLine();
+                if (text == null) return null;
+                line++;
+            } while (!oversized && text.isBlank());
+            if (oversized) {
+                return Row.invalid(line, "Row is longer than " + MAX_RECORD_LENGTH + " characters");
+            }
+            JsonNode node;
+            try {
+                node = JSON.readTree(text);
+            } catch (JsonProcessingException e) {
+                return Row.invalid(line, "Malformed JSON: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                return Row.invalid(line, "Expected a JSON object");
+            }
+            Map<String, String> values = new HashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode value = field.getValue();
+                values.put(field.getKey().toLowerCase(Locale.ROOT), value.isNull() ? null : value.asText());
+            }
+            return Row.of(line, values);
+        }
+
+        // the next line without its terminator, or null at the end of the file
+        private String readLine() throws IOException {
+            int c = reader.read();
+            if (c < 0) return null;
+            oversized = false;
+            StringBuilder text = new StringBuilder();
+            while (c >= 0 && c != '\n') {
+                if (text.length() < MAX_RECORD_LENGTH) {
+                    text.append((char) c);
+                } else if (c != '\r') {
+                    oversized = true;
+                }
+                c = reader.read();
+            }
+            int length = text.length();
+            if (length > 0 && text.charAt(length - 1) == '\r') {
+                text.setLength(length - 1);
+            }
+            return text.toString();
+        }
+    }
+}
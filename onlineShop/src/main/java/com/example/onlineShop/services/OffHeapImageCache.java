@@ -0,0 +1,372 @@
+package com.example.onlineShop.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// LRU cache of small image payloads kept outside the Java heap, bounded in bytes. Memory is a few direct
+// ByteBuffer slabs, allocated as the cache fills and then reused, cut into fixed-size chunks; an entry takes
+// as many chunks as it needs, so eviction never fragments the slabs. Content is immutable under its key, so
+// nothing is ever invalidated, only evicted. A whole entry is written to the response as views of its chunks;
+// ranges read it through a stream.
+// Larger images are left to the connector's sendfile, which serves them from the OS page cache without a copy.
+@Component
+public class OffHeapImageCache implements MeterBinder {
+    private static final String CACHE_NAME = "images";
+    static final int CHUNK_BYTES = 16 * 1024;
+    private static final int SLAB_BYTES = 4 * 1024 * 1024;
+
+    private final long maxEntryBytes;
+    private final int chunksPerSlab;
+    private final int maxChunks;
+    // guarded by this
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private int[] freeChunks = new int[0];
+    private int freeCount;
+    private int allocatedChunks;
+    private long residentBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public OffHeapImageCache(@Value("${images.cache.max-bytes:67108864}") long maxBytes,
+                             @Value("${images.cache.max-entry-bytes:49152}") long maxEntryBytes) {
+        this.maxChunks = (int) Math.min(Integer.MAX_VALUE, maxBytes / CHUNK_BYTES);
+        this.chunksPerSlab = Math.max(1, Math.min(SLAB_BYTES / CHUNK_BYTES, maxChunks));
+        this.maxEntryBytes = Math.min(Math.min(maxEntryBytes, (long) maxChunks * CHUNK_BYTES), Integer.MAX_VALUE);
+    }
+
+    // The content under this key as a resource read from the cache, loading it on a miss; the file itself
+    // when it is too large to cache or does not fit next to the entries being read.
+    public Resource get(String key, Resource file) throws IOException {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            hits.increment();
+            return new CachedResource(entry, file);
+        }
+        misses.increment();
+        long length = file.contentLength();
+        if (!file.isFile() || length > maxEntryBytes) return file;
+        entry = load(key, file, (int) length);
+        return entry == null ? file : new CachedResource(entry, file);
+    }
+
+    // The chunks of a resource returned by get, held until closed; null when it was not served from the cache or
+    // its entry was evicted since, in which case the resource reads the file.
+    public Slices slices(Resource content) {
+        if (!(content instanceof CachedResource cached) || !pin(cached.entry)) return null;
+        return new Slices(cached.entry);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // memory held by cached entries, whole chunks included
+    public synchronized long residentBytes() {
+        return residentBytes;
+    }
+
+    public double hitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tag("cache", CACHE_NAME).tag("result", "hit").register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tag("cache", CACHE_NAME).tag("result", "miss").register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tag("cache", CACHE_NAME).register(registry);
+        Gauge.builder("cache.size", this, OffHeapImageCache::size)
+                .tag("cache", CACHE_NAME).register(registry);
+        Gauge.builder("cache.weight", this, OffHeapImageCache::residentBytes)
+                .tag("cache", CACHE_NAME).baseUnit("bytes").register(registry);
+        Gauge.builder("cache.hit.ratio", this, OffHeapImageCache::hitRatio)
+                .tag("cache", CACHE_NAME).register(registry);
+    }
+
+    // reads the file straight into the entry's chunks; null when there is no room
+    private Entry load(String key, Resource file, int length) throws IOException {
+        int[] chunks;
+        synchronized (this) {
+            chunks = allocate((length + CHUNK_BYTES - 1) / CHUNK_BYTES);
+        }
+        if (chunks == null) return null;
+        Entry entry = new Entry(chunks, length);
+        try (FileChannel channel = FileChannel.open(file.getFile().toPath(), StandardOpenOption.READ)) {
+            int read = 0;
+            for (int chunk : chunks) {
+                ByteBuffer target = chunk(chunk).limit(Math.min(CHUNK_BYTES, length - read));
+                while (target.hasRemaining()) {
+                    if (channel.read(target) < 0) throw new IOException("Image file shorter than expected: " + key);
+                }
+                read += target.limit();
+            }
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                release(chunks);
+            }
+            throw e;
+        }
+        synchronized (this) {
+            // a concurrent miss may have stored the same content already; the later copy replaces it
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                retire(previous);
+            }
+        }
+        return entry;
+    }
+
+    // evicts least recently read entries until enough chunks are free; null when readers pin too many
+    private int[] allocate(int count) {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (available() < count && eldest.hasNext()) {
+            Entry evicted = eldest.next().getValue();
+            eldest.remove();
+            retire(evicted);
+            evictions.increment();
+        }
+        if (available() < count) return null;
+        int[] chunks = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (freeCount == 0) {
+                growSlabs();
+            }
+            chunks[i] = freeChunks[--freeCount];
+        }
+        residentBytes += (long) count * CHUNK_BYTES;
+        return chunks;
+    }
+
+    private int available() {
+        return freeCount + (maxChunks - allocatedChunks);
+    }
+
+    private void growSlabs() {
+        int chunks = Math.min(chunksPerSlab, maxChunks - allocatedChunks);
+        slabs.add(ByteBuffer.allocateDirect(chunks * CHUNK_BYTES));
+        if (freeChunks.length < allocatedChunks + chunks) {
+            int[] grown = new int[allocatedChunks + chunks];
+            System.arraycopy(freeChunks, 0, grown, 0, freeCount);
+            freeChunks = grown;
+        }
+        for (int i = chunks - 1; i >= 0; i--) {
+            freeChunks[freeCount++] = allocatedChunks + i;
+        }
+        allocatedChunks += chunks;
+    }
+
+    // an entry out of the map; its chunks are reused once the last stream reading them is closed
+    private void retire(Entry entry) {
+        entry.retired = true;
+        if (entry.readers == 0) {
+            release(entry.chunks);
+        }
+    }
+
+    private void release(int[] chunks) {
+        for (int chunk : chunks) {
+            freeChunks[freeCount++] = chunk;
+        }
+        residentBytes -= (long) chunks.length * CHUNK_BYTES;
+    }
+
+    // a view of one chunk; slabs only ever grow, so an index always maps to the same memory
+    private ByteBuffer chunk(int index) {
+        ByteBuffer slab;
+        synchronized (this) {
+            slab = slabs.get(index / chunksPerSlab);
+        }
+        return slab.slice((index % chunksPerSlab) * CHUNK_BYTES, CHUNK_BYTES);
+    }
+
+    // false when the entry was retired and its chunks may already hold other content
+    private synchronized boolean pin(Entry entry) {
+        if (entry.retired) return false;
+        entry.readers++;
+        return true;
+    }
+
+    private synchronized void unpin(Entry entry) {
+        entry.readers--;
+        if (entry.retired && entry.readers == 0) {
+            release(entry.chunks);
+        }
+    }
+
+    private static final class Entry {
+        final int[] chunks;
+        final int length;
+        // guarded by the cache
+        int readers;
+        boolean retired;
+
+        Entry(int[] chunks, int length) {
+            this.chunks = chunks;
+            this.length = length;
+        }
+    }
+
+    // Served like the file it caches, so conditional, range and multipart responses work unchanged; a stream
+    // opened after the entry was evicted reads the file instead.
+    private final class CachedResource extends AbstractResource {
+        private final Entry entry;
+        private final Resource file;
+
+        CachedResource(Entry entry, Resource file) {
+            this.entry = entry;
+            this.file = file;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return pin(entry) ? new EntryInputStream(entry) : file.getInputStream();
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return entry.length;
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return file.lastModified();
+        }
+
+        @Override
+        public String getFilename() {
+            return file.getFilename();
+        }
+
+        @Override
+        public String getDescription() {
+            return "cached " + file.getDescription();
+        }
+    }
+
+    // copies out of the direct chunks with absolute gets, which leave the shared buffers untouched
+    private final class EntryInputStream extends InputStream {
+        private final Entry entry;
+        private final ByteBuffer[] chunks;
+        private int position;
+        private boolean closed;
+
+        EntryInputStream(Entry entry) {
+            this.entry = entry;
+            this.chunks = new ByteBuffer[entry.chunks.length];
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = chunk(entry.chunks[i]);
+            }
+        }
+
+        @Override
+        public int read() {
+            if (position >= entry.length) return -1;
+            byte value = chunks[position / CHUNK_BYTES].get(position % CHUNK_BYTES);
+            position++;
+            return value & 0xff;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (length == 0) return 0;
+            if (position >= entry.length) return -1;
+            int count = Math.min(length, entry.length - position);
+            int copied = 0;
+            while (copied < count) {
+                int inChunk = position % CHUNK_BYTES;
+                int n = Math.min(count - copied, CHUNK_BYTES - inChunk);
+                chunks[position / CHUNK_BYTES].get(inChunk, target, offset + copied, n);
+                position += n;
+                copied += n;
+            }
+            return count;
+        }
+
+        // constant time, so a range request never copies the bytes before its start
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, entry.length - position));
+            position += (int) skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return entry.length - position;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            unpin(entry);
+        }
+    }
+
+    // A pinned entry: its chunks stay allocated to it until close.
+    public final class Slices implements Closeable {
+        private final Entry entry;
+        private boolean closed;
+
+        private Slices(Entry entry) {
+            this.entry = entry;
+        }
+
+        public int length() {
+            return entry.length;
+        }
+
+        // hands the channel a view of each chunk in turn; the bytes are not copied into a heap array here
+        public void writeTo(WritableByteChannel target) throws IOException {
+            int written = 0;
+            for (int chunk : entry.chunks) {
+                ByteBuffer source = chunk(chunk).limit(Math.min(CHUNK_BYTES, entry.length - written));
+                while (source.hasRemaining()) {
+                    target.write(source);
+                }
+                written += source.limit();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            unpin(entry);
+        }
+    }
+}
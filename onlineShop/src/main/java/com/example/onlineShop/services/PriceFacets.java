@@ -0,0 +1,280 @@
+package com.example.onlineShop.services;
+
+import com.example.onlineShop.models.PriceFacet;
+import com.example.onlineShop.models.ProductDocument;
+import com.example.onlineShop.repositories.ProductRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Component
+public class PriceFacets extends CatalogIndex<PriceFacets.Prices, ProductDocument> {
+    // bucket i covers [BOUNDS[i - 1], BOUNDS[i]); the first starts at 0 and the last is open-ended
+    private static final int[] BOUNDS = {10, 50, 200};
+    private static final int MISSING = Integer.MIN_VALUE;
+
+    private final ProductRepository productRepository;
+
+    public PriceFacets(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @Override
+    protected Prices newState() {
+        return new Prices();
+    }
+
+    @Override
+    protected List<ProductDocument> loadBatch(Long afterId, int limit) {
+        return productRepository.findActivePrices(afterId, limit);
+    }
+
+    @Override
+    protected ProductDocument analyze(ProductDocument document) {
+        return document;
+    }
+
+    @Override
+    protected void add(Prices target, ProductDocument document) {
+        target.add(document.id(), document.price());
+    }
+
+    @Override
+    protected void remove(Prices target, Long productId) {
+        target.remove(productId);
+    }
+
+    @Override
+    protected void loaded(Prices fresh) {
+        fresh.sort();
+    }
+
+    // a batch appends its prices and merges them in once; a single change is inserted in place
+    @Override
+    protected void startBatch(Prices target, int changes) {
+        if (changes > 1) {
+            target.startBulk();
+        }
+    }
+
+    @Override
+    protected void finishBatch(Prices target) {
+        target.sort();
+    }
+
+    @Override
+    protected int size(Prices target) {
+        return target.size;
+    }
+
+    // whole catalog: two binary searches per bucket over the sorted prices
+    public List<PriceFacet> countAll() {
+        int[] counts = new int[BOUNDS.length + 1];
+        lock.readLock().lock();
+        try {
+            int from = 0;
+            for (int i = 0; i < BOUNDS.length; i++) {
+                int to = state.lowerBound(BOUNDS[i]);
+                counts[i] = to - from;
+                from = to;
+            }
+            counts[BOUNDS.length] = state.size - from;
+        } finally {
+            lock.readLock().unlock();
+        }
+        return facets(counts);
+    }
+
+    // search results: each matching id is looked up in the price table; ids of inactive products are skipped
+    public List<PriceFacet> count(long[] productIds) {
+        int[] counts = new int[BOUNDS.length + 1];
+        lock.readLock().lock();
+        try {
+            for (long productId : productIds) {
+                int price = state.priceOf(productId);
+                if (price != MISSING) {
+                    counts[bucketOf(price)]++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return facets(counts);
+    }
+
+    // the given products whose price is within [min, max], in their original order; bounds may be null
+    public long[] withinPrice(long[] productIds, Integer min, Integer max) {
+        long[] within = new long[productIds.length];
+        int size = 0;
+        lock.readLock().lock();
+        try {
+            for (long productId : productIds) {
+                int price = state.priceOf(productId);
+                if (price != MISSING && (min == null || price >= min) && (max == null || price <= max)) {
+                    within[size++] = productId;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return size == within.length ? within : Arrays.copyOf(within, size);
+    }
+
+    // the given products ordered by price, ties kept in their original order; ids of inactive products are skipped
+    public long[] sortByPrice(long[] productIds, boolean ascending) {
+        // price, as an unsigned order-preserving 32 bits, above the position in the input
+        long[] keys = new long[productIds.length];
+        int size = 0;
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < productIds.length; i++) {
+                int price = state.priceOf(productIds[i]);
+                if (price != MISSING) {
+                    long order = (ascending ? price : ~price) ^ Integer.MIN_VALUE;
+                    keys[size++] = (order & 0xffffffffL) << 31 | i;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Arrays.sort(keys, 0, size);
+        long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = productIds[(int) (keys[i] & Integer.MAX_VALUE)];
+        }
+        return sorted;
+    }
+
+    private static int bucketOf(int price) {
+        int bucket = 0;
+        while (bucket < BOUNDS.length && price >= BOUNDS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static List<PriceFacet> facets(int[] counts) {
+        List<PriceFacet> facets = new ArrayList<>(counts.length);
+        facets.add(new PriceFacet("Under $" + BOUNDS[0], null, BOUNDS[0] - 1, counts[0]));
+        for (int i = 1; i < BOUNDS.length; i++) {
+            facets.add(new PriceFacet("$" + BOUNDS[i - 1] + " – $" + BOUNDS[i], BOUNDS[i - 1], BOUNDS[i] - 1, counts[i]));
+        }
+        facets.add(new PriceFacet("$" + BOUNDS[BOUNDS.length - 1] + " and up", BOUNDS[BOUNDS.length - 1], null,
+                counts[BOUNDS.length]));
+        return facets;
+    }
+
+    // Prices of active products kept as one sorted int[] for range counts, plus a price per product id
+    // in a LongIntHashMap, sized by the active products, to intersect search results with.
+    // A rebuild or an event batch appends unsorted and removes lazily, then sort() merges both in once.
+    static final class Prices {
+        private final LongIntHashMap priceById = new LongIntHashMap(1 << 12, MISSING);
+        private int[] sorted = new int[1024];
+        private int size;
+        // sorted[0, sortedSize) is in order, the rest was appended since
+        private int sortedSize;
+        // prices to drop from sorted on the next sort(), one per removed product
+        private int[] removed = new int[16];
+        private int removedCount;
+        private boolean bulkLoading = true;
+
+        int priceOf(long productId) {
+            return priceById.get(productId);
+        }
+
+        void startBulk() {
+            if (!bulkLoading) {
+                sortedSize = size;
+                bulkLoading = true;
+            }
+        }
+
+        void add(long productId, int price) {
+            if (size == sorted.length) {
+                sorted = Arrays.copyOf(sorted, size * 2);
+            }
+            if (bulkLoading) {
+                sorted[size] = price;
+            } else {
+                int position = lowerBound(price);
+                System.arraycopy(sorted, position, sorted, position + 1, size - position);
+                sorted[position] = price;
+            }
+            size++;
+            priceById.put(productId, price);
+        }
+
+        void remove(long productId) {
+            int price = priceById.remove(productId);
+            if (price == MISSING) return;
+            if (bulkLoading) {
+                if (removedCount == removed.length) {
+                    removed = Arrays.copyOf(removed, removedCount * 2);
+                }
+                removed[removedCount++] = price;
+                return;
+            }
+            int position = lowerBound(price);
+            System.arraycopy(sorted, position + 1, sorted, position, size - position - 1);
+            size--;
+        }
+
+        // sorts the appended prices and merges them into the sorted ones, then drops the removed prices in one pass
+        void sort() {
+            if (!bulkLoading) return;
+            if (size > sortedSize) {
+                Arrays.sort(sorted, sortedSize, size);
+                mergeAppended();
+            }
+            if (removedCount > 0) {
+                dropRemoved();
+            }
+            sortedSize = size;
+            bulkLoading = false;
+        }
+
+        // merges from the back, so only the appended prices need copying out
+        private void mergeAppended() {
+            int[] appended = Arrays.copyOfRange(sorted, sortedSize, size);
+            int from = sortedSize - 1;
+            int next = appended.length - 1;
+            int to = size - 1;
+            while (next >= 0) {
+                sorted[to--] = from >= 0 && sorted[from] > appended[next] ? sorted[from--] : appended[next--];
+            }
+        }
+
+        // every removed price is in sorted, so the two ascending walks meet each one
+        private void dropRemoved() {
+            Arrays.sort(removed, 0, removedCount);
+            int kept = 0;
+            int next = 0;
+            for (int i = 0; i < size; i++) {
+                if (next < removedCount && sorted[i] == removed[next]) {
+                    next++;
+                } else {
+                    sorted[kept++] = sorted[i];
+                }
+            }
+            size = kept;
+            removedCount = 0;
+        }
+
+        // first position whose price is >= the given one
+        int lowerBound(int price) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sorted[mid] < price) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
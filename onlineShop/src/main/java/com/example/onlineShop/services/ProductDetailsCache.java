@@ -0,0 +1,125 @@
+package com.example.onlineShop.services;
+
+import com.example.onlineShop.events.ProductBatchChangedEvent;
+import com.example.onlineShop.events.ProductChangedEvent;
+import com.example.onlineShop.models.ProductDetails;
+import com.example.onlineShop.repositories.ProductRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// LRU cache of product detail view models, bounded by their estimated size rather than by count.
+// Entries are dropped after the transaction that changed the product commits.
+@Component
+public class ProductDetailsCache implements MeterBinder {
+    private static final String CACHE_NAME = "productDetails";
+
+    private final ProductRepository productRepository;
+    private final long maxBytes;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long weight;
+    // bumped by every invalidation; a load that overlapped one may have read the old rows and is not stored
+    private long invalidations;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ProductDetailsCache(ProductRepository productRepository,
+                               @Value("${catalog.details-cache.max-bytes:16777216}") long maxBytes) {
+        this.productRepository = productRepository;
+        this.maxBytes = maxBytes;
+    }
+
+    public ProductDetails get(Long id) {
+        long generation;
+        synchronized (this) {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                hits.increment();
+                return entry.details;
+            }
+            generation = invalidations;
+        }
+        misses.increment();
+        ProductDetails details = productRepository.findDetailsById(id).orElse(null);
+        if (details != null) {
+            synchronized (this) {
+                if (generation == invalidations) {
+                    put(id, details);
+                }
+            }
+        }
+        return details;
+    }
+
+    @Order(CatalogVersion.CATALOG_LISTENER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate(event.productId());
+    }
+
+    @Order(CatalogVersion.CATALOG_LISTENER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductsChanged(ProductBatchChangedEvent batch) {
+        for (ProductChangedEvent event : batch.changes()) {
+            invalidate(event.productId());
+        }
+    }
+
+    public synchronized void invalidate(Long id) {
+        invalidations++;
+        Entry removed = entries.remove(id);
+        if (removed != null) {
+            weight -= removed.bytes;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tag("cache", CACHE_NAME).tag("result", "hit").register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tag("cache", CACHE_NAME).tag("result", "miss").register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tag("cache", CACHE_NAME).register(registry);
+        Gauge.builder("cache.size", this, ProductDetailsCache::size)
+                .tag("cache", CACHE_NAME).register(registry);
+        Gauge.builder("cache.weight", this, ProductDetailsCache::weight)
+                .tag("cache", CACHE_NAME).baseUnit("bytes").register(registry);
+    }
+
+    private void put(Long id, ProductDetails details) {
+        int bytes = details.estimatedBytes();
+        if (bytes > maxBytes) return;
+        Entry previous = entries.put(id, new Entry(details, bytes));
+        weight += bytes - (previous == null ? 0 : previous.bytes);
+        // access order: the first entries are the least recently read
+        Iterator<Map.Entry<Long, Entry>> eldest = entries.entrySet().iterator();
+        while (weight > maxBytes && eldest.hasNext()) {
+            weight -= eldest.next().getValue().bytes;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private record Entry(ProductDetails details, int bytes) {
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.onlineShop.services;
+
+import com.example.onlineShop.events.ProductBatchChangedEvent;
+import com.example.onlineShop.events.ProductChangedEvent;
+import com.example.onlineShop.models.ImportReport;
+import com.example.onlineShop.models.Product;
+import com.example.onlineShop.models.User;
+import com.example.onlineShop.repositories.ProductRepository;
+import com.example.onlineShop.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Bulk import of a seller's catalog. Rows are streamed from the file, validated one by one and written
+// in chunks, each chunk in its own transaction, so memory use does not grow with the file.
+@Service
+public class ProductImportService {
+    private static final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+    public static final int CHUNK_SIZE = 1000;
+    public static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int MAX_TITLE_LENGTH = 255;
+
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ProductImportService(ProductRepository productRepository,
+                                UserRepository userRepository,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher) {
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+    }
+
+    public ImportReport importProducts(Principal principal, String filename, InputStream input) throws IOException {
+        User user = userRepository.findByEmail(principal.getName());
+        long started = System.currentTimeMillis();
+        ImportReport report = new ImportReport(MAX_REPORTED_ERRORS);
+        List<Product> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<Long> lines = new ArrayList<>(CHUNK_SIZE);
+        try (ImportRowReader rows = ImportRowReader.open(filename, input)) {
+            ImportRowReader.Row row;
+            while ((row = rows.next()) != null) {
+                String error = row.error() != null ? row.error() : validate(row);
+                if (error != null) {
+                    report.reject(row.line(), error);
+                    continue;
+                }
+                chunk.add(toProduct(row, user));
+                lines.add(row.line());
+                if (chunk.size() == CHUNK_SIZE) {
+                    insertChunk(chunk, lines, report);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                    lines.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            insertChunk(chunk, lines, report);
+        }
+        log.info("Imported {} products for {} from {} ({} rejected) in {} ms", report.getImported(), user.getEmail(),
+                filename, report.getFailed(), System.currentTimeMillis() - started);
+        return report;
+    }
+
+    static String validate(ImportRowReader.Row row) {
+        String title = row.get("title");
+        if (title == null || title.isBlank()) return "Title is required";
+        if (title.strip().length() > MAX_TITLE_LENGTH) return "Title is longer than " + MAX_TITLE_LENGTH + " characters";
+        String price = row.get("price");
+        if (price == null || price.isBlank()) return "Price is required";
+        try {
+            if (Integer.parseInt(price.strip()) < 0) return "Price must not be negative";
+        } catch (NumberFormatException e) {
+            return "Price is not a whole number: " + price;
+        }
+        return null;
+    }
+
+    private static Product toProduct(ImportRowReader.Row row, User user) {
+        Product product = new Product();
+        product.setTitle(row.get("title").strip());
+        String description = row.get("description");
+        product.setDescription(description == null ? "" : description.strip());
+        product.setPrice(Integer.parseInt(row.get("price").strip()));
+        product.setUser(user);
+        product.setDateOfCreated(LocalDateTime.now());
+        return product;
+    }
+
+    // A chunk that the database refuses is reported row by row; earlier chunks stay committed.
+    // The chunk is announced as one event, so the indexes and caches catch up in a single pass per chunk.
+    private void insertChunk(List<Product> chunk, List<Long> lines, ImportReport report) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                productRepository.insertAll(chunk);
+                List<ProductChangedEvent> changes = new ArrayList<>(chunk.size());
+                for (Product product : chunk) {
+                    changes.add(ProductChangedEvent.of(product));
+                }
+                eventPublisher.publishEvent(new ProductBatchChangedEvent(changes));
+            });
+            report.imported(chunk.size());
+        } catch (DataAccessException e) {
+            log.error("Import chunk of {} rows starting at line {} failed", chunk.size(), lines.get(0), e);
+            for (Long line : lines) {
+                report.reject(line, "Not saved: " + e.getMostSpecificCause().getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.onlineShop.services;
+
+import com.example.onlineShop.models.ProductDocument;
+import com.example.onlineShop.repositories.ProductRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class ProductSearchIndex extends CatalogIndex<ProductSearchIndex.Segment, ProductSearchIndex.IndexedDocument> {
+    private static final int TITLE_WEIGHT = 3;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final ProductRepository productRepository;
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @Override
+    protected Segment newState() {
+        return new Segment();
+    }
+
+    @Override
+    protected List<ProductDocument> loadBatch(Long afterId, int limit) {
+        return productRepository.findActiveDocuments(afterId, limit);
+    }
+
+    @Override
+    protected void add(Segment target, IndexedDocument document) {
+        target.add(document);
+    }
+
+    @Override
+    protected void remove(Segment target, Long productId) {
+        target.remove(productId);
+    }
+
+    @Override
+    protected int size(Segment target) {
+        return target.liveDocs;
+    }
+
+    // doc slots in use, removed ones included until the next compaction
+    public int documentSlots() {
+        lock.readLock().lock();
+        try {
+            return state.nextDoc;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // All query terms must match (AND); results are ordered by BM25 score, newest first on ties.
+    public long[] search(String query) {
+        List<String> terms = SearchText.tokenize(query).stream().distinct().toList();
+        if (terms.isEmpty()) return new long[0];
+        lock.readLock().lock();
+        try {
+            return state.search(terms);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected IndexedDocument analyze(ProductDocument document) {
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        for (String token : SearchText.tokenize(document.title())) {
+            frequencies.merge(token, TITLE_WEIGHT, Integer::sum);
+        }
+        for (String token : SearchText.tokenize(document.description())) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        String[] terms = frequencies.keySet().toArray(new String[0]);
+        int[] termFrequencies = new int[terms.length];
+        int length = 0;
+        for (int i = 0; i < terms.length; i++) {
+            termFrequencies[i] = frequencies.get(terms[i]);
+            length += termFrequencies[i];
+        }
+        return new IndexedDocument(document.id(), terms, termFrequencies, length);
+    }
+
+    record IndexedDocument(long productId, String[] terms, int[] frequencies, int length) {
+    }
+
+    // Doc ids are assigned in insertion order, so appending keeps every posting list sorted. A removed doc
+    // leaves its slot empty; once empty slots outnumber live ones, live docs are renumbered in order, which
+    // keeps the lists sorted and bounds the slot arrays by twice the live count.
+    static final class Segment {
+        private static final int MIN_COMPACTION_SLOTS = 1024;
+
+        private final Map<String, Postings> postings = new HashMap<>();
+        private LongIntHashMap docByProduct = new LongIntHashMap(1 << 12, -1);
+        private long[] productIds = new long[1024];
+        private int[] lengths = new int[1024];
+        private String[][] terms = new String[1024][];
+        private int nextDoc;
+        private int liveDocs;
+        private long totalLength;
+
+        void add(IndexedDocument document) {
+            if (nextDoc == productIds.length) {
+                int capacity = productIds.length * 2;
+                productIds = Arrays.copyOf(productIds, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                terms = Arrays.copyOf(terms, capacity);
+            }
+            int doc = nextDoc++;
+            productIds[doc] = document.productId();
+            lengths[doc] = document.length();
+            terms[doc] = document.terms();
+            for (int i = 0; i < document.terms().length; i++) {
+                postings.computeIfAbsent(document.terms()[i], t -> new Postings()).append(doc, document.frequencies()[i]);
+            }
+            docByProduct.put(document.productId(), doc);
+            liveDocs++;
+            totalLength += document.length();
+        }
+
+        void remove(Long productId) {
+            int doc = docByProduct.remove(productId);
+            if (doc < 0) return;
+            for (String term : terms[doc]) {
+                Postings list = postings.get(term);
+                if (list != null && list.remove(doc) && list.size == 0) {
+                    postings.remove(term);
+                }
+            }
+            terms[doc] = null;
+            liveDocs--;
+            totalLength -= lengths[doc];
+            if (nextDoc >= MIN_COMPACTION_SLOTS && nextDoc - liveDocs > liveDocs) {
+                compact();
+            }
+        }
+
+        // posting lists only hold live docs, so renumbering them is a single pass over each list
+        private void compact() {
+            int[] renumbered = new int[nextDoc];
+            int live = 0;
+            docByProduct = new LongIntHashMap(Math.max(liveDocs, 16), -1);
+            for (int doc = 0; doc < nextDoc; doc++) {
+                if (terms[doc] == null) continue;
+                renumbered[doc] = live;
+                productIds[live] = productIds[doc];
+                lengths[live] = lengths[doc];
+                terms[live] = terms[doc];
+                docByProduct.put(productIds[live], live);
+                live++;
+            }
+            Arrays.fill(terms, live, nextDoc, null);
+            for (Postings list : postings.values()) {
+                list.renumber(renumbered);
+            }
+            int capacity = Math.max(1024, Integer.highestOneBit(Math.max(1, live)) << 1);
+            if (capacity < productIds.length) {
+                productIds = Arrays.copyOf(productIds, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                terms = Arrays.copyOf(terms, capacity);
+            }
+            nextDoc = live;
+        }
+
+        long[] search(List<String> queryTerms) {
+            Postings[] lists = new Postings[queryTerms.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = postings.get(queryTerms.get(i));
+                if (lists[i] == null) return new long[0];
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+            double averageLength = liveDocs == 0 ? 1 : (double) totalLength / liveDocs;
+            double[] idf = new double[lists.length];
+            for (int i = 0; i < lists.length; i++) {
+                idf[i] = Math.log(1 + (liveDocs - lists[i].size + 0.5) / (lists[i].size + 0.5));
+            }
+
+            Postings shortest = lists[0];
+            int[] cursors = new int[lists.length];
+            int[] matchedDocs = new int[shortest.size];
+            double[] scores = new double[shortest.size];
+            int matched = 0;
+            candidates:
+            for (int p = 0; p < shortest.size; p++) {
+                int doc = shortest.docs[p];
+                double norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+                double score = idf[0] * bm25(shortest.frequencies[p], norm);
+                for (int i = 1; i < lists.length; i++) {
+                    int position = lists[i].find(doc, cursors[i]);
+                    if (position < 0) {
+                        cursors[i] = -position - 1;
+                        continue candidates;
+                    }
+                    cursors[i] = position;
+                    score += idf[i] * bm25(lists[i].frequencies[position], norm);
+                }
+                matchedDocs[matched] = doc;
+                scores[matched] = score;
+                matched++;
+            }
+
+            Integer[] order = new Integer[matched];
+            for (int i = 0; i < matched; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> {
+                int byScore = Double.compare(scores[b], scores[a]);
+                return byScore != 0 ? byScore : Long.compare(productIds[matchedDocs[b]], productIds[matchedDocs[a]]);
+            });
+            long[] result = new long[matched];
+            for (int i = 0; i < matched; i++) {
+                result[i] = productIds[matchedDocs[order[i]]];
+            }
+            return result;
+        }
+
+        private static double bm25(int frequency, double norm) {
+            return frequency * (K1 + 1) / (frequency + norm);
+        }
+    }
+
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        void append(int doc, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        boolean remove(int doc) {
+            int position = Arrays.binarySearch(docs, 0, size, doc);
+            if (position < 0) return false;
+            System.arraycopy(docs, position + 1, docs, position, size - position - 1);
+            System.arraycopy(frequencies, position + 1, frequencies, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        void renumber(int[] renumbered) {
+            for (int i = 0; i < size; i++) {
+                docs[i] = renumbered[docs[i]];
+            }
+        }
+
+        int find(int doc, int from) {
+            return Arrays.binarySearch(docs, from, size, doc);
+        }
+    }
+}
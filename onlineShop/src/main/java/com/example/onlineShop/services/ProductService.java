@@ -1,18 +1,33 @@
 package com.example.onlineShop.services;
 
+import com.example.onlineShop.events.ProductChangedEvent;
+import com.example.onlineShop.models.CatalogFilter;
+import com.example.onlineShop.models.CatalogPage;
+import com.example.onlineShop.models.CursorPage;
 import com.example.onlineShop.models.Image;
+import com.example.onlineShop.models.PriceFacet;
 import com.example.onlineShop.models.Product;
+import com.example.onlineShop.models.ProductCard;
+import com.example.onlineShop.models.ProductDetails;
 import com.example.onlineShop.models.User;
+import com.example.onlineShop.models.enums.CatalogSort;
 import com.example.onlineShop.repositories.ImageRepository;
 import com.example.onlineShop.repositories.ProductRepository;
 import com.example.onlineShop.repositories.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,22 +37,264 @@ public class ProductService {
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final ImageRepository imageRepository;
+    private final BlobReferences blobReferences;
+    private final ImageVariants imageVariants;
+    private final ProductSearchIndex searchIndex;
+    private final TrigramIndex trigramIndex;
+    private final PriceFacets priceFacets;
+    private final ProductDetailsCache detailsCache;
+    private final SearchResultCache searchResultCache;
+    private final BestsellerRanking bestsellerRanking;
+    private final ApplicationEventPublisher eventPublisher;
     private static final Logger log = LoggerFactory.getLogger(ProductService.class);
+    public static final int DEFAULT_PAGE_SIZE = 24;
+    public static final int MAX_PAGE_SIZE = 96;
 
     public ProductService(ProductRepository productRepository,
                           UserRepository userRepository,
-                          ImageRepository imageRepository) {
+                          ImageRepository imageRepository,
+                          BlobReferences blobReferences,
+                          ImageVariants imageVariants,
+                          ProductSearchIndex searchIndex,
+                          TrigramIndex trigramIndex,
+                          PriceFacets priceFacets,
+                          ProductDetailsCache detailsCache,
+                          SearchResultCache searchResultCache,
+                          BestsellerRanking bestsellerRanking,
+                          ApplicationEventPublisher eventPublisher) {
         log.info("ProductService initialized");
         this.productRepository = productRepository;
         this.userRepository = userRepository;
         this.imageRepository = imageRepository;
+        this.blobReferences = blobReferences;
+        this.imageVariants = imageVariants;
+        this.searchIndex = searchIndex;
+        this.trigramIndex = trigramIndex;
+        this.priceFacets = priceFacets;
+        this.detailsCache = detailsCache;
+        this.searchResultCache = searchResultCache;
+        this.bestsellerRanking = bestsellerRanking;
+        this.eventPublisher = eventPublisher;
     }
 
-    public List<Product> listProducts(String title) {
-        if (title != null && !title.isEmpty()) {
-            return productRepository.findByTitleContainingAndActiveTrue(title);
+    public CatalogPage listProducts(CatalogFilter filter, Long after, Long before, Integer size) {
+        int pageSize = clampPageSize(size);
+        // the text query is resolved once and feeds both the ranked page and the facet counts
+        long[] matches = filter.hasTitle() && searchIndex.isReady() ? matchingIds(filter.title()) : null;
+        CursorPage<ProductCard> page;
+        if (filter.sort() == CatalogSort.BESTSELLING) {
+            page = bestsellingPage(filter, matches, after, before, pageSize);
+        } else if (matches != null && (priceFacets.isReady() || (filter.sort() == null && !filter.hasPriceRange()))) {
+            // a search keeps the same matches whatever the sort and range, filtered and ordered in memory
+            page = rankedPage(orderedMatches(filter, matches), after, before, pageSize);
+        } else {
+            // browsing is served from the composite indexes; so is a search while the in-memory indexes load
+            page = sortedPage(filter, after, before, pageSize);
+        }
+        return new CatalogPage(page, priceFacets(filter, matches), matches != null ? matches.length : null);
+    }
+
+    public List<ProductCard> listBestsellers(int limit) {
+        // twice as many ids as needed, in case some of the best sellers were taken off sale since
+        long[] ids = bestsellerRanking.top(limit * 2);
+        return ids.length == 0 ? List.of() : activeCards(ids, 0, ids.length, limit);
+    }
+
+    // a seller's active products, newest first
+    public CursorPage<ProductCard> listSellerProducts(Long sellerId, Long after, Long before, Integer size) {
+        return keysetPage(after, before, clampPageSize(size),
+                (afterId, beforeId, limit) -> productRepository.findActiveCardsBySeller(sellerId, afterId, beforeId, limit));
+    }
+
+    private CursorPage<ProductCard> sortedPage(CatalogFilter filter, Long after, Long before, int pageSize) {
+        return keysetPage(after, before, pageSize,
+                (afterId, beforeId, limit) -> productRepository.findActiveCards(filter, afterId, beforeId, limit));
+    }
+
+    // The matches within the price range in the requested order: by relevance, by price, or newest first.
+    // Ids are assigned as products are created, so the highest is the newest.
+    private long[] orderedMatches(CatalogFilter filter, long[] matches) {
+        long[] ids = filter.hasPriceRange()
+                ? priceFacets.withinPrice(matches, filter.minPrice(), filter.maxPrice())
+                : matches;
+        if (filter.sort() == CatalogSort.PRICE_ASC || filter.sort() == CatalogSort.PRICE_DESC) {
+            return priceFacets.sortByPrice(ids, filter.sort().isAscending());
+        }
+        if (filter.sort() == CatalogSort.NEWEST) {
+            long[] newest = new long[ids.length];
+            long[] ascending = ids.clone();
+            Arrays.sort(ascending);
+            for (int i = 0; i < ascending.length; i++) {
+                newest[i] = ascending[ascending.length - 1 - i];
+            }
+            return newest;
         }
-        return productRepository.findByActiveTrue();
+        return ids;
+    }
+
+    // Browsing lists the products that sold within the last few half-lives; a search puts its selling matches first.
+    private CursorPage<ProductCard> bestsellingPage(CatalogFilter filter, long[] matches, Long after, Long before,
+                                                    int pageSize) {
+        if ((filter.hasTitle() && matches == null) || (filter.hasPriceRange() && !priceFacets.isReady())) {
+            // the in-memory indexes are still loading
+            CatalogFilter newest = new CatalogFilter(filter.title(), CatalogSort.NEWEST, filter.minPrice(), filter.maxPrice());
+            return sortedPage(newest, after, before, pageSize);
+        }
+        if (matches == null) {
+            // the cursor is the boundary product, found again by its current score
+            return keysetPage(after, before, pageSize, (afterId, beforeId, limit) -> beforeId != null
+                    ? reversed(sellingCards(lastId -> bestsellerRanking.above(lastId == null ? beforeId : lastId, limit),
+                            filter, limit))
+                    : sellingCards(lastId -> bestsellerRanking.below(lastId == null ? afterId : lastId, limit),
+                            filter, limit));
+        }
+        long[] ranked = bestsellerRanking.rank(matches);
+        if (filter.hasPriceRange()) {
+            ranked = priceFacets.withinPrice(ranked, filter.minPrice(), filter.maxPrice());
+        }
+        return rankedPage(ranked, after, before, pageSize);
+    }
+
+    // Cards of the first limit active products within the price range, reading the ranking a batch at a time;
+    // each batch continues after the last id of the one before.
+    private List<ProductCard> sellingCards(Function<Long, long[]> nextBatch, CatalogFilter filter, int limit) {
+        List<ProductCard> cards = new ArrayList<>(limit);
+        Long lastId = null;
+        while (cards.size() < limit) {
+            long[] batch = nextBatch.apply(lastId);
+            if (batch.length == 0) break;
+            lastId = batch[batch.length - 1];
+            long[] candidates = filter.hasPriceRange()
+                    ? priceFacets.withinPrice(batch, filter.minPrice(), filter.maxPrice())
+                    : batch;
+            if (candidates.length > 0) {
+                cards.addAll(activeCards(candidates, 0, candidates.length, limit - cards.size()));
+            }
+        }
+        return cards;
+    }
+
+    private static List<ProductCard> reversed(List<ProductCard> cards) {
+        Collections.reverse(cards);
+        return cards;
+    }
+
+    private CursorPage<ProductCard> keysetPage(Long after, Long before, int pageSize, KeysetQuery query) {
+        Long afterId = after;
+        Long beforeId = after == null ? before : null;
+        boolean backward = beforeId != null;
+
+        // one extra row tells whether there is another page in the walk direction
+        List<ProductCard> rows = query.find(afterId, beforeId, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<ProductCard> items = hasMore
+                ? (backward ? rows.subList(1, rows.size()) : rows.subList(0, pageSize))
+                : rows;
+        if (items.isEmpty()) {
+            return new CursorPage<>(items, null, null, pageSize);
+        }
+
+        Long firstId = items.get(0).getId();
+        Long lastId = items.get(items.size() - 1).getId();
+        Long nextCursor = (backward || hasMore) ? lastId : null;
+        Long prevCursor = (afterId != null || (backward && hasMore)) ? firstId : null;
+        return new CursorPage<>(items, nextCursor, prevCursor, pageSize);
+    }
+
+    // Facet counts ignore the selected price range, so every bucket stays reachable from the current page.
+    private List<PriceFacet> priceFacets(CatalogFilter filter, long[] matches) {
+        if (!priceFacets.isReady()) return List.of();
+        if (!filter.hasTitle()) return priceFacets.countAll();
+        if (matches == null) return List.of();
+        return priceFacets.count(matches);
+    }
+
+    private long[] matchingIds(String title) {
+        return searchResultCache.get(title, this::searchIndexes);
+    }
+
+    private long[] searchIndexes(String title) {
+        long[] rankedIds = searchIndex.search(title);
+        if (rankedIds.length == 0 && trigramIndex.isReady()) {
+            // no exact word match: fall back to substring and typo-tolerant title matching
+            rankedIds = trigramIndex.search(title);
+        }
+        return rankedIds;
+    }
+
+    // Search results are ranked, so the cursor is the id of the boundary product within the ranked list.
+    private CursorPage<ProductCard> rankedPage(long[] rankedIds, Long after, Long before, int pageSize) {
+        int from = 0;
+        int to = Math.min(pageSize, rankedIds.length);
+        boolean backward = false;
+        if (after != null) {
+            from = indexOf(rankedIds, after) + 1;
+            to = Math.min(from + pageSize, rankedIds.length);
+        } else if (before != null) {
+            int position = indexOf(rankedIds, before);
+            if (position >= 0) {
+                to = position;
+                from = Math.max(0, to - pageSize);
+                backward = true;
+            }
+        }
+        if (from >= to) {
+            return new CursorPage<>(new ArrayList<>(), null, null, pageSize);
+        }
+
+        List<ProductCard> items = activeCards(rankedIds, from, to, pageSize);
+        // products taken off sale leave gaps, filled from further along in the walk direction
+        while (items.size() < pageSize && (backward ? from > 0 : to < rankedIds.length)) {
+            int missing = pageSize - items.size();
+            if (backward) {
+                int start = Math.max(0, from - missing);
+                items.addAll(0, activeCards(rankedIds, start, from, missing));
+                from = start;
+            } else {
+                int end = Math.min(rankedIds.length, to + missing);
+                items.addAll(activeCards(rankedIds, to, end, missing));
+                to = end;
+            }
+        }
+        Long nextCursor = to < rankedIds.length ? rankedIds[to - 1] : null;
+        Long prevCursor = from > 0 ? rankedIds[from] : null;
+        return new CursorPage<>(items, nextCursor, prevCursor, pageSize);
+    }
+
+    // cards of the active products among ids[from, to), in that order, at most limit of them
+    private List<ProductCard> activeCards(long[] ids, int from, int to, int limit) {
+        List<Long> pageIds = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            pageIds.add(ids[i]);
+        }
+        Map<Long, ProductCard> byId = new HashMap<>();
+        for (ProductCard card : productRepository.findActiveCardsByIdIn(pageIds)) {
+            byId.put(card.getId(), card);
+        }
+        List<ProductCard> items = new ArrayList<>(Math.min(limit, pageIds.size()));
+        for (Long id : pageIds) {
+            ProductCard card = byId.get(id);
+            if (card != null && items.size() < limit) {
+                items.add(card);
+            }
+        }
+        return items;
+    }
+
+    private static int indexOf(long[] ids, long id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) return i;
+        }
+        return -1;
+    }
+
+    private interface KeysetQuery {
+        List<ProductCard> find(Long afterId, Long beforeId, int limit);
+    }
+
+    static int clampPageSize(Integer size) {
+        if (size == null || size <= 0) return DEFAULT_PAGE_SIZE;
+        return Math.min(size, MAX_PAGE_SIZE);
     }
 
     @Transactional
@@ -64,6 +321,7 @@ public class ProductService {
         Product productFromDb = productRepository.save(product);
         productFromDb.setPreviewImageId(productFromDb.getImages().get(0).getId());
         productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(product));
     }
 
     public User getUserByPrincipal(Principal principal) {
@@ -77,7 +335,10 @@ public class ProductService {
         image.setOriginalFileName(file.getOriginalFilename());
         image.setContentType(file.getContentType());
         image.setSize(file.getSize());
-        image.setBytes(file.getBytes());
+        // the same photo uploaded to several listings is stored once
+        image.setContentHash(blobReferences.store(file));
+        // catalog card sizes are scaled in the background; the upload does not wait for them
+        imageVariants.generateLater(image.getContentHash());
         return image;
     }
 
@@ -90,6 +351,7 @@ public class ProductService {
             if (product.getUser().getId().equals(user.getId())) {
                 product.setActive(false);
                 productRepository.save(product);
+                eventPublisher.publishEvent(ProductChangedEvent.of(product));
 
                 log.info("Product with id = {} was deleted", id);
             } else {
@@ -104,6 +366,10 @@ public class ProductService {
         return productRepository.findById(id).orElse(null);
     }
 
+    public ProductDetails getProductDetails(Long id) {
+        return detailsCache.get(id);
+    }
+
     @Transactional
     public void updateProduct(Long id, String title, String description, int price,
                               MultipartFile file1, MultipartFile file2, MultipartFile file3,
@@ -126,8 +392,7 @@ public class ProductService {
         // ===== ЗАМЕНА file1 =====
         if (file1.getSize() > 0) {
             if (images.size() >= 1) {
-                imageRepository.delete(images.get(0));
-                images.remove(0);
+                deleteImage(images.remove(0));
             }
             Image image1 = toImageEntity(file1);
             image1.setPreviewImage(true);
@@ -138,8 +403,7 @@ public class ProductService {
         // ===== ЗАМЕНА file2 =====
         if (file2.getSize() > 0) {
             if (images.size() >= 2) {
-                imageRepository.delete(images.get(1));
-                images.remove(1);
+                deleteImage(images.remove(1));
             }
             Image image2 = toImageEntity(file2);
             product.addImageToProduct(image2);
@@ -148,8 +412,7 @@ public class ProductService {
         // ===== ЗАМЕНА file3 =====
         if (file3.getSize() > 0) {
             if (images.size() >= 3) {
-                imageRepository.delete(images.get(2));
-                images.remove(2);
+                deleteImage(images.remove(2));
             }
             Image image3 = toImageEntity(file3);
             product.addImageToProduct(image3);
@@ -162,8 +425,15 @@ public class ProductService {
             savedProduct.setPreviewImageId(savedProduct.getImages().get(0).getId());
             productRepository.save(savedProduct);
         }
+        eventPublisher.publishEvent(ProductChangedEvent.of(product));
 
         log.info("Product with id = {} updated", id);
     }
 
+    // the content is collected after commit if no other image shares it
+    private void deleteImage(Image image) {
+        imageRepository.delete(image);
+        blobReferences.release(image.getContentHash());
+    }
+
 }
@@ -0,0 +1,105 @@
+package com.example.onlineShop.services;
+
+import com.example.onlineShop.models.ProductViewReport;
+import com.example.onlineShop.repositories.ProductRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Product page views. A view only increments a per-product LongAdder; a scheduled flush drains every adder
+// into one batched UPDATE, so a crash loses at most one flush interval of views.
+@Service
+public class ProductViewCounter implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(ProductViewCounter.class);
+    // set on the request by the product page, so that cached copies of it still count as views
+    public static final String VIEWED_PRODUCT_ATTRIBUTE = ProductViewCounter.class.getName() + ".productId";
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    // adders stay in the map once created, so an increment never lands on one a flush has already dropped;
+    // the map is bounded by the number of products ever viewed since startup
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    private final LongAdder views = new LongAdder();
+
+    public ProductViewCounter(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void record(Long productId) {
+        pending.computeIfAbsent(productId, id -> new LongAdder()).increment();
+        views.increment();
+    }
+
+    // views recorded since the last flush
+    public long pending(Long productId) {
+        LongAdder adder = pending.get(productId);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    public long pendingTotal() {
+        long total = 0;
+        for (LongAdder adder : pending.values()) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    // sumThenReset takes each cell with getAndSet, so a concurrent view is counted in this flush or the next one
+    @Scheduled(fixedDelayString = "${products.views.flush-interval:30s}",
+            initialDelayString = "${products.views.flush-interval:30s}")
+    public void flush() {
+        Map<Long, Long> drained = new HashMap<>();
+        pending.forEach((productId, adder) -> {
+            long count = adder.sumThenReset();
+            if (count > 0) {
+                drained.put(productId, count);
+            }
+        });
+        if (drained.isEmpty()) return;
+        try {
+            transactionTemplate.executeWithoutResult(status -> productRepository.addViews(drained));
+            log.debug("Flushed views of {} products", drained.size());
+        } catch (DataAccessException e) {
+            // put the counts back for the next flush rather than losing them
+            drained.forEach((productId, count) -> pending.computeIfAbsent(productId, id -> new LongAdder()).add(count));
+            log.warn("Could not flush views of {} products: {}", drained.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // stored counts plus the views still waiting for a flush
+    public List<ProductViewReport> mostViewed(int limit) {
+        List<ProductViewReport> stored = transactionTemplate.execute(status -> productRepository.findMostViewed(limit));
+        List<ProductViewReport> report = new ArrayList<>(stored.size());
+        for (ProductViewReport product : stored) {
+            report.add(product.withPendingViews(pending(product.getId())));
+        }
+        report.sort((a, b) -> Long.compare(b.getViews(), a.getViews()));
+        return report;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("product.views", views, LongAdder::sum).register(registry);
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.onlineShop.services;
+
+import com.example.onlineShop.events.OrderPlacedEvent;
+import com.example.onlineShop.models.CustomerPurchase;
+import com.example.onlineShop.models.ProductCard;
+import com.example.onlineShop.repositories.OrderRepository;
+import com.example.onlineShop.repositories.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// "Customers also bought": for every pair of products, the number of customers who bought both.
+// Each checkout adds its pairs as it commits; a full rebuild from the orders table runs at startup and nightly.
+// Only a customer's MAX_HISTORY most recent products take part, so one heavy buyer cannot add quadratic work.
+@Service
+public class RecommendationService {
+    private static final Logger log = LoggerFactory.getLogger(RecommendationService.class);
+    public static final int MAX_HISTORY = 200;
+    private static final int CUSTOMERS_PER_TASK = 512;
+
+    private final OrderRepository orderRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int topSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private CoOccurrenceGraph graph;
+    // checkouts that commit while a rebuild runs; those past the orders it read are replayed on top of it
+    private List<OrderPlacedEvent> pendingDuringRebuild;
+
+    public RecommendationService(OrderRepository orderRepository,
+                                 ProductRepository productRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${recommendations.top-size:12}") int topSize) {
+        this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.topSize = topSize;
+        this.graph = new CoOccurrenceGraph(topSize);
+    }
+
+    // active products most often bought together with this one, best first
+    public List<ProductCard> alsoBought(Long productId, int limit) {
+        long[] ids;
+        lock.readLock().lock();
+        try {
+            ids = graph.top(productId);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (ids.length == 0) return List.of();
+        List<Long> candidates = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            candidates.add(id);
+        }
+        Map<Long, ProductCard> byId = new HashMap<>();
+        for (ProductCard card : productRepository.findActiveCardsByIdIn(candidates)) {
+            byId.put(card.getId(), card);
+        }
+        List<ProductCard> cards = new ArrayList<>(limit);
+        for (Long id : candidates) {
+            ProductCard card = byId.get(id);
+            if (card != null && cards.size() < limit) {
+                cards.add(card);
+            }
+        }
+        return cards;
+    }
+
+    @TransactionalEventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(event);
+            }
+            apply(graph, event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${recommendations.rebuild-cron:0 30 3 * * *}")
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Purchases purchases;
+        CoOccurrenceGraph fresh;
+        try {
+            purchases = readOnlyTransaction.execute(status -> {
+                // the read point: later orders are left to the checkouts queued meanwhile
+                long readPoint = orderRepository.findMaxId();
+                try (Stream<CustomerPurchase> rows = orderRepository.streamPurchases(readPoint)) {
+                    return new Purchases(readPoint, groupByCustomer(rows));
+                }
+            });
+            List<long[]> customers = purchases.customers();
+            fresh = ForkJoinPool.commonPool().invoke(new CountPairs(customers, 0, customers.size(), topSize));
+            fresh.rankAll();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (OrderPlacedEvent event : pendingDuringRebuild) {
+                if (event.firstOrderId() > purchases.readPoint()) {
+                    apply(fresh, event);
+                }
+            }
+            pendingDuringRebuild = null;
+            graph = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Recommendations built: {} products in {} ms", fresh.products(), System.currentTimeMillis() - started);
+    }
+
+    // pairs within the new products, and between each new product and what the customer had bought before
+    private static void apply(CoOccurrenceGraph target, OrderPlacedEvent event) {
+        Set<Long> previous = new LinkedHashSet<>(event.previousProductIds());
+        List<Long> bought = new ArrayList<>();
+        for (Long productId : new LinkedHashSet<>(event.productIds())) {
+            if (!previous.contains(productId)) {
+                bought.add(productId);
+            }
+        }
+        for (int i = 0; i < bought.size(); i++) {
+            for (int j = i + 1; j < bought.size(); j++) {
+                target.addPair(bought.get(i), bought.get(j));
+            }
+            for (Long other : previous) {
+                target.addPair(bought.get(i), other);
+            }
+        }
+    }
+
+    // each customer's distinct products, up to MAX_HISTORY of the most recent
+    private static List<long[]> groupByCustomer(Stream<CustomerPurchase> purchases) {
+        List<long[]> customers = new ArrayList<>();
+        long[] current = new long[MAX_HISTORY];
+        int size = 0;
+        Long customer = null;
+        for (Iterator<CustomerPurchase> rows = purchases.iterator(); rows.hasNext(); ) {
+            CustomerPurchase purchase = rows.next();
+            if (!purchase.userId().equals(customer)) {
+                // a single product makes no pairs
+                if (size > 1) {
+                    customers.add(Arrays.copyOf(current, size));
+                }
+                customer = purchase.userId();
+                size = 0;
+            }
+            if (size < MAX_HISTORY && indexOf(current, size, purchase.productId()) < 0) {
+                current[size++] = purchase.productId();
+            }
+        }
+        if (size > 1) {
+            customers.add(Arrays.copyOf(current, size));
+        }
+        return customers;
+    }
+
+    private static int indexOf(long[] ids, int size, long id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) return i;
+        }
+        return -1;
+    }
+
+    // counts the pairs of a range of customers, splitting it in halves until it is small enough
+    private static final class CountPairs extends RecursiveTask<CoOccurrenceGraph> {
+        private final List<long[]> customers;
+        private final int from;
+        private final int to;
+        private final int topSize;
+
+        CountPairs(List<long[]> customers, int from, int to, int topSize) {
+            this.customers = customers;
+            this.from = from;
+            this.to = to;
+            this.topSize = topSize;
+        }
+
+        @Override
+        protected CoOccurrenceGraph compute() {
+            if (to - from <= CUSTOMERS_PER_TASK) {
+                CoOccurrenceGraph counts = new CoOccurrenceGraph(topSize);
+                for (int c = from; c < to; c++) {
+                    long[] products = customers.get(c);
+                    for (int i = 0; i < products.length; i++) {
+                        for (int j = i + 1; j < products.length; j++) {
+                            counts.addPairCounts(products[i], products[j]);
+                        }
+                    }
+                }
+                return counts;
+            }
+            int middle = (from + to) >>> 1;
+            CountPairs left = new CountPairs(customers, from, middle, topSize);
+            left.fork();
+            CoOccurrenceGraph right = new CountPairs(customers, middle, to, topSize).compute();
+            CoOccurrenceGraph merged = left.join();
+            // the larger half absorbs the smaller one
+            if (merged.products() < right.products()) {
+                right.mergeCounts(merged);
+                return right;
+            }
+            merged.mergeCounts(right);
+            return merged;
+        }
+    }
+
+    // each customer's products, read from the orders up to readPoint
+    private record Purchases(long readPoint, List<long[]> customers) {
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.onlineShop.services;
+
+import com.example.onlineShop.models.SearchAnalyticsReport;
+import com.example.onlineShop.models.SearchQueryReport;
+import com.example.onlineShop.repositories.SearchStatsRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts what customers search for. Recording only touches LongAdders, a Count-Min sketch and a concurrent map,
+// so the search path never waits on a lock; a scheduled flush swaps the window and adds it to the daily tables.
+@Service
+public class SearchAnalytics implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(SearchAnalytics.class);
+    // set on the request by the catalog page, so that cached copies of a search page still count as searches
+    public static final String SEARCH_ATTRIBUTE = SearchAnalytics.class.getName() + ".search";
+    // upper bounds of the result count buckets; the last bucket is open-ended
+    public static final int[] RESULT_COUNT_BOUNDS = {0, 1, 5, 20, 100, 1000};
+    private static final int MAX_QUERY_LENGTH = 255;
+    private static final int REPORT_LIMIT = 20;
+
+    private final SearchStatsRepository statsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int sketchWidth;
+    private final int maxTrackedQueries;
+    private final Clock clock;
+    private final AtomicReference<Window> window;
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder zeroResultSearches = new LongAdder();
+
+    @Autowired
+    public SearchAnalytics(SearchStatsRepository statsRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${search.analytics.sketch-width:4096}") int sketchWidth,
+                           @Value("${search.analytics.max-tracked-queries:1000}") int maxTrackedQueries) {
+        this(statsRepository, transactionManager, sketchWidth, maxTrackedQueries, Clock.systemDefaultZone());
+    }
+
+    public SearchAnalytics(SearchStatsRepository statsRepository, PlatformTransactionManager transactionManager,
+                           int sketchWidth, int maxTrackedQueries, Clock clock) {
+        this.statsRepository = statsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sketchWidth = sketchWidth;
+        this.maxTrackedQueries = maxTrackedQueries;
+        this.clock = clock;
+        this.window = new AtomicReference<>(newWindow());
+    }
+
+    public void record(String query, int resultCount) {
+        String key = SearchText.normalize(query);
+        if (key.isEmpty()) return;
+        if (key.length() > MAX_QUERY_LENGTH) {
+            key = key.substring(0, MAX_QUERY_LENGTH);
+        }
+        searches.increment();
+        Window current = window.get();
+        current.resultCounts[bucketOf(resultCount)].increment();
+        HeavyHitters.Counts counts = current.queries.add(key);
+        if (counts != null) {
+            counts.addResults(resultCount);
+        }
+        if (resultCount == 0) {
+            zeroResultSearches.increment();
+            current.zeroResults.add(key);
+        }
+    }
+
+    // A search recorded by a thread that read the old window just before the swap may miss this flush.
+    @Scheduled(fixedDelayString = "${search.analytics.flush-interval:1m}",
+            initialDelayString = "${search.analytics.flush-interval:1m}")
+    public void flush() {
+        Window flushed = window.getAndSet(newWindow());
+        if (flushed.queries.total() == 0) return;
+        LocalDate day = LocalDate.now(clock);
+        Set<String> keys = new HashSet<>(flushed.queries.tracked().keySet());
+        keys.addAll(flushed.zeroResults.tracked().keySet());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (String key : keys) {
+                    HeavyHitters.Counts all = flushed.queries.tracked().get(key);
+                    HeavyHitters.Counts empty = flushed.zeroResults.tracked().get(key);
+                    long zero = empty != null ? empty.hits() : 0;
+                    // a query can be tracked as a zero-result query without making the overall top
+                    long total = Math.max(all != null ? all.hits() : 0, zero);
+                    statsRepository.addQueryStats(day, key, total, zero, all != null ? all.results() : 0);
+                }
+                for (int bucket = 0; bucket < flushed.resultCounts.length; bucket++) {
+                    long count = flushed.resultCounts[bucket].sum();
+                    if (count > 0) {
+                        statsRepository.addResultCounts(day, bucket, count);
+                    }
+                }
+            });
+            log.debug("Flushed {} searches over {} tracked queries", flushed.queries.total(), keys.size());
+        } catch (DataAccessException e) {
+            // analytics are best effort: the window is dropped rather than piling up behind a failing database
+            log.warn("Could not flush {} searches: {}", flushed.queries.total(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    public SearchAnalyticsReport report(int days) {
+        LocalDate since = LocalDate.now(clock).minusDays(days - 1L);
+        return transactionTemplate.execute(status -> {
+            List<SearchQueryReport> top = statsRepository.findTopQueries(since, REPORT_LIMIT);
+            List<SearchQueryReport> zero = statsRepository.findTopZeroResultQueries(since, REPORT_LIMIT);
+            long[] counts = statsRepository.sumResultCounts(since, RESULT_COUNT_BOUNDS.length + 1);
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            List<SearchAnalyticsReport.ResultCountBucket> buckets = new ArrayList<>(counts.length);
+            for (int i = 0; i < counts.length; i++) {
+                int percent = total == 0 ? 0 : (int) Math.round(100.0 * counts[i] / total);
+                buckets.add(new SearchAnalyticsReport.ResultCountBucket(bucketLabel(i), counts[i], percent));
+            }
+            return new SearchAnalyticsReport(days, top, zero, buckets, window.get().queries.total());
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("search.queries", searches, LongAdder::sum)
+                .tag("result", "all").register(registry);
+        FunctionCounter.builder("search.queries", zeroResultSearches, LongAdder::sum)
+                .tag("result", "empty").register(registry);
+    }
+
+    static int bucketOf(int resultCount) {
+        for (int i = 0; i < RESULT_COUNT_BOUNDS.length; i++) {
+            if (resultCount <= RESULT_COUNT_BOUNDS[i]) return i;
+        }
+        return RESULT_COUNT_BOUNDS.length;
+    }
+
+    static String bucketLabel(int bucket) {
+        if (bucket == RESULT_COUNT_BOUNDS.length) return "more than " + RESULT_COUNT_BOUNDS[bucket - 1];
+        int upper = RESULT_COUNT_BOUNDS[bucket];
+        int lower = bucket == 0 ? 0 : RESULT_COUNT_BOUNDS[bucket - 1] + 1;
+        return lower == upper ? String.valueOf(upper) : lower + "–" + upper;
+    }
+
+    public record Search(String query, int resultCount) {
+    }
+
+    private Window newWindow() {
+        return new Window(new HeavyHitters(sketchWidth, maxTrackedQueries),
+                new HeavyHitters(sketchWidth, maxTrackedQueries));
+    }
+
+    private static final class Window {
+        private final HeavyHitters queries;
+        private final HeavyHitters zeroResults;
+        private final LongAdder[] resultCounts = new LongAdder[RESULT_COUNT_BOUNDS.length + 1];
+
+        private Window(HeavyHitters queries, HeavyHitters zeroResults) {
+            this.queries = queries;
+            this.zeroResults = zeroResults;
+            for (int i = 0; i < resultCounts.length; i++) {
+                resultCounts[i] = new LongAdder();
+            }
+        }
+    }
+}
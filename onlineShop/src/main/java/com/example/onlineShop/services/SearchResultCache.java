@@ -0,0 +1,141 @@
+package com.example.onlineShop.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// LRU cache of ranked search results keyed by the normalized query. Entries carry the catalog version they
+// were computed at, so a product change invalidates everything without touching the map.
+// The cached arrays are shared between callers and must not be modified.
+@Component
+public class SearchResultCache implements MeterBinder {
+    private static final String CACHE_NAME = "searchResults";
+
+    private final CatalogVersion catalogVersion;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    // one load per query at a time; concurrent misses wait for it instead of searching again
+    private final Map<String, CompletableFuture<long[]>> loading = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public SearchResultCache(CatalogVersion catalogVersion,
+                             @Value("${catalog.search-cache.max-entries:2048}") int maxEntries,
+                             @Value("${catalog.search-cache.ttl:10m}") Duration ttl) {
+        this(catalogVersion, maxEntries, ttl, Clock.systemUTC());
+    }
+
+    public SearchResultCache(CatalogVersion catalogVersion, int maxEntries, Duration ttl, Clock clock) {
+        this.catalogVersion = catalogVersion;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    public long[] get(String query, Function<String, long[]> search) {
+        String key = SearchText.normalize(query);
+        long version = catalogVersion.current();
+        CompletableFuture<long[]> load;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.version == version && clock.millis() < entry.expiresAt) {
+                hits.increment();
+                return entry.ids;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+            load = loading.get(key);
+            if (load != null) {
+                coalesced.increment();
+            } else {
+                loading.put(key, new CompletableFuture<>());
+            }
+        }
+        if (load != null) {
+            return await(load);
+        }
+
+        misses.increment();
+        long[] ids;
+        try {
+            ids = search.apply(key);
+        } catch (RuntimeException | Error e) {
+            finish(key).completeExceptionally(e);
+            throw e;
+        }
+        synchronized (this) {
+            // results computed while the catalog changed, or before every index was built, are not kept
+            if (version == catalogVersion.current() && catalogVersion.isSettled()) {
+                put(key, new Entry(ids, version, clock.millis() + ttlMillis));
+            }
+        }
+        finish(key).complete(ids);
+        return ids;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tag("cache", CACHE_NAME).tag("result", "hit").register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tag("cache", CACHE_NAME).tag("result", "miss").register(registry);
+        FunctionCounter.builder("cache.gets", coalesced, LongAdder::sum)
+                .tag("cache", CACHE_NAME).tag("result", "coalesced").register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tag("cache", CACHE_NAME).register(registry);
+        Gauge.builder("cache.size", this, SearchResultCache::size)
+                .tag("cache", CACHE_NAME).register(registry);
+    }
+
+    private synchronized CompletableFuture<long[]> finish(String key) {
+        return loading.remove(key);
+    }
+
+    private void put(String key, Entry entry) {
+        entries.put(key, entry);
+        // access order: the first entries are the least recently read
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static long[] await(CompletableFuture<long[]> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    private record Entry(long[] ids, long version, long expiresAt) {
+    }
+}
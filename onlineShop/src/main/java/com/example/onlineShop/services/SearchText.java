@@ -0,0 +1,36 @@
+package com.example.onlineShop.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public final class SearchText {
+
+    private SearchText() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null) return "";
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    // Splits on anything that is not a letter or digit, so "T-shirt, XL" -> [t, shirt, xl]
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i < lower.length(); i++) {
+            if (Character.isLetterOrDigit(lower.charAt(i))) {
+                if (start < 0) start = i;
+            } else if (start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(lower.substring(start));
+        }
+        return tokens;
+    }
+}
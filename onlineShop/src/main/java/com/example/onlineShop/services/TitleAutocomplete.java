@@ -0,0 +1,398 @@
+package com.example.onlineShop.services;
+
+import com.example.onlineShop.models.ProductDocument;
+import com.example.onlineShop.models.ProductSuggestion;
+import com.example.onlineShop.repositories.ProductRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Component
+public class TitleAutocomplete extends CatalogIndex<TitleAutocomplete.Completions, TitleAutocomplete.Entry> {
+    public static final int MAX_SUGGESTIONS = 10;
+    // completions also start at the first few words, so "galaxy" finds "Samsung Galaxy S24"
+    private static final int MAX_WORD_STARTS = 3;
+
+    private final ProductRepository productRepository;
+
+    public TitleAutocomplete(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @Override
+    protected Completions newState() {
+        return new Completions();
+    }
+
+    @Override
+    protected List<ProductDocument> loadBatch(Long afterId, int limit) {
+        return productRepository.findActiveTitles(afterId, limit);
+    }
+
+    @Override
+    protected Entry analyze(ProductDocument document) {
+        String title = document.title() == null ? "" : document.title();
+        String normalized = SearchText.normalize(title);
+        return new Entry(document.id(), title, normalized, wordStarts(normalized));
+    }
+
+    @Override
+    protected void add(Completions target, Entry entry) {
+        target.add(entry);
+    }
+
+    @Override
+    protected void remove(Completions target, Long productId) {
+        target.remove(productId);
+    }
+
+    @Override
+    protected int size(Completions target) {
+        return target.liveDocs;
+    }
+
+    // keys are appended unsorted while the catalog loads and sorted once at the end
+    @Override
+    protected void loaded(Completions fresh) {
+        fresh.finishLoading();
+    }
+
+    public List<ProductSuggestion> suggest(String prefix, int limit) {
+        String key = SearchText.normalize(prefix);
+        if (key.isEmpty()) return List.of();
+        lock.readLock().lock();
+        try {
+            return state.complete(key, Math.min(Math.max(limit, 1), MAX_SUGGESTIONS));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // doc slots in use, removed ones included until the next merge
+    public int documentSlots() {
+        lock.readLock().lock();
+        try {
+            return state.nextDoc;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // where each of the first few words begins
+    static int[] wordStarts(String title) {
+        int[] starts = new int[MAX_WORD_STARTS];
+        int count = 0;
+        int start = 0;
+        while (start < title.length() && count < MAX_WORD_STARTS) {
+            starts[count++] = start;
+            int space = title.indexOf(' ', start);
+            if (space < 0) break;
+            start = space + 1;
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    record Entry(long productId, String title, String normalizedTitle, int[] wordStarts) {
+    }
+
+    // A key is a title from one of its word starts, packed as (doc << 32 | offset) and compared by the
+    // normalized title text, so keys cost no objects of their own. Sorted keys put every completion of a
+    // prefix in one range. A tree over blocks of that array keeps the newest MAX_SUGGESTIONS docs of each
+    // node, so a lookup is two binary searches and a merge of a few small lists.
+    // Keys added since the last merge sit unsorted in a short buffer that lookups scan; a removed doc is only
+    // marked dead. Merging sorts the buffer into the array, drops dead keys and frees their doc slots for reuse.
+    static final class Completions {
+        private static final int BLOCK_SIZE = 32;
+        private static final int MERGE_THRESHOLD = 4096;
+
+        private final LongIntHashMap docByProduct = new LongIntHashMap(1 << 12, -1);
+        private long[] productIds = new long[1024];
+        private String[] titles = new String[1024];
+        private String[] normalizedTitles = new String[1024];
+        private int[] keyCounts = new int[1024];
+        private long[] dead = new long[1024 / 64];
+        private int[] freeDocs = new int[16];
+        private int freeCount;
+        private int nextDoc;
+        private int liveDocs;
+        private int deadKeys;
+        private long[] keys = new long[0];
+        private int[] tops = new int[0];
+        private byte[] topSizes = new byte[0];
+        private long[] recent = new long[64];
+        private int recentCount;
+        private boolean loading = true;
+
+        void add(Entry entry) {
+            int doc = allocate();
+            productIds[doc] = entry.productId();
+            titles[doc] = entry.title();
+            normalizedTitles[doc] = entry.normalizedTitle();
+            keyCounts[doc] = entry.wordStarts().length;
+            for (int start : entry.wordStarts()) {
+                if (recentCount == recent.length) recent = Arrays.copyOf(recent, recentCount * 2);
+                recent[recentCount++] = ((long) doc << 32) | start;
+            }
+            docByProduct.put(entry.productId(), doc);
+            liveDocs++;
+            mergeIfDue();
+        }
+
+        void remove(Long productId) {
+            int doc = docByProduct.remove(productId);
+            if (doc < 0) return;
+            // the normalized title stays until the merge, because dead keys are still compared by it
+            dead[doc >>> 6] |= 1L << doc;
+            titles[doc] = null;
+            deadKeys += keyCounts[doc];
+            liveDocs--;
+            mergeIfDue();
+        }
+
+        void finishLoading() {
+            loading = false;
+            merge();
+        }
+
+        List<ProductSuggestion> complete(String prefix, int limit) {
+            Newest newest = new Newest(limit);
+            int from = lowerBound(prefix, 0);
+            int to = lowerBound(prefix, 1);
+            if (from < to) {
+                collect(1, 0, keys.length, from, to, newest);
+            }
+            for (int i = 0; i < recentCount; i++) {
+                if (!isDead(doc(recent[i])) && comparePrefix(recent[i], prefix) == 0) {
+                    newest.offer(doc(recent[i]));
+                }
+            }
+            List<ProductSuggestion> suggestions = new ArrayList<>(newest.size);
+            for (int i = 0; i < newest.size; i++) {
+                suggestions.add(new ProductSuggestion(productIds[newest.docs[i]], titles[newest.docs[i]]));
+            }
+            return suggestions;
+        }
+
+        private int allocate() {
+            if (freeCount > 0) return freeDocs[--freeCount];
+            if (nextDoc == productIds.length) {
+                int capacity = productIds.length * 2;
+                productIds = Arrays.copyOf(productIds, capacity);
+                titles = Arrays.copyOf(titles, capacity);
+                normalizedTitles = Arrays.copyOf(normalizedTitles, capacity);
+                keyCounts = Arrays.copyOf(keyCounts, capacity);
+                dead = Arrays.copyOf(dead, capacity / 64);
+            }
+            return nextDoc++;
+        }
+
+        private boolean isDead(int doc) {
+            return (dead[doc >>> 6] & (1L << doc)) != 0;
+        }
+
+        private void mergeIfDue() {
+            if (!loading && recentCount + deadKeys >= MERGE_THRESHOLD) {
+                merge();
+            }
+        }
+
+        private void merge() {
+            sort(recent, recentCount);
+            long[] merged = new long[keys.length + recentCount];
+            int size = 0;
+            int a = 0;
+            int b = 0;
+            while (a < keys.length || b < recentCount) {
+                long next = b == recentCount || (a < keys.length && compare(keys[a], recent[b]) <= 0)
+                        ? keys[a++] : recent[b++];
+                if (!isDead(doc(next))) merged[size++] = next;
+            }
+            keys = Arrays.copyOf(merged, size);
+            recentCount = 0;
+            if (recent.length > MERGE_THRESHOLD) recent = new long[64];
+            for (int doc = 0; doc < nextDoc; doc++) {
+                if (!isDead(doc)) continue;
+                dead[doc >>> 6] &= ~(1L << doc);
+                normalizedTitles[doc] = null;
+                if (freeCount == freeDocs.length) freeDocs = Arrays.copyOf(freeDocs, freeCount * 2);
+                freeDocs[freeCount++] = doc;
+            }
+            deadKeys = 0;
+            int nodes = 4 * (keys.length / BLOCK_SIZE + 1);
+            tops = new int[nodes * MAX_SUGGESTIONS];
+            topSizes = new byte[nodes];
+            if (keys.length > 0) {
+                buildTops(1, 0, keys.length);
+            }
+        }
+
+        private void buildTops(int node, int from, int to) {
+            if (to - from <= BLOCK_SIZE) {
+                for (int i = from; i < to; i++) {
+                    offerTop(node, doc(keys[i]));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            buildTops(2 * node, from, middle);
+            buildTops(2 * node + 1, middle, to);
+            for (int child = 2 * node; child <= 2 * node + 1; child++) {
+                for (int i = 0; i < topSizes[child]; i++) {
+                    offerTop(node, tops[child * MAX_SUGGESTIONS + i]);
+                }
+            }
+        }
+
+        // keeps a node's list newest product first; a doc reaches a node once per key, so repeats are skipped
+        private void offerTop(int node, int doc) {
+            int base = node * MAX_SUGGESTIONS;
+            int size = topSizes[node];
+            for (int i = 0; i < size; i++) {
+                if (tops[base + i] == doc) return;
+            }
+            if (size == MAX_SUGGESTIONS && productIds[tops[base + size - 1]] >= productIds[doc]) return;
+            int position = size == MAX_SUGGESTIONS ? size - 1 : size++;
+            while (position > 0 && productIds[tops[base + position - 1]] < productIds[doc]) {
+                tops[base + position] = tops[base + position - 1];
+                position--;
+            }
+            tops[base + position] = doc;
+            topSizes[node] = (byte) size;
+        }
+
+        // A node inside the range answers from its list unless dead docs may hide live ones below it;
+        // nodes whose newest doc is older than everything collected are skipped.
+        private void collect(int node, int from, int to, int rangeFrom, int rangeTo, Newest newest) {
+            if (rangeTo <= from || to <= rangeFrom || topSizes[node] == 0) return;
+            int base = node * MAX_SUGGESTIONS;
+            int size = topSizes[node];
+            if (newest.isFull() && productIds[tops[base]] <= newest.oldest()) return;
+            if (rangeFrom <= from && to <= rangeTo) {
+                boolean anyDead = false;
+                for (int i = 0; i < size && !anyDead; i++) {
+                    anyDead = isDead(tops[base + i]);
+                }
+                // a short list holds every doc of the node, dead or not
+                if (!anyDead || size < MAX_SUGGESTIONS) {
+                    for (int i = 0; i < size; i++) {
+                        if (!isDead(tops[base + i])) newest.offer(tops[base + i]);
+                    }
+                    return;
+                }
+            }
+            if (to - from <= BLOCK_SIZE) {
+                for (int i = Math.max(from, rangeFrom); i < Math.min(to, rangeTo); i++) {
+                    if (!isDead(doc(keys[i]))) newest.offer(doc(keys[i]));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            collect(2 * node, from, middle, rangeFrom, rangeTo, newest);
+            collect(2 * node + 1, middle, to, rangeFrom, rangeTo, newest);
+        }
+
+        // the first key that starts with the prefix (bound 0) or sorts after all that do (bound 1)
+        private int lowerBound(String prefix, int bound) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (comparePrefix(keys[middle], prefix) < bound) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        // compares the key's first prefix.length() characters with the prefix; 0 when it starts with it
+        private int comparePrefix(long key, String prefix) {
+            String title = normalizedTitles[doc(key)];
+            int offset = offset(key);
+            int length = Math.min(prefix.length(), title.length() - offset);
+            for (int i = 0; i < length; i++) {
+                int difference = title.charAt(offset + i) - prefix.charAt(i);
+                if (difference != 0) return difference;
+            }
+            return length == prefix.length() ? 0 : -1;
+        }
+
+        private int compare(long a, long b) {
+            String titleA = normalizedTitles[doc(a)];
+            String titleB = normalizedTitles[doc(b)];
+            int offsetA = offset(a);
+            int offsetB = offset(b);
+            int length = Math.min(titleA.length() - offsetA, titleB.length() - offsetB);
+            for (int i = 0; i < length; i++) {
+                int difference = titleA.charAt(offsetA + i) - titleB.charAt(offsetB + i);
+                if (difference != 0) return difference;
+            }
+            return Integer.compare(titleA.length() - offsetA, titleB.length() - offsetB);
+        }
+
+        // bottom-up merge sort, since the keys are primitives compared by their text
+        private void sort(long[] values, int size) {
+            long[] from = values;
+            long[] to = new long[size];
+            for (int width = 1; width < size; width *= 2) {
+                for (int start = 0; start < size; start += 2 * width) {
+                    int middle = Math.min(start + width, size);
+                    int end = Math.min(start + 2 * width, size);
+                    int a = start;
+                    int b = middle;
+                    for (int i = start; i < end; i++) {
+                        to[i] = b == end || (a < middle && compare(from[a], from[b]) <= 0) ? from[a++] : from[b++];
+                    }
+                }
+                long[] swap = from;
+                from = to;
+                to = swap;
+            }
+            if (from != values) {
+                System.arraycopy(from, 0, values, 0, size);
+            }
+        }
+
+        private static int doc(long key) {
+            return (int) (key >>> 32);
+        }
+
+        private static int offset(long key) {
+            return (int) key;
+        }
+
+        // the newest docs offered so far, distinct, newest product first
+        private final class Newest {
+            private final int[] docs;
+            private int size;
+
+            Newest(int limit) {
+                this.docs = new int[limit];
+            }
+
+            boolean isFull() {
+                return size == docs.length;
+            }
+
+            long oldest() {
+                return productIds[docs[size - 1]];
+            }
+
+            void offer(int doc) {
+                for (int i = 0; i < size; i++) {
+                    if (docs[i] == doc) return;
+                }
+                if (isFull() && oldest() >= productIds[doc]) return;
+                int position = isFull() ? size - 1 : size++;
+                while (position > 0 && productIds[docs[position - 1]] < productIds[doc]) {
+                    docs[position] = docs[position - 1];
+                    position--;
+                }
+                docs[position] = doc;
+            }
+        }
+    }
+}
@@ -0,0 +1,476 @@
+package com.example.onlineShop.services;
+
+import com.example.onlineShop.models.ProductDocument;
+import com.example.onlineShop.repositories.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Component
+public class TrigramIndex extends CatalogIndex<TrigramIndex.Grams, TrigramIndex.TitleGrams> {
+    private static final Logger log = LoggerFactory.getLogger(TrigramIndex.class);
+    private static final int MAX_RESULTS = 1000;
+    private static final ThreadLocal<int[]> SCRATCH = ThreadLocal.withInitial(() -> new int[0]);
+
+    private final ProductRepository productRepository;
+    private final double similarityThreshold;
+    // compaction copies every posting list, so it runs off the request thread, one at a time
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "trigram-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+
+    public TrigramIndex(ProductRepository productRepository,
+                        @Value("${search.trigram.similarity-threshold:0.5}") double similarityThreshold) {
+        this.productRepository = productRepository;
+        this.similarityThreshold = similarityThreshold;
+    }
+
+    @Override
+    protected Grams newState() {
+        return new Grams();
+    }
+
+    @Override
+    protected List<ProductDocument> loadBatch(Long afterId, int limit) {
+        return productRepository.findActiveTitles(afterId, limit);
+    }
+
+    @Override
+    protected TitleGrams analyze(ProductDocument document) {
+        String title = SearchText.normalize(document.title());
+        return new TitleGrams(document.id(), title, titleGrams(title));
+    }
+
+    @Override
+    protected void add(Grams target, TitleGrams document) {
+        target.add(document);
+    }
+
+    @Override
+    protected void remove(Grams target, Long productId) {
+        target.remove(productId);
+        if (target.needsCompaction()) {
+            compactLater();
+        }
+    }
+
+    @Override
+    protected int size(Grams target) {
+        return target.liveDocs;
+    }
+
+    // doc slots in use, removed ones included until the next compaction
+    public int documentSlots() {
+        lock.readLock().lock();
+        try {
+            return state.nextDoc;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compactor.shutdownNow();
+    }
+
+    // Copies the live docs under the read lock, so searches go on meanwhile, then swaps the copy in with
+    // whatever changed between the two locks replayed on top of it.
+    void compact() {
+        Grams source;
+        Grams compacted;
+        lock.readLock().lock();
+        try {
+            source = state;
+            if (!source.needsCompaction()) return;
+            source.startJournal();
+            compacted = source.compacted();
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            // a rebuild replaced the state meanwhile
+            if (state != source) return;
+            source.replayJournal(compacted);
+            state = compacted;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Trigram index compacted to {} docs", compacted.liveDocs);
+    }
+
+    private void compactLater() {
+        if (!compactionScheduled.compareAndSet(false, true)) return;
+        try {
+            compactor.execute(() -> {
+                compactionScheduled.set(false);
+                try {
+                    compact();
+                } catch (RuntimeException e) {
+                    log.warn("Could not compact the trigram index", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            compactionScheduled.set(false);
+        }
+    }
+
+    // Titles containing the query come first (newest first), then titles that contain at least
+    // the threshold share of the query's word trigrams, best match first.
+    public long[] search(String query) {
+        String normalized = SearchText.normalize(query);
+        if (normalized.isEmpty()) return new long[0];
+        lock.readLock().lock();
+        try {
+            return state.search(normalized, similarityThreshold);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // A title is indexed under its word trigrams (each word padded like "  word ") for fuzzy
+    // matching, plus the raw trigrams of the whole title for substring matching.
+    static long[] titleGrams(String title) {
+        long[] words = wordGrams(title);
+        long[] raw = rawGrams(title);
+        long[] all = Arrays.copyOf(words, words.length + raw.length);
+        System.arraycopy(raw, 0, all, words.length, raw.length);
+        return distinct(all, all.length);
+    }
+
+    static long[] wordGrams(String text) {
+        long[] grams = new long[16];
+        int count = 0;
+        for (String word : SearchText.tokenize(text)) {
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 2 < padded.length(); i++) {
+                if (count == grams.length) grams = Arrays.copyOf(grams, count * 2);
+                grams[count++] = trigram(padded, i);
+            }
+        }
+        return distinct(grams, count);
+    }
+
+    static long[] rawGrams(String text) {
+        if (text.length() < 3) return new long[0];
+        long[] grams = new long[text.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = trigram(text, i);
+        }
+        return distinct(grams, grams.length);
+    }
+
+    private static long trigram(String text, int at) {
+        return ((long) text.charAt(at) << 32) | ((long) text.charAt(at + 1) << 16) | text.charAt(at + 2);
+    }
+
+    private static long[] distinct(long[] grams, int length) {
+        Arrays.sort(grams, 0, length);
+        int distinct = 0;
+        for (int i = 0; i < length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    record TitleGrams(long productId, String title, long[] grams) {
+    }
+
+    // A removed doc is only marked in the dead bitset, so an update touches no posting list of the old title.
+    // Dead docs are skipped while searching and dropped by compaction, which also renumbers the live ones in
+    // order and so keeps every list sorted; it runs once dead slots outnumber live ones.
+    static final class Grams {
+        private static final int MIN_COMPACTION_SLOTS = 1024;
+
+        private final LongIntHashMap slotByGram;
+        private final LongIntHashMap docByProduct;
+        private int[][] postings;
+        private int[] postingSizes;
+        private int slots;
+        private long[] productIds;
+        private String[] titles;
+        private int[] gramCounts;
+        private long[] dead;
+        private int nextDoc;
+        private int liveDocs;
+        // product ids changed while a compacted copy is being made
+        private long[] journal;
+        private int journalSize;
+
+        Grams() {
+            this(1 << 12, 1024);
+        }
+
+        private Grams(int grams, int docs) {
+            slotByGram = new LongIntHashMap(grams, -1);
+            docByProduct = new LongIntHashMap(docs, -1);
+            postings = new int[grams][];
+            postingSizes = new int[grams];
+            productIds = new long[docs];
+            titles = new String[docs];
+            gramCounts = new int[docs];
+            dead = new long[(docs + 63) >>> 6];
+        }
+
+        void add(TitleGrams document) {
+            if (nextDoc == productIds.length) {
+                int capacity = productIds.length * 2;
+                productIds = Arrays.copyOf(productIds, capacity);
+                titles = Arrays.copyOf(titles, capacity);
+                gramCounts = Arrays.copyOf(gramCounts, capacity);
+                dead = Arrays.copyOf(dead, (capacity + 63) >>> 6);
+            }
+            int doc = nextDoc++;
+            productIds[doc] = document.productId();
+            titles[doc] = document.title();
+            gramCounts[doc] = document.grams().length;
+            for (long gram : document.grams()) {
+                append(slotFor(gram), doc);
+            }
+            docByProduct.put(document.productId(), doc);
+            liveDocs++;
+            record(document.productId());
+        }
+
+        void remove(Long productId) {
+            int doc = docByProduct.remove(productId);
+            if (doc < 0) return;
+            dead[doc >>> 6] |= 1L << doc;
+            titles[doc] = null;
+            liveDocs--;
+            record(productId);
+        }
+
+        boolean needsCompaction() {
+            return nextDoc >= MIN_COMPACTION_SLOTS && nextDoc - liveDocs > liveDocs;
+        }
+
+        private boolean isDead(int doc) {
+            return (dead[doc >>> 6] & (1L << doc)) != 0;
+        }
+
+        void startJournal() {
+            journal = new long[16];
+            journalSize = 0;
+        }
+
+        private void record(long productId) {
+            if (journal == null) return;
+            if (journalSize == journal.length) journal = Arrays.copyOf(journal, journalSize * 2);
+            journal[journalSize++] = productId;
+        }
+
+        // brings a copy made since startJournal up to date with this state
+        void replayJournal(Grams copy) {
+            for (int i = 0; i < journalSize; i++) {
+                long productId = journal[i];
+                copy.remove(productId);
+                int doc = docByProduct.get(productId);
+                if (doc >= 0) {
+                    copy.add(new TitleGrams(productId, titles[doc], titleGrams(titles[doc])));
+                }
+            }
+            journal = null;
+        }
+
+        // the live docs renumbered in order, with lists that held only dead docs dropped
+        Grams compacted() {
+            Grams copy = new Grams(Math.max(16, slotByGram.size()), Math.max(1024, liveDocs * 2));
+            int[] renumbered = new int[nextDoc];
+            for (int doc = 0; doc < nextDoc; doc++) {
+                if (isDead(doc)) continue;
+                int live = copy.nextDoc++;
+                renumbered[doc] = live;
+                copy.productIds[live] = productIds[doc];
+                copy.titles[live] = titles[doc];
+                copy.gramCounts[live] = gramCounts[doc];
+                copy.docByProduct.put(productIds[doc], live);
+            }
+            copy.liveDocs = copy.nextDoc;
+            slotByGram.forEach((gram, slot) -> {
+                int[] docs = postings[slot];
+                int size = postingSizes[slot];
+                int live = 0;
+                for (int p = 0; p < size; p++) {
+                    if (!isDead(docs[p])) live++;
+                }
+                if (live == 0) return;
+                int[] kept = new int[live];
+                int k = 0;
+                for (int p = 0; p < size; p++) {
+                    if (!isDead(docs[p])) kept[k++] = renumbered[docs[p]];
+                }
+                int copySlot = copy.slotFor(gram);
+                copy.postings[copySlot] = kept;
+                copy.postingSizes[copySlot] = live;
+            });
+            return copy;
+        }
+
+        long[] search(String query, double threshold) {
+            long[] substringHits = substringMatches(query);
+
+            long[] queryGrams = wordGrams(query);
+            int[] lists = new int[queryGrams.length];
+            int listCount = 0;
+            for (long gram : queryGrams) {
+                int slot = slotByGram.get(gram);
+                if (slot >= 0) lists[listCount++] = slot;
+            }
+            // the fewest shared grams that still reach the threshold
+            int required = 1;
+            while (required < queryGrams.length && (double) required / queryGrams.length < threshold) {
+                required++;
+            }
+            // A doc sharing that many grams is in at least one of the listCount - required + 1 shortest lists,
+            // so only those are scanned; the longer, most common ones are probed per candidate instead.
+            int scanned = listCount - required + 1;
+            int[] counts = scratch(nextDoc);
+            int[] touched = new int[64];
+            int touchedCount = 0;
+            if (scanned > 0) {
+                int[] bySize = sortBySize(lists, listCount);
+                for (int l = 0; l < scanned; l++) {
+                    int[] docs = postings[bySize[l]];
+                    for (int p = 0, size = postingSizes[bySize[l]]; p < size; p++) {
+                        int doc = docs[p];
+                        if (isDead(doc)) continue;
+                        if (counts[doc]++ == 0) {
+                            if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                            touched[touchedCount++] = doc;
+                        }
+                    }
+                }
+                for (int i = 0; i < touchedCount; i++) {
+                    int doc = touched[i];
+                    for (int l = scanned; l < listCount; l++) {
+                        if (Arrays.binarySearch(postings[bySize[l]], 0, postingSizes[bySize[l]], doc) >= 0) {
+                            counts[doc]++;
+                        }
+                    }
+                }
+            }
+
+            // coverage of the query and overall similarity are packed above the doc id,
+            // so candidates sort as plain longs
+            long[] ranked = new long[touchedCount];
+            int candidates = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                int doc = touched[i];
+                int shared = counts[doc];
+                counts[doc] = 0;
+                double coverage = (double) shared / queryGrams.length;
+                double similarity = (double) shared / (queryGrams.length + gramCounts[doc] - shared);
+                if (coverage >= threshold && Arrays.binarySearch(substringHits, productIds[doc]) < 0) {
+                    ranked[candidates++] = ((long) (coverage * 10_000) << 48)
+                            | ((long) (similarity * 10_000) << 32) | doc;
+                }
+            }
+            Arrays.sort(ranked, 0, candidates);
+
+            int total = Math.min(MAX_RESULTS, substringHits.length + candidates);
+            long[] result = new long[total];
+            int n = 0;
+            for (int i = substringHits.length - 1; i >= 0 && n < total; i--) {
+                result[n++] = substringHits[i];
+            }
+            for (int i = candidates - 1; i >= 0 && n < total; i--) {
+                result[n++] = productIds[(int) (ranked[i] & 0xFFFFFFFFL)];
+            }
+            return result;
+        }
+
+        private int[] sortBySize(int[] lists, int count) {
+            long[] keyed = new long[count];
+            for (int i = 0; i < count; i++) {
+                keyed[i] = ((long) postingSizes[lists[i]] << 32) | lists[i];
+            }
+            Arrays.sort(keyed);
+            int[] sorted = new int[count];
+            for (int i = 0; i < count; i++) {
+                sorted[i] = (int) keyed[i];
+            }
+            return sorted;
+        }
+
+        // Every trigram of the query must be present; candidates are then checked with contains().
+        // Returns matching product ids in ascending order.
+        private long[] substringMatches(String query) {
+            long[] grams = rawGrams(query);
+            if (grams.length == 0) return new long[0];
+            int[] lists = new int[grams.length];
+            for (int i = 0; i < grams.length; i++) {
+                lists[i] = slotByGram.get(grams[i]);
+                if (lists[i] < 0) return new long[0];
+            }
+            int shortest = lists[0];
+            for (int slot : lists) {
+                if (postingSizes[slot] < postingSizes[shortest]) shortest = slot;
+            }
+
+            long[] hits = new long[16];
+            int count = 0;
+            candidates:
+            for (int p = 0; p < postingSizes[shortest]; p++) {
+                int doc = postings[shortest][p];
+                if (isDead(doc)) continue;
+                for (int slot : lists) {
+                    if (slot != shortest && Arrays.binarySearch(postings[slot], 0, postingSizes[slot], doc) < 0) {
+                        continue candidates;
+                    }
+                }
+                if (titles[doc].contains(query)) {
+                    if (count == hits.length) hits = Arrays.copyOf(hits, count * 2);
+                    hits[count++] = productIds[doc];
+                }
+            }
+            long[] result = Arrays.copyOf(hits, count);
+            Arrays.sort(result);
+            return result;
+        }
+
+        private int slotFor(long gram) {
+            int slot = slotByGram.get(gram);
+            if (slot >= 0) return slot;
+            if (slots == postings.length) {
+                postings = Arrays.copyOf(postings, slots * 2);
+                postingSizes = Arrays.copyOf(postingSizes, slots * 2);
+            }
+            slot = slots++;
+            postings[slot] = new int[4];
+            slotByGram.put(gram, slot);
+            return slot;
+        }
+
+        private void append(int slot, int doc) {
+            if (postingSizes[slot] == postings[slot].length) {
+                postings[slot] = Arrays.copyOf(postings[slot], postingSizes[slot] * 2);
+            }
+            postings[slot][postingSizes[slot]++] = doc;
+        }
+
+        private static int[] scratch(int size) {
+            int[] counts = SCRATCH.get();
+            if (counts.length < size) {
+                counts = new int[Math.max(size, counts.length * 2)];
+                SCRATCH.set(counts);
+            }
+            return counts;
+        }
+    }
+}
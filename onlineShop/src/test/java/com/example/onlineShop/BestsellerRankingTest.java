@@ -0,0 +1,210 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.events.OrderPlacedEvent;
+import com.example.onlineShop.events.ProductBatchChangedEvent;
+import com.example.onlineShop.events.ProductChangedEvent;
+import com.example.onlineShop.models.ProductSale;
+import com.example.onlineShop.models.ProductSalesScore;
+import com.example.onlineShop.repositories.OrderRepository;
+import com.example.onlineShop.repositories.SalesScoreRepository;
+import com.example.onlineShop.services.BestsellerRanking;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BestsellerRankingTest {
+    private static final Instant NOW = Instant.parse("2025-03-01T12:00:00Z");
+    private static final LocalDateTime LOCAL_NOW = LocalDateTime.ofInstant(NOW, ZoneOffset.UTC);
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private SalesScoreRepository scoreRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BestsellerRanking ranking;
+
+    @BeforeEach
+    void setUp() {
+        ranking = new BestsellerRanking(orderRepository, scoreRepository, transactionManager, Duration.ofDays(7),
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void addSale_ShouldHalveWeightOfSalesEveryHalfLife() {
+        // Given
+        ranking.addSale(1L, 10, NOW.minus(Duration.ofDays(14)));
+        ranking.addSale(2L, 3, NOW);
+        ranking.addSale(3L, 2, NOW.minus(Duration.ofDays(7)));
+
+        // When
+        long[] result = ranking.top(10);
+
+        // Then
+        assertArrayEquals(new long[]{2L, 1L, 3L}, result);
+        assertEquals(2.5, ranking.score(1L), 1e-9);
+        assertEquals(1.0, ranking.score(3L), 1e-9);
+        assertArrayEquals(new long[]{2L, 1L}, ranking.top(2));
+    }
+
+    @Test
+    void onOrderPlaced_ShouldAddQuantitiesAndReorder() {
+        // Given
+        ranking.addSale(1L, 3, NOW);
+        long[] before = ranking.top(10);
+
+        // When
+        ranking.onOrderPlaced(new OrderPlacedEvent(5L, 40L, List.of(2L, 3L), List.of(4, 1), List.of()));
+
+        // Then
+        assertArrayEquals(new long[]{1L}, before);
+        assertArrayEquals(new long[]{2L, 1L, 3L}, ranking.top(10));
+        assertEquals(4.0, ranking.score(2L), 1e-9);
+    }
+
+    @Test
+    void belowAndAbove_ShouldWalkRankingFromProduct() {
+        // Given
+        for (long productId = 1; productId <= 6; productId++) {
+            ranking.addSale(productId, 10 - productId, NOW);
+        }
+
+        // When
+        long[] below = ranking.below(2L, 3);
+        long[] above = ranking.above(5L, 2);
+
+        // Then
+        assertArrayEquals(new long[]{3L, 4L, 5L}, below);
+        assertArrayEquals(new long[]{4L, 3L}, above);
+        assertArrayEquals(new long[]{6L}, ranking.below(5L, 3));
+        // a product without a score starts from the top going down and has nothing above it
+        assertArrayEquals(new long[]{1L, 2L}, ranking.below(9L, 2));
+        assertArrayEquals(new long[0], ranking.above(9L, 2));
+    }
+
+    @Test
+    void onProductChanged_WhenTakenOffSale_ShouldDropScoreAndForgetItOnSnapshot() {
+        // Given
+        ranking.addSale(1L, 5, NOW);
+        ranking.addSale(2L, 3, NOW);
+        ranking.addSale(3L, 1, NOW);
+
+        // When
+        ranking.onProductChanged(new ProductChangedEvent(1L, "Lamp", "", 10, false));
+        ranking.onProductsChanged(new ProductBatchChangedEvent(List.of(
+                new ProductChangedEvent(2L, "Sofa", "", 10, true),
+                new ProductChangedEvent(3L, "Desk", "", 10, false))));
+        ranking.snapshot();
+
+        // Then
+        assertArrayEquals(new long[]{2L}, ranking.top(10));
+        assertEquals(0, ranking.score(1L));
+        verify(scoreRepository).deleteByProductIdIn(List.of(1L, 3L));
+    }
+
+    @Test
+    void rank_ShouldPutSellingProductsFirstAndKeepOrderOfTheRest() {
+        // Given
+        ranking.addSale(1L, 5, NOW);
+        ranking.addSale(2L, 8, NOW);
+        ranking.addSale(6L, 1, NOW);
+
+        // When
+        long[] result = ranking.rank(new long[]{7L, 1L, 9L, 2L});
+
+        // Then
+        assertArrayEquals(new long[]{2L, 1L, 7L, 9L}, result);
+    }
+
+    @Test
+    void addSale_LongAfterLandmark_ShouldRescaleWithoutChangingOrder() {
+        // Given
+        ranking = new BestsellerRanking(orderRepository, scoreRepository, transactionManager, Duration.ofDays(1),
+                Clock.fixed(NOW.plus(Duration.ofDays(600)), ZoneOffset.UTC));
+        ranking.addSale(1L, 4, NOW.minus(Duration.ofDays(600)));
+
+        // When
+        ranking.addSale(2L, 1, NOW.plus(Duration.ofDays(600)));
+        ranking.addSale(3L, 2, NOW.plus(Duration.ofDays(600)));
+
+        // Then
+        assertArrayEquals(new long[]{3L, 2L, 1L}, ranking.top(10));
+        assertEquals(2.0, ranking.score(3L), 1e-9);
+        assertTrue(Double.isFinite(ranking.score(1L)));
+    }
+
+    @Test
+    void snapshot_ShouldSaveChangedScoresAndForgetFadedOnes() {
+        // Given
+        ranking.addSale(1L, 6, NOW.minus(Duration.ofDays(7)));
+        ranking.addSale(2L, 1, NOW.minus(Duration.ofDays(100)));
+
+        // When
+        ranking.snapshot();
+        ranking.snapshot();
+
+        // Then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ProductSalesScore>> saved = ArgumentCaptor.forClass(List.class);
+        verify(scoreRepository, times(1)).saveAll(saved.capture());
+        assertEquals(1, saved.getValue().size());
+        assertEquals(1L, saved.getValue().get(0).getProductId());
+        assertEquals(3.0, saved.getValue().get(0).getScore(), 1e-9);
+        assertEquals(LOCAL_NOW, saved.getValue().get(0).getScoredAt());
+        verify(scoreRepository).deleteByProductIdIn(List.of(2L));
+        assertArrayEquals(new long[]{1L}, ranking.top(10));
+    }
+
+    @Test
+    void load_ShouldDecaySnapshotsAndKeepSalesMadeSinceStartup() {
+        // Given
+        when(scoreRepository.findAll()).thenReturn(List.of(
+                new ProductSalesScore(1L, 8, LOCAL_NOW.minusDays(14)),
+                new ProductSalesScore(2L, 3, LOCAL_NOW)));
+        ranking.addSale(1L, 0.5, NOW);
+
+        // When
+        ranking.load();
+
+        // Then
+        assertArrayEquals(new long[]{2L, 1L}, ranking.top(10));
+        assertEquals(2.5, ranking.score(1L), 1e-9);
+        verify(orderRepository, never()).streamSales();
+    }
+
+    @Test
+    void load_WithoutSnapshot_ShouldBootstrapFromOrders() {
+        // Given
+        when(scoreRepository.findAll()).thenReturn(List.of());
+        when(orderRepository.streamSales()).thenReturn(Stream.of(
+                new ProductSale(1L, 2, LOCAL_NOW.minusDays(7)),
+                new ProductSale(1L, 1, LOCAL_NOW),
+                new ProductSale(2L, 1, LOCAL_NOW.minusDays(1))));
+
+        // When
+        ranking.load();
+
+        // Then
+        assertArrayEquals(new long[]{1L, 2L}, ranking.top(10));
+        assertEquals(2.0, ranking.score(1L), 1e-9);
+    }
+}
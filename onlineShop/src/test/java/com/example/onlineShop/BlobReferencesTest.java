@@ -0,0 +1,176 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.events.BlobReleasedEvent;
+import com.example.onlineShop.events.BlobStoredEvent;
+import com.example.onlineShop.models.StoredBlob;
+import com.example.onlineShop.repositories.BlobStore;
+import com.example.onlineShop.repositories.StoredBlobRepository;
+import com.example.onlineShop.services.BlobReferences;
+import com.example.onlineShop.services.ImageVariants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BlobReferencesTest {
+    private static final String KEY = "a".repeat(64);
+
+    @Mock
+    private StoredBlobRepository storedBlobRepository;
+
+    @Mock
+    private BlobStore blobStore;
+
+    @Mock
+    private ImageVariants imageVariants;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BlobReferences references;
+
+    @BeforeEach
+    void setUp() {
+        references = new BlobReferences(storedBlobRepository, blobStore, imageVariants, eventPublisher, transactionManager);
+    }
+
+    @Test
+    void store_ShouldPutContentAndCountReference() throws Exception {
+        // Given
+        when(blobStore.put(any())).thenReturn(KEY);
+        when(blobStore.exists(KEY)).thenReturn(true);
+
+        // When
+        String key = references.store(new ByteArrayResource(new byte[]{1, 2}));
+
+        // Then
+        assertEquals(KEY, key);
+        verify(blobStore, times(1)).put(any());
+        verify(storedBlobRepository).addReference(KEY);
+        verify(eventPublisher).publishEvent(new BlobStoredEvent(KEY));
+    }
+
+    @Test
+    void store_WhenCollectedMeanwhile_ShouldPutContentAgain() throws Exception {
+        // Given
+        when(blobStore.put(any())).thenReturn(KEY);
+        when(blobStore.exists(KEY)).thenReturn(false);
+
+        // When
+        references.store(new ByteArrayResource(new byte[]{1, 2}));
+
+        // Then
+        verify(blobStore, times(2)).put(any());
+    }
+
+    @Test
+    void release_OfLastReference_ShouldPublishEvent() {
+        // Given
+        when(storedBlobRepository.removeReference(KEY)).thenReturn(0L);
+
+        // When
+        references.release(KEY);
+
+        // Then
+        verify(eventPublisher).publishEvent(new BlobReleasedEvent(KEY));
+    }
+
+    @Test
+    void release_WhenStillShared_ShouldKeepContent() {
+        // Given
+        when(storedBlobRepository.removeReference(KEY)).thenReturn(2L);
+
+        // When
+        references.release(KEY);
+
+        // Then
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void onBlobReleased_ShouldDeleteUnreferencedContentAndVariants() throws Exception {
+        // Given
+        StoredBlob blob = new StoredBlob(KEY, 0);
+        when(storedBlobRepository.findForUpdate(KEY)).thenReturn(Optional.of(blob));
+
+        // When
+        references.onBlobReleased(new BlobReleasedEvent(KEY));
+
+        // Then
+        verify(blobStore).delete(KEY);
+        verify(imageVariants).delete(KEY);
+        verify(storedBlobRepository).delete(blob);
+    }
+
+    @Test
+    void onBlobReleased_WhenReferencedAgain_ShouldKeepContent() throws Exception {
+        // Given
+        when(storedBlobRepository.findForUpdate(KEY)).thenReturn(Optional.of(new StoredBlob(KEY, 1)));
+
+        // When
+        references.onBlobReleased(new BlobReleasedEvent(KEY));
+
+        // Then
+        verify(blobStore, never()).delete(any());
+        verify(storedBlobRepository, never()).delete(any());
+    }
+
+    @Test
+    void onBlobStoreRolledBack_ShouldCountKeyAtZeroAndCollectIt() throws Exception {
+        // Given
+        StoredBlob blob = new StoredBlob(KEY, 0);
+        when(storedBlobRepository.findForUpdate(KEY)).thenReturn(Optional.of(blob));
+
+        // When
+        references.onBlobStoreRolledBack(new BlobStoredEvent(KEY));
+
+        // Then
+        verify(storedBlobRepository).addUnreferenced(KEY);
+        verify(blobStore).delete(KEY);
+        verify(imageVariants).delete(KEY);
+        verify(storedBlobRepository).delete(blob);
+    }
+
+    @Test
+    void onBlobStoreRolledBack_WhenSameContentCommittedElsewhere_ShouldKeepContent() throws Exception {
+        // Given
+        when(storedBlobRepository.findForUpdate(KEY)).thenReturn(Optional.of(new StoredBlob(KEY, 1)));
+
+        // When
+        references.onBlobStoreRolledBack(new BlobStoredEvent(KEY));
+
+        // Then
+        verify(blobStore, never()).delete(any());
+        verify(storedBlobRepository, never()).delete(any());
+    }
+
+    @Test
+    void collectUnreferenced_ShouldCollectContentLeftAtZero() throws Exception {
+        // Given
+        StoredBlob blob = new StoredBlob(KEY, 0);
+        when(storedBlobRepository.findUnreferenced()).thenReturn(List.of(KEY));
+        when(storedBlobRepository.findForUpdate(KEY)).thenReturn(Optional.of(blob));
+
+        // When
+        references.collectUnreferenced();
+
+        // Then
+        verify(blobStore).delete(KEY);
+        verify(storedBlobRepository).delete(blob);
+    }
+}
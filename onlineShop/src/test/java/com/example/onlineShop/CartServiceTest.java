@@ -1,15 +1,18 @@
 package com.example.onlineShop;
 
+import com.example.onlineShop.events.OrderPlacedEvent;
 import com.example.onlineShop.models.*;
 import com.example.onlineShop.repositories.*;
 import com.example.onlineShop.services.CartService;
 import com.example.onlineShop.services.EmailService;
+import com.example.onlineShop.services.RecommendationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.security.Principal;
 import java.time.LocalDateTime;
@@ -38,6 +41,12 @@ class CartServiceTest {
     @Mock
     private EmailService emailService;
 
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @Mock
     private Principal principal;
 
@@ -361,6 +370,7 @@ class CartServiceTest {
         // Then
         verify(emailService, never()).sendPurchaseConfirmation(anyString(), anyString(), anyInt());
         verify(userRepository, never()).save(any(User.class));
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
@@ -420,6 +430,27 @@ class CartServiceTest {
         verify(userRepository).save(testUser);
     }
 
+    @Test
+    void checkoutCart_ShouldPublishOrderWithPurchaseHistory() {
+        // Given
+        testCart.getItems().add(testCartItem);
+        when(principal.getName()).thenReturn("test@example.com");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(testUser);
+        when(cartRepository.findByUserId(1L)).thenReturn(testCart);
+        when(orderRepository.findRecentProductIdsByUser(1L, RecommendationService.MAX_HISTORY)).thenReturn(List.of(7L, 3L));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            order.setId(41L);
+            return order;
+        });
+
+        // When
+        cartService.checkoutCart(principal);
+
+        // Then
+        verify(eventPublisher).publishEvent(new OrderPlacedEvent(1L, 41L, List.of(1L), List.of(2), List.of(7L, 3L)));
+    }
+
     @Test
     void checkoutCart_ShouldSetCorrectPurchaseDate() {
         // Given
@@ -0,0 +1,113 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.models.OrderExportRow;
+import com.example.onlineShop.models.ProductExportRow;
+import com.example.onlineShop.models.User;
+import com.example.onlineShop.models.enums.ExportFormat;
+import com.example.onlineShop.models.enums.Role;
+import com.example.onlineShop.repositories.OrderRepository;
+import com.example.onlineShop.repositories.ProductRepository;
+import com.example.onlineShop.services.ExportService;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExportServiceTest {
+    private static final LocalDateTime CREATED = LocalDateTime.of(2025, 3, 1, 12, 30);
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ExportService exportService;
+    private User seller;
+    private User admin;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ExportService(productRepository, orderRepository, transactionManager,
+                // dates as ISO strings, as in the mapper Spring Boot configures
+                Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build());
+        seller = new User();
+        seller.setId(7L);
+        seller.setEmail("seller@example.com");
+        admin = new User();
+        admin.setId(1L);
+        admin.setEmail("admin@example.com");
+        admin.getRoles().add(Role.ROLE_ADMIN);
+    }
+
+    @Test
+    void exportProducts_AsCsv_ShouldQuoteFieldsAndCloseCursor() {
+        // Given
+        AtomicBoolean closed = new AtomicBoolean();
+        when(productRepository.streamExportRows(7L)).thenReturn(Stream.of(
+                new ProductExportRow(1L, "Lamp", "Warm, dimmable", 25, true, 7L, CREATED),
+                new ProductExportRow(2L, "Poster \"Waves\"", null, 10, false, 7L, CREATED)
+        ).onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        exportService.exportProducts(seller, ExportFormat.CSV, out);
+
+        // Then
+        assertEquals("id,title,description,price,active,sellerId,dateOfCreated\r\n" +
+                "1,Lamp,\"Warm, dimmable\",25,true,7,2025-03-01T12:30\r\n" +
+                "2,\"Poster \"\"Waves\"\"\",,10,false,7,2025-03-01T12:30\r\n", out.toString(StandardCharsets.UTF_8));
+        assertTrue(closed.get());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void exportOrders_AsJsonLines_ShouldWriteOneObjectPerLine() {
+        // Given
+        when(orderRepository.streamExportRows(7L)).thenReturn(Stream.of(
+                new OrderExportRow(5L, CREATED, 3L, "buyer@example.com", 1L, "Lamp", 25, 2),
+                new OrderExportRow(6L, CREATED, 4L, "other@example.com", 1L, "Lamp", 25, 1)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        exportService.exportOrders(seller, ExportFormat.JSONL, out);
+
+        // Then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"id\":5,\"purchaseDate\":\"2025-03-01T12:30:00\",\"buyerId\":3,\"buyerEmail\":\"buyer@example.com\"," +
+                "\"productId\":1,\"productTitle\":\"Lamp\",\"price\":25,\"quantity\":2}", lines[0]);
+    }
+
+    @Test
+    void exportProducts_ForAdmin_ShouldExportWholeCatalog() {
+        // Given
+        when(productRepository.streamExportRows(null)).thenReturn(Stream.empty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        exportService.exportProducts(admin, ExportFormat.CSV, out);
+
+        // Then
+        verify(productRepository).streamExportRows(null);
+        assertEquals("id,title,description,price,active,sellerId,dateOfCreated\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.repositories.FileSystemBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSystemBlobStoreTest {
+    // SHA-256 of "hello"
+    private static final String HELLO = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    private Path root;
+
+    private FileSystemBlobStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new FileSystemBlobStore(root);
+    }
+
+    @Test
+    void put_ShouldStoreContentUnderShardedSha256Path() throws IOException {
+        // When
+        String key = store.put(stream("hello"));
+
+        // Then
+        assertEquals(HELLO, key);
+        assertTrue(Files.isRegularFile(root.resolve("2c").resolve("f2").resolve(HELLO)));
+        assertEquals(5, store.size(key));
+        try (InputStream content = store.open(key)) {
+            assertEquals("hello", new String(content.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void put_WithSameContentTwice_ShouldKeepOneCopy() throws IOException {
+        // When
+        String first = store.put(stream("hello"));
+        String second = store.put(stream("hello"));
+
+        // Then
+        assertEquals(first, second);
+        try (var shard = Files.list(root.resolve("2c").resolve("f2"))) {
+            assertEquals(1, shard.count());
+        }
+        try (var incoming = Files.list(root.resolve("incoming"))) {
+            assertEquals(0, incoming.count());
+        }
+    }
+
+    @Test
+    void delete_ShouldRemoveContent() throws IOException {
+        // Given
+        String key = store.put(stream("hello"));
+
+        // When
+        store.delete(key);
+
+        // Then
+        assertFalse(store.exists(key));
+        assertThrows(NoSuchFileException.class, () -> store.open(key));
+    }
+
+    @Test
+    void open_WithMalformedKey_ShouldRefuseToLeaveRoot() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> store.open("../../etc/passwd"));
+    }
+
+    @Test
+    void constructor_ShouldRemoveIncompleteUploads() throws IOException {
+        // Given
+        Path leftover = Files.writeString(root.resolve("incoming").resolve("blob-1.tmp"), "partial");
+
+        // When
+        new FileSystemBlobStore(root);
+
+        // Then
+        assertFalse(Files.exists(leftover));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.repositories.FileSystemBlobStore;
+import com.example.onlineShop.services.ImageBlobMigration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageBlobMigrationTest {
+
+    @TempDir
+    private Path root;
+
+    private SingleConnectionDataSource dataSource;
+    private FileSystemBlobStore blobStore;
+    private ImageBlobMigration migration;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:migration", "sa", "", true);
+        blobStore = new FileSystemBlobStore(root);
+        migration = new ImageBlobMigration(dataSource, blobStore);
+        try (Statement statement = dataSource.getConnection().createStatement()) {
+            statement.execute("CREATE TABLE images (id BIGINT PRIMARY KEY, content_hash VARCHAR(64), bytes BLOB)");
+            statement.execute("CREATE TABLE stored_blobs (content_hash VARCHAR(64) PRIMARY KEY, ref_count BIGINT NOT NULL)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Test
+    void migrate_ShouldMoveBytesToBlobStoreAndDropColumn() throws Exception {
+        // Given
+        for (long id = 1; id <= 250; id++) {
+            insert(id, new byte[]{(byte) id, (byte) (id >> 8)});
+        }
+        insert(251, new byte[]{1, 0});
+
+        // When
+        int moved = migration.migrate();
+
+        // Then
+        assertEquals(251, moved);
+        assertArrayEquals(new byte[]{7, 0}, read(hashOf(7)));
+        // identical content is stored once and shared
+        assertEquals(hashOf(1), hashOf(251));
+        try (ResultSet columns = dataSource.getConnection().getMetaData().getColumns(null, null, "IMAGES", "BYTES")) {
+            assertFalse(columns.next());
+        }
+    }
+
+    @Test
+    void migrate_WhenAlreadyDone_ShouldDoNothing() throws Exception {
+        // Given
+        insert(1, new byte[]{1});
+        migration.migrate();
+
+        // When
+        int moved = migration.migrate();
+
+        // Then
+        assertEquals(0, moved);
+    }
+
+    @Test
+    void countReferences_ShouldCountImagesSharingContentOnce() throws Exception {
+        // Given
+        insert(1, new byte[]{1});
+        insert(2, new byte[]{1});
+        insert(3, new byte[]{2});
+        migration.migrate();
+
+        // When
+        int counted = migration.countReferences();
+        int countedAgain = migration.countReferences();
+
+        // Then
+        assertEquals(2, counted);
+        assertEquals(0, countedAgain);
+        assertEquals(2, refCount(hashOf(1)));
+        assertEquals(1, refCount(hashOf(3)));
+    }
+
+    private long refCount(String key) throws SQLException {
+        try (PreparedStatement select = dataSource.getConnection()
+                .prepareStatement("SELECT ref_count FROM stored_blobs WHERE content_hash = ?")) {
+            select.setString(1, key);
+            try (ResultSet row = select.executeQuery()) {
+                assertTrue(row.next());
+                return row.getLong(1);
+            }
+        }
+    }
+
+    private void insert(long id, byte[] bytes) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO images (id, bytes) VALUES (?, ?)")) {
+            insert.setLong(1, id);
+            insert.setBytes(2, bytes);
+            insert.executeUpdate();
+        }
+    }
+
+    private String hashOf(long id) throws SQLException {
+        try (PreparedStatement select = dataSource.getConnection()
+                .prepareStatement("SELECT content_hash FROM images WHERE id = ?")) {
+            select.setLong(1, id);
+            try (ResultSet row = select.executeQuery()) {
+                assertTrue(row.next());
+                return row.getString(1);
+            }
+        }
+    }
+
+    private byte[] read(String key) throws IOException {
+        try (InputStream content = blobStore.open(key)) {
+            return content.readAllBytes();
+        }
+    }
+}
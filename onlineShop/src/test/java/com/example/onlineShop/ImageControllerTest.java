@@ -0,0 +1,333 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.controllers.ImageController;
+import com.example.onlineShop.models.Image;
+import com.example.onlineShop.repositories.FileSystemBlobStore;
+import com.example.onlineShop.repositories.ImageRepository;
+import com.example.onlineShop.services.ImageVariants;
+import com.example.onlineShop.services.OffHeapImageCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@ExtendWith(MockitoExtension.class)
+class ImageControllerTest {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+    @TempDir
+    private Path root;
+
+    @Mock
+    private ImageRepository imageRepository;
+
+    private FileSystemBlobStore blobStore;
+    private ImageVariants imageVariants;
+    private OffHeapImageCache imageCache;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        blobStore = new FileSystemBlobStore(root);
+        imageVariants = new ImageVariants(blobStore, root.resolve("variants"), 1, 10);
+        imageCache = new OffHeapImageCache(1024 * 1024, 48 * 1024);
+        mockMvc = MockMvcBuilders.standaloneSetup(new ImageController(imageRepository, blobStore, imageVariants, imageCache))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageVariants.shutdown();
+    }
+
+    @Test
+    void getImage_WhenLargeAndSendfileSupported_ShouldLeaveBodyToConnector() throws Exception {
+        // Given
+        byte[] content = new byte[100_000];
+        Image image = image(content);
+
+        // When
+        MvcResult result = mockMvc.perform(get("/images/1").requestAttr(SENDFILE_SUPPORT, true)).andReturn();
+
+        // Then
+        MockHttpServletResponse response = result.getResponse();
+        assertEquals(200, response.getStatus());
+        assertEquals(100_000, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(root.resolve(image.getContentHash().substring(0, 2)).resolve(image.getContentHash().substring(2, 4))
+                        .resolve(image.getContentHash()).toAbsolutePath().toString(),
+                result.getRequest().getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(0L, result.getRequest().getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(100_000L, result.getRequest().getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    @Test
+    void getImage_WhenSmall_ShouldStreamBody() throws Exception {
+        // Given
+        byte[] content = {1, 2, 3, 4};
+        image(content);
+
+        // When
+        MvcResult result = mockMvc.perform(get("/images/1").requestAttr(SENDFILE_SUPPORT, true)).andReturn();
+
+        // Then
+        assertArrayEquals(content, result.getResponse().getContentAsByteArray());
+        assertEquals("image/png", result.getResponse().getContentType());
+        assertNull(result.getRequest().getAttribute("org.apache.tomcat.sendfile.filename"));
+    }
+
+    @Test
+    void getImage_WhenSmall_ShouldServeRepeatsFromCache() throws Exception {
+        // Given
+        image(sequence(1000));
+
+        // When
+        MockHttpServletResponse first = mockMvc.perform(get("/images/1")).andReturn().getResponse();
+        MockHttpServletResponse response = mockMvc.perform(get("/images/1")).andReturn().getResponse();
+
+        // Then
+        // the repeat is written from the cache's buffers, with the headers the first response had
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(sequence(1000), response.getContentAsByteArray());
+        assertEquals(1000, response.getContentLengthLong());
+        assertEquals(first.getContentType(), response.getContentType());
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertEquals(first.getHeader("ETag"), response.getHeader("ETag"));
+        assertEquals(1, imageCache.size());
+        assertEquals(0.5, imageCache.hitRatio());
+    }
+
+    @Test
+    void getImage_ShouldSendImmutableCacheHeaders() throws Exception {
+        // Given
+        Image image = image(new byte[]{1, 2, 3});
+
+        // When
+        MockHttpServletResponse response = mockMvc.perform(get("/images/1")).andReturn().getResponse();
+
+        // Then
+        assertEquals("max-age=31536000, public, immutable", response.getHeader("Cache-Control"));
+        assertEquals('"' + image.getContentHash() + '"', response.getHeader("ETag"));
+        assertNotNull(response.getHeader("Last-Modified"));
+    }
+
+    @Test
+    void getImage_WhenEtagMatches_ShouldAnswerNotModifiedWithoutBody() throws Exception {
+        // Given
+        Image image = image(new byte[100_000]);
+
+        // When
+        MvcResult result = mockMvc.perform(get("/images/1")
+                .header("If-None-Match", '"' + image.getContentHash() + '"')
+                .requestAttr(SENDFILE_SUPPORT, true)).andReturn();
+
+        // Then
+        assertEquals(304, result.getResponse().getStatus());
+        assertEquals(0, result.getResponse().getContentAsByteArray().length);
+        assertEquals("max-age=31536000, public, immutable", result.getResponse().getHeader("Cache-Control"));
+        assertNull(result.getRequest().getAttribute("org.apache.tomcat.sendfile.filename"));
+    }
+
+    @Test
+    void getImage_WhenEtagDiffers_ShouldSendImage() throws Exception {
+        // Given
+        image(new byte[]{1, 2, 3});
+
+        // When
+        MockHttpServletResponse response = mockMvc.perform(get("/images/1")
+                .header("If-None-Match", "\"" + "0".repeat(64) + "\"")).andReturn().getResponse();
+
+        // Then
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(new byte[]{1, 2, 3}, response.getContentAsByteArray());
+    }
+
+    @Test
+    void getImage_WhenContentMissing_ShouldReturnNotFound() throws Exception {
+        // Given
+        Image image = image(new byte[]{1});
+        blobStore.delete(image.getContentHash());
+
+        // When
+        MvcResult result = mockMvc.perform(get("/images/1")).andReturn();
+
+        // Then
+        assertEquals(404, result.getResponse().getStatus());
+    }
+
+    @Test
+    void getImage_WithSingleRange_ShouldSendPartialContent() throws Exception {
+        // Given
+        image(sequence(1000));
+
+        // When
+        MockHttpServletResponse response = mockMvc.perform(get("/images/1").header("Range", "bytes=10-19"))
+                .andReturn().getResponse();
+
+        // Then
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 10-19/1000", response.getHeader("Content-Range"));
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertArrayEquals(Arrays.copyOfRange(sequence(1000), 10, 20), response.getContentAsByteArray());
+    }
+
+    @Test
+    void getImage_WithLargeRangeAndSendfileSupported_ShouldHandRangeToConnector() throws Exception {
+        // Given
+        image(new byte[200_000]);
+
+        // When
+        MvcResult result = mockMvc.perform(get("/images/1").header("Range", "bytes=100000-")
+                .requestAttr(SENDFILE_SUPPORT, true)).andReturn();
+
+        // Then
+        assertEquals(206, result.getResponse().getStatus());
+        assertEquals("bytes 100000-199999/200000", result.getResponse().getHeader("Content-Range"));
+        assertEquals(100_000, result.getResponse().getContentLengthLong());
+        assertEquals(100_000L, result.getRequest().getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(200_000L, result.getRequest().getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    @Test
+    void getImage_WithSeveralRanges_ShouldSendMultipartByteranges() throws Exception {
+        // Given
+        image(sequence(1000));
+
+        // When
+        MockHttpServletResponse response = mockMvc.perform(get("/images/1").header("Range", "bytes=0-1,-2"))
+                .andReturn().getResponse();
+
+        // Then
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges"));
+        String body = response.getContentAsString(StandardCharsets.ISO_8859_1);
+        assertTrue(body.contains("Content-Range: bytes 0-1/1000"));
+        assertTrue(body.contains("Content-Range: bytes 998-999/1000"));
+    }
+
+    @Test
+    void getImage_WhenIfRangeNamesOtherVersion_ShouldSendWholeImage() throws Exception {
+        // Given
+        image(sequence(1000));
+
+        // When
+        MockHttpServletResponse response = mockMvc.perform(get("/images/1").header("Range", "bytes=10-19")
+                .header("If-Range", "\"" + "0".repeat(64) + "\"")).andReturn().getResponse();
+
+        // Then
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader("Content-Range"));
+        assertArrayEquals(sequence(1000), response.getContentAsByteArray());
+    }
+
+    @Test
+    void getImage_WhenIfRangeMatches_ShouldSendRange() throws Exception {
+        // Given
+        Image image = image(sequence(1000));
+
+        // When
+        MockHttpServletResponse response = mockMvc.perform(get("/images/1").header("Range", "bytes=-3")
+                .header("If-Range", '"' + image.getContentHash() + '"')).andReturn().getResponse();
+
+        // Then
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 997-999/1000", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void getImage_WhenRangeStartsPastEnd_ShouldAnswerRangeNotSatisfiable() throws Exception {
+        // Given
+        image(sequence(1000));
+
+        // When
+        MockHttpServletResponse response = mockMvc.perform(get("/images/1").header("Range", "bytes=1000-"))
+                .andReturn().getResponse();
+
+        // Then
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */1000", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void getImage_WithWidth_ShouldSendNearestVariant() throws Exception {
+        // Given
+        Image image = image(encode(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB)));
+        imageVariants.generate(image.getContentHash());
+
+        // When
+        MockHttpServletResponse response = mockMvc.perform(get("/images/1").param("w", "300"))
+                .andReturn().getResponse();
+
+        // Then
+        assertEquals(200, response.getStatus());
+        assertEquals("image/jpeg", response.getContentType());
+        assertEquals('"' + image.getContentHash() + "-400\"", response.getHeader("ETag"));
+        assertEquals("max-age=31536000, public, immutable", response.getHeader("Cache-Control"));
+        assertEquals(400, ImageIO.read(new ByteArrayInputStream(response.getContentAsByteArray())).getWidth());
+    }
+
+    @Test
+    void getImage_WithWidthBeforeVariantsExist_ShouldSendOriginalBriefly() throws Exception {
+        // Given
+        byte[] original = encode(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB));
+        Image image = image(original);
+
+        // When
+        MockHttpServletResponse response = mockMvc.perform(get("/images/1").param("w", "200"))
+                .andReturn().getResponse();
+
+        // Then
+        assertArrayEquals(original, response.getContentAsByteArray());
+        assertEquals("max-age=60", response.getHeader("Cache-Control"));
+        for (int i = 0; i < 100 && !imageVariants.isGenerated(image.getContentHash()); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(imageVariants.isGenerated(image.getContentHash()));
+    }
+
+    private static byte[] encode(BufferedImage picture) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(picture, "jpg", encoded);
+        return encoded.toByteArray();
+    }
+
+    private static byte[] sequence(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) i;
+        }
+        return content;
+    }
+
+    private Image image(byte[] content) throws IOException {
+        Image image = new Image();
+        image.setId(1L);
+        image.setOriginalFileName("photo.png");
+        image.setContentType("image/png");
+        image.setSize((long) content.length);
+        image.setContentHash(blobStore.put(new ByteArrayInputStream(content)));
+        when(imageRepository.findById(1L)).thenReturn(Optional.of(image));
+        return image;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.onlineShop;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Compares throughput and bytes allocated per image response over a loopback socket:
+// the old path (image bytes loaded into the heap, then copied out of a ByteArrayInputStream),
+// a buffered stream from the blob file, and FileChannel.transferTo as used by the connector's sendfile.
+// Not picked up by the default surefire run; execute with
+//   mvn test -Dtest=ImageServingBenchmark
+class ImageServingBenchmark {
+    private static final int IMAGE_BYTES = 512 * 1024;
+    private static final int WARMUP = 500;
+    private static final int ITERATIONS = 2_000;
+
+    @TempDir
+    private Path directory;
+
+    private Path image;
+    private ServerSocketChannel server;
+    private SocketChannel client;
+    private Thread drain;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        byte[] content = new byte[IMAGE_BYTES];
+        new Random(42).nextBytes(content);
+        image = Files.write(directory.resolve("image.jpg"), content);
+
+        server = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+        client = SocketChannel.open(server.getLocalAddress());
+        SocketChannel peer = server.accept();
+        // the browser: reads everything and throws it away
+        drain = new Thread(() -> {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+            try (peer) {
+                while (peer.read(buffer) >= 0) {
+                    buffer.clear();
+                }
+            } catch (IOException ignored) {
+            }
+        });
+        drain.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.close();
+        drain.join();
+        server.close();
+    }
+
+    @Test
+    void imageResponse_HeapCopyVsStreamVsTransferTo() throws IOException {
+        // Given
+        // a plain stream like the servlet's, so the JDK cannot shortcut stream copies into channel transfers
+        OutputStream channelStream = Channels.newOutputStream(client);
+        OutputStream socket = new FilterOutputStream(channelStream) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                channelStream.write(bytes, offset, length);
+            }
+        };
+        Call heapCopy = () -> {
+            byte[] bytes = Files.readAllBytes(image);
+            new ByteArrayInputStream(bytes).transferTo(socket);
+        };
+        Call stream = () -> {
+            try (InputStream in = Files.newInputStream(image)) {
+                in.transferTo(socket);
+            }
+        };
+        Call transferTo = () -> {
+            try (FileChannel file = FileChannel.open(image, StandardOpenOption.READ)) {
+                long position = 0;
+                long size = file.size();
+                while (position < size) {
+                    position += file.transferTo(position, size - position, client);
+                }
+            }
+        };
+
+        // When
+        Result heap = measure(heapCopy);
+        Result buffered = measure(stream);
+        Result zeroCopy = measure(transferTo);
+
+        // Then
+        System.out.printf("%d KB image: heap copy %s; buffered stream %s; transferTo %s%n",
+                IMAGE_BYTES / 1024, heap, buffered, zeroCopy);
+        assertTrue(zeroCopy.bytesPerCall < heap.bytesPerCall / 10);
+    }
+
+    private static Result measure(Call call) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            call.run();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long started = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            call.run();
+        }
+        long elapsed = System.nanoTime() - started;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        double megabytesPerSecond = (double) IMAGE_BYTES * ITERATIONS / (1 << 20) / (elapsed / 1e9);
+        double allocationRate = allocated / (double) (1 << 20) / (elapsed / 1e9);
+        return new Result(megabytesPerSecond, allocated / ITERATIONS, allocationRate);
+    }
+
+    private interface Call {
+        void run() throws IOException;
+    }
+
+    private record Result(double megabytesPerSecond, long bytesPerCall, double allocatedMegabytesPerSecond) {
+        @Override
+        public String toString() {
+            return String.format("%,.0f MB/s, %,d B/response allocated (%,.0f MB/s)",
+                    megabytesPerSecond, bytesPerCall, allocatedMegabytesPerSecond);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.repositories.FileSystemBlobStore;
+import com.example.onlineShop.services.ImageVariants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageVariantsTest {
+    @TempDir
+    private Path root;
+
+    private FileSystemBlobStore blobStore;
+    private ImageVariants variants;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        blobStore = new FileSystemBlobStore(root.resolve("blobs"));
+        variants = new ImageVariants(blobStore, root.resolve("variants"), 1, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        variants.shutdown();
+    }
+
+    @Test
+    void generate_ShouldScaleDownToEveryNarrowerWidthKeepingAspectRatio() throws IOException {
+        // Given
+        String key = store(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB), "jpg");
+
+        // When
+        int written = variants.generate(key);
+
+        // Then
+        assertEquals(3, written);
+        assertTrue(variants.isGenerated(key));
+        for (int width : ImageVariants.WIDTHS) {
+            ImageVariants.Variant variant = variants.nearest(key, width);
+            assertEquals(width, variant.width());
+            assertEquals(MediaType.IMAGE_JPEG, variant.contentType());
+            BufferedImage scaled = read(variant);
+            assertEquals(width, scaled.getWidth());
+            assertEquals(width / 2, scaled.getHeight());
+        }
+    }
+
+    @Test
+    void nearest_ShouldPickNarrowestVariantAtLeastAsWide() throws IOException {
+        // Given
+        String key = store(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB), "jpg");
+        variants.generate(key);
+
+        // When / Then
+        assertEquals(200, variants.nearest(key, 1).width());
+        assertEquals(400, variants.nearest(key, 201).width());
+        assertEquals(800, variants.nearest(key, 640).width());
+        assertNull(variants.nearest(key, 801));
+    }
+
+    @Test
+    void generate_WithNarrowOriginal_ShouldOnlyWriteSmallerWidths() throws IOException {
+        // Given
+        String key = store(new BufferedImage(300, 300, BufferedImage.TYPE_INT_ARGB), "png");
+
+        // When
+        int written = variants.generate(key);
+
+        // Then
+        assertEquals(1, written);
+        assertEquals(MediaType.IMAGE_PNG, variants.nearest(key, 100).contentType());
+        // the original is the best fit for anything wider than the one variant
+        assertNull(variants.nearest(key, 300));
+    }
+
+    @Test
+    void generate_WithUnreadableContent_ShouldMarkDoneWithoutVariants() throws IOException {
+        // Given
+        String key = blobStore.put(new ByteArrayInputStream("not an image".getBytes(StandardCharsets.UTF_8)));
+
+        // When
+        int written = variants.generate(key);
+
+        // Then
+        assertEquals(0, written);
+        assertTrue(variants.isGenerated(key));
+        assertNull(variants.nearest(key, 200));
+    }
+
+    @Test
+    void generateLater_ShouldGenerateInBackground() throws Exception {
+        // Given
+        String key = store(new BufferedImage(500, 500, BufferedImage.TYPE_INT_RGB), "jpg");
+
+        // When
+        variants.generateLater(key);
+
+        // Then
+        for (int i = 0; i < 100 && !variants.isGenerated(key); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(variants.isGenerated(key));
+        assertEquals(400, variants.nearest(key, 400).width());
+    }
+
+    private String store(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(image, format, encoded);
+        return blobStore.put(new ByteArrayInputStream(encoded.toByteArray()));
+    }
+
+    private static BufferedImage read(ImageVariants.Variant variant) throws IOException {
+        try (InputStream content = variant.content().getInputStream()) {
+            return ImageIO.read(content);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.models.Image;
+import com.example.onlineShop.models.Product;
+import com.example.onlineShop.models.User;
+import com.example.onlineShop.repositories.ImageRepository;
+import com.example.onlineShop.repositories.ImageRepositoryImpl;
+import com.example.onlineShop.repositories.ProductRepository;
+import com.example.onlineShop.repositories.ProductRepositoryImpl;
+import com.example.onlineShop.repositories.UserRepository;
+import com.example.onlineShop.repositories.UserRepositoryImpl;
+import jakarta.persistence.EntityManager;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The SQL behind user lookups, the admin user list, the product page and image serving: none of it may select a
+// binary LOB column, and lookups that need no images must not read the images table at all.
+@DataJpaTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.example.onlineShop.MetadataQueryTest$Recorder"
+})
+@Import({UserRepositoryImpl.class, ProductRepositoryImpl.class, ImageRepositoryImpl.class})
+class MetadataQueryTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    private Long productId;
+    private Long imageId;
+
+    @BeforeEach
+    void setUp() {
+        User seller = new User();
+        seller.setEmail("seller@example.com");
+        seller.setName("Seller");
+        seller.setAvatar(image());
+        entityManager.persist(seller);
+        Product product = new Product();
+        product.setTitle("Lamp");
+        product.setDescription("A lamp");
+        product.setPrice(10);
+        product.setUser(seller);
+        product.addImageToProduct(image());
+        entityManager.persist(product);
+        entityManager.flush();
+        productId = product.getId();
+        imageId = product.getImages().get(0).getId();
+        entityManager.clear();
+        Recorder.STATEMENTS.clear();
+    }
+
+    @Test
+    void findByEmail_ShouldNotReadImages() {
+        // When
+        User user = userRepository.findByEmail("seller@example.com");
+
+        // Then
+        assertNotNull(user);
+        assertNoLobSelected();
+        assertNotRead("images");
+    }
+
+    @Test
+    void findAll_ShouldNotReadImages() {
+        // When
+        List<User> users = userRepository.findAll();
+
+        // Then
+        assertEquals(1, users.size());
+        assertNoLobSelected();
+        assertNotRead("images");
+    }
+
+    @Test
+    void findDetailsById_ShouldReadImageMetadataOnly() {
+        // When
+        var details = productRepository.findDetailsById(productId).orElseThrow();
+
+        // Then
+        assertEquals(1, details.getImages().size());
+        assertNoLobSelected();
+    }
+
+    @Test
+    void findImageById_ShouldNotReadProduct() {
+        // When
+        Image image = imageRepository.findById(imageId).orElseThrow();
+
+        // Then
+        assertEquals("photo.jpg", image.getOriginalFileName());
+        assertNoLobSelected();
+        assertNotRead("products");
+        assertNotRead("users");
+    }
+
+    private void assertNoLobSelected() {
+        List<String> statements = Recorder.statements();
+        List<String> lobColumns = lobColumns();
+        for (String statement : statements) {
+            for (String column : lobColumns) {
+                assertFalse(Pattern.compile("\\b" + column + "\\b").matcher(statement).find(),
+                        "LOB column " + column + " read by: " + statement);
+            }
+        }
+    }
+
+    private static void assertNotRead(String table) {
+        Pattern reference = Pattern.compile("\\b" + table + "\\b");
+        for (String statement : Recorder.statements()) {
+            assertFalse(reference.matcher(statement).find(), table + " read by: " + statement);
+        }
+    }
+
+    // binary large object columns of every table, as the schema actually declares them
+    @SuppressWarnings("unchecked")
+    private List<String> lobColumns() {
+        List<String> columns = new ArrayList<>();
+        for (Object column : entityManager.createNativeQuery(
+                        "SELECT LOWER(column_name) FROM information_schema.columns " +
+                                "WHERE table_schema = 'PUBLIC' AND data_type = 'BINARY LARGE OBJECT'")
+                .getResultList()) {
+            columns.add((String) column);
+        }
+        return columns;
+    }
+
+    private static Image image() {
+        Image image = new Image();
+        image.setName("file1");
+        image.setOriginalFileName("photo.jpg");
+        image.setContentType("image/jpeg");
+        image.setSize(3L);
+        image.setContentHash("a".repeat(64));
+        return image;
+    }
+
+    public static class Recorder implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        static List<String> statements() {
+            List<String> selects = new ArrayList<>();
+            for (String statement : STATEMENTS) {
+                if (statement.startsWith("select")) selects.add(statement);
+            }
+            assertFalse(selects.isEmpty(), "no statement recorded");
+            return selects;
+        }
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql.toLowerCase(Locale.ROOT));
+            return sql;
+        }
+    }
+}
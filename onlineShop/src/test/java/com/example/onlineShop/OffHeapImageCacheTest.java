@@ -0,0 +1,212 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.services.OffHeapImageCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapImageCacheTest {
+    private static final int CHUNK = 16 * 1024;
+
+    @TempDir
+    private Path root;
+
+    private OffHeapImageCache cache;
+
+    @BeforeEach
+    void setUp() {
+        // room for four chunks
+        cache = new OffHeapImageCache(4 * CHUNK, 2 * CHUNK);
+    }
+
+    @Test
+    void get_ShouldServeSameBytesFromMemory() throws IOException {
+        // Given
+        byte[] content = sequence(CHUNK + 100);
+        Resource file = file("a", content);
+
+        // When
+        Resource first = cache.get("a", file);
+        Files.delete(file.getFile().toPath());
+        Resource second = cache.get("a", file);
+
+        // Then
+        assertFalse(first.isFile());
+        assertArrayEquals(content, read(second));
+        assertEquals(content.length, second.contentLength());
+        assertEquals(2L * CHUNK, cache.residentBytes());
+        assertEquals(0.5, cache.hitRatio());
+    }
+
+    @Test
+    void stream_ShouldSkipAcrossChunks() throws IOException {
+        // Given
+        byte[] content = sequence(CHUNK + 100);
+        Resource cached = cache.get("a", file("a", content));
+
+        // When
+        byte[] tail;
+        try (InputStream in = cached.getInputStream()) {
+            assertEquals(CHUNK + 90, in.skip(CHUNK + 90));
+            tail = in.readAllBytes();
+        }
+
+        // Then
+        assertEquals(10, tail.length);
+        assertEquals(content[CHUNK + 90], tail[0]);
+    }
+
+    @Test
+    void get_WhenOverBudget_ShouldEvictLeastRecentlyRead() throws IOException {
+        // Given
+        Resource a = file("a", sequence(CHUNK));
+        cache.get("a", a);
+        cache.get("b", file("b", sequence(2 * CHUNK)));
+        cache.get("a", a);
+
+        // When
+        cache.get("c", file("c", sequence(2 * CHUNK)));
+
+        // Then
+        Files.delete(a.getFile().toPath());
+        assertArrayEquals(sequence(CHUNK), read(cache.get("a", a)));
+        assertEquals(2, cache.size());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        assertEquals(1.0, registry.get("cache.evictions").functionCounter().count());
+        assertEquals(3.0 * CHUNK, registry.get("cache.weight").gauge().value());
+        assertEquals(2.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void get_WhenLargerThanEntryLimit_ShouldReturnFile() throws IOException {
+        // Given
+        Resource file = file("a", new byte[2 * CHUNK + 1]);
+
+        // When
+        Resource served = cache.get("a", file);
+
+        // Then
+        assertSame(file, served);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.residentBytes());
+    }
+
+    @Test
+    void evictedEntry_ShouldKeepItsBytesUntilOpenStreamCloses() throws IOException {
+        // Given
+        byte[] content = sequence(2 * CHUNK);
+        Resource a = cache.get("a", file("a", content));
+        InputStream reading = a.getInputStream();
+        assertEquals(0, reading.read());
+
+        // When
+        cache.get("b", file("b", new byte[2 * CHUNK]));
+        cache.get("c", file("c", new byte[2 * CHUNK]));
+
+        // Then
+        byte[] rest = reading.readAllBytes();
+        assertEquals(content[1], rest[0]);
+        assertEquals(content[content.length - 1], rest[rest.length - 1]);
+        assertEquals(4L * CHUNK, cache.residentBytes());
+        reading.close();
+        assertEquals(2L * CHUNK, cache.residentBytes());
+        // a stream opened after eviction falls back to the file
+        assertArrayEquals(content, read(a));
+    }
+
+    @Test
+    void slices_ShouldWriteDirectChunksToChannel() throws IOException {
+        // Given
+        byte[] content = sequence(CHUNK + 100);
+        Resource cached = cache.get("a", file("a", content));
+        Collector channel = new Collector();
+
+        // When
+        try (OffHeapImageCache.Slices slices = cache.slices(cached)) {
+            slices.writeTo(channel);
+        }
+
+        // Then
+        assertArrayEquals(content, channel.bytes.toByteArray());
+        assertTrue(channel.allDirect);
+    }
+
+    @Test
+    void slices_ShouldKeepEvictedEntryUntilClosed() throws IOException {
+        // Given
+        byte[] content = sequence(2 * CHUNK);
+        Resource a = cache.get("a", file("a", content));
+        OffHeapImageCache.Slices slices = cache.slices(a);
+
+        // When
+        cache.get("b", file("b", new byte[2 * CHUNK]));
+        cache.get("c", file("c", new byte[2 * CHUNK]));
+
+        // Then
+        Collector channel = new Collector();
+        slices.writeTo(channel);
+        assertArrayEquals(content, channel.bytes.toByteArray());
+        assertEquals(4L * CHUNK, cache.residentBytes());
+        slices.close();
+        assertEquals(2L * CHUNK, cache.residentBytes());
+        // once evicted, or never cached, the resource reads its file
+        assertNull(cache.slices(a));
+        assertNull(cache.slices(file("d", content)));
+    }
+
+    private Resource file(String name, byte[] content) throws IOException {
+        return new FileSystemResource(Files.write(root.resolve(name), content));
+    }
+
+    private static byte[] read(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] sequence(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        return content;
+    }
+
+    private static final class Collector implements WritableByteChannel {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        boolean allDirect = true;
+
+        @Override
+        public int write(ByteBuffer source) {
+            allDirect &= source.isDirect();
+            int count = source.remaining();
+            byte[] copy = new byte[count];
+            source.get(copy);
+            bytes.write(copy, 0, count);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.events.ProductChangedEvent;
+import com.example.onlineShop.filters.PageCacheFilter;
+import com.example.onlineShop.services.CatalogVersion;
+import com.example.onlineShop.services.ProductViewCounter;
+import com.example.onlineShop.services.SearchAnalytics;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PageCacheFilterTest {
+
+    private CatalogVersion catalogVersion;
+    private SearchAnalytics searchAnalytics;
+    private ProductViewCounter viewCounter;
+    private MutableClock clock;
+    private PageCacheFilter filter;
+    private String html;
+    private int renders;
+
+    @BeforeEach
+    void setUp() {
+        catalogVersion = new CatalogVersion(List.of());
+        searchAnalytics = mock(SearchAnalytics.class);
+        viewCounter = mock(ProductViewCounter.class);
+        clock = new MutableClock();
+        filter = new PageCacheFilter(catalogVersion, searchAnalytics, viewCounter, 1 << 20, Duration.ofMinutes(1), clock);
+        html = "<html><body>Catalog</body></html>";
+        renders = 0;
+    }
+
+    @Test
+    void doFilter_ShouldServeRepeatedAnonymousRequestFromCache() throws Exception {
+        // When
+        MockHttpServletResponse first = get("/", null);
+        MockHttpServletResponse second = get("/", null);
+
+        // Then
+        assertEquals(1, renders);
+        assertEquals(html, second.getContentAsString());
+        assertEquals("text/html;charset=UTF-8", second.getContentType());
+        assertNotNull(first.getHeader("ETag"));
+        assertEquals(first.getHeader("ETag"), second.getHeader("ETag"));
+        assertEquals("no-cache", second.getHeader("Cache-Control"));
+    }
+
+    @Test
+    void doFilter_WhenEtagMatches_ShouldAnswerNotModified() throws Exception {
+        // Given
+        String etag = get("/product/1", null).getHeader("ETag");
+
+        // When
+        MockHttpServletResponse response = get("/product/1", etag);
+
+        // Then
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(1, renders);
+    }
+
+    @Test
+    void doFilter_ShouldKeySeparatelyByQuery() throws Exception {
+        // When
+        get("/?title=lamp", null);
+        get("/?title=sofa", null);
+        get("/?title=lamp", null);
+
+        // Then
+        assertEquals(2, renders);
+        assertEquals(2, filter.size());
+    }
+
+    @Test
+    void doFilter_WhenSearchPageServedFromCache_ShouldStillRecordSearch() throws Exception {
+        // When
+        get("/?searchWord=lamp", null);
+        get("/?searchWord=lamp", null);
+
+        // Then
+        assertEquals(1, renders);
+        // the first search is recorded by the controller, the cached repeat by the filter
+        verify(searchAnalytics).record("lamp", 3);
+    }
+
+    @Test
+    void doFilter_WhenProductPageServedFromCache_ShouldStillCountView() throws Exception {
+        // Given
+        String etag = get("/product/7", null).getHeader("ETag");
+
+        // When
+        get("/product/7", null);
+        get("/product/7", etag);
+
+        // Then
+        assertEquals(1, renders);
+        verify(viewCounter, times(2)).record(7L);
+        verifyNoInteractions(searchAnalytics);
+    }
+
+    @Test
+    void doFilter_WhenCatalogChanged_ShouldRenderAgain() throws Exception {
+        // Given
+        String etag = get("/", null).getHeader("ETag");
+        html = "<html><body>Catalog with a new product</body></html>";
+
+        // When
+        catalogVersion.onProductChanged(new ProductChangedEvent(1L, "Lamp", "", 10, true));
+        MockHttpServletResponse response = get("/", etag);
+
+        // Then
+        assertEquals(200, response.getStatus());
+        assertEquals(html, response.getContentAsString());
+        assertNotEquals(etag, response.getHeader("ETag"));
+        assertEquals(2, renders);
+    }
+
+    @Test
+    void doFilter_WhenPageHasLiveContent_ShouldRenderAgainAfterTtl() throws Exception {
+        // Given
+        get("/product/1", null);
+        clock.advance(Duration.ofSeconds(59));
+        get("/product/1", null);
+
+        // When
+        clock.advance(Duration.ofSeconds(1));
+        html = "<html><body>Lamp, bought with a sofa</body></html>";
+        MockHttpServletResponse response = get("/product/1", null);
+
+        // Then
+        assertEquals(2, renders);
+        assertEquals(html, response.getContentAsString());
+    }
+
+    @Test
+    void doFilter_WhenPageHasNoLiveContent_ShouldKeepItUntilCatalogChanges() throws Exception {
+        // Given
+        get("/", null);
+
+        // When
+        clock.advance(Duration.ofHours(1));
+        get("/", null);
+
+        // Then
+        assertEquals(1, renders);
+    }
+
+    @Test
+    void doFilter_WhenPageHasCsrfToken_ShouldNotCache() throws Exception {
+        // Given
+        html = "<form><input type=\"hidden\" name=\"_csrf\" value=\"secret\"></form>";
+
+        // When
+        get("/product/1", null);
+        MockHttpServletResponse second = get("/product/1", null);
+
+        // Then
+        assertEquals(2, renders);
+        assertEquals(html, second.getContentAsString());
+        assertEquals(0, filter.size());
+    }
+
+    @Test
+    void doFilter_WhenSignedIn_ShouldBypassCache() throws Exception {
+        // Given
+        get("/", null);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.setUserPrincipal(() -> "user@example.com");
+
+        // When
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(new PageServlet()));
+
+        // Then
+        assertEquals(2, renders);
+        assertNull(response.getHeader("ETag"));
+    }
+
+    private MockHttpServletResponse get(String uri, String ifNoneMatch) throws Exception {
+        int query = uri.indexOf('?');
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", query < 0 ? uri : uri.substring(0, query));
+        if (query >= 0) {
+            request.setQueryString(uri.substring(query + 1));
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(new PageServlet()));
+        return response;
+    }
+
+    private class PageServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            renders++;
+            if (request.getQueryString() != null && request.getQueryString().startsWith("searchWord=")) {
+                request.setAttribute(SearchAnalytics.SEARCH_ATTRIBUTE, new SearchAnalytics.Search("lamp", 3));
+            }
+            if (request.getRequestURI().startsWith("/product/")) {
+                request.setAttribute(ProductViewCounter.VIEWED_PRODUCT_ATTRIBUTE,
+                        Long.valueOf(request.getRequestURI().substring("/product/".length())));
+                request.setAttribute(PageCacheFilter.LIVE_CONTENT_ATTRIBUTE, Boolean.TRUE);
+            }
+            response.setContentType("text/html;charset=UTF-8");
+            response.getWriter().write(html);
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
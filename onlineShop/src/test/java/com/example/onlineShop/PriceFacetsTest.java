@@ -0,0 +1,125 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.events.ProductBatchChangedEvent;
+import com.example.onlineShop.events.ProductChangedEvent;
+import com.example.onlineShop.models.PriceFacet;
+import com.example.onlineShop.models.ProductDocument;
+import com.example.onlineShop.repositories.ProductRepository;
+import com.example.onlineShop.services.PriceFacets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PriceFacetsTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @InjectMocks
+    private PriceFacets priceFacets;
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findActivePrices(eq(0L), anyInt())).thenReturn(List.of(
+                new ProductDocument(1L, 250),
+                new ProductDocument(2L, 5),
+                new ProductDocument(3L, 10),
+                new ProductDocument(4L, 49),
+                new ProductDocument(5L, 50),
+                new ProductDocument(6L, 9)));
+        when(productRepository.findActivePrices(eq(6L), anyInt())).thenReturn(List.of());
+        priceFacets.rebuild();
+    }
+
+    @Test
+    void countAll_ShouldCountEveryBucketWithInclusiveLowerBound() {
+        // When
+        List<PriceFacet> result = priceFacets.countAll();
+
+        // Then
+        assertEquals(List.of(2, 2, 1, 1), counts(result));
+        assertNull(result.get(0).getMinPrice());
+        assertEquals(9, result.get(0).getMaxPrice());
+        assertEquals(200, result.get(3).getMinPrice());
+        assertNull(result.get(3).getMaxPrice());
+    }
+
+    @Test
+    void count_ShouldOnlyCountMatchingActiveProducts() {
+        // When
+        List<PriceFacet> result = priceFacets.count(new long[]{1L, 4L, 3L, 99L});
+
+        // Then
+        assertEquals(List.of(0, 2, 0, 1), counts(result));
+    }
+
+    @Test
+    void sortByPrice_ShouldOrderActiveProductsAndKeepTiesInPlace() {
+        // Given
+        priceFacets.onProductChanged(new ProductChangedEvent(7L, "Pen", "", 10, true));
+
+        // When
+        long[] ascending = priceFacets.sortByPrice(new long[]{1L, 7L, 2L, 99L, 3L}, true);
+        long[] descending = priceFacets.sortByPrice(new long[]{1L, 7L, 2L, 99L, 3L}, false);
+
+        // Then
+        assertArrayEquals(new long[]{2L, 7L, 3L, 1L}, ascending);
+        assertArrayEquals(new long[]{1L, 7L, 3L, 2L}, descending);
+    }
+
+    @Test
+    void onProductChanged_ShouldMovePriceBetweenBuckets() {
+        // When
+        priceFacets.onProductChanged(new ProductChangedEvent(2L, "Mug", "", 120, true));
+        priceFacets.onProductChanged(new ProductChangedEvent(1L, "Lamp", "", 250, false));
+        priceFacets.onProductChanged(new ProductChangedEvent(7L, "Pen", "", 1, true));
+
+        // Then
+        assertEquals(List.of(2, 2, 2, 0), counts(priceFacets.countAll()));
+        assertEquals(List.of(0, 0, 1, 0), counts(priceFacets.count(new long[]{1L, 2L})));
+    }
+
+    @Test
+    void onProductsChanged_ShouldMergeBatchIntoSortedPrices() {
+        // When
+        priceFacets.onProductsChanged(new ProductBatchChangedEvent(List.of(
+                new ProductChangedEvent(7L, "Pen", "", 1, true),
+                new ProductChangedEvent(2L, "Mug", "", 120, true),
+                new ProductChangedEvent(1L, "Lamp", "", 250, false),
+                new ProductChangedEvent(8L, "Cup", "", 60, true),
+                new ProductChangedEvent(8L, "Cup", "", 60, false),
+                new ProductChangedEvent(9L, "Rug", "", 300, true))));
+
+        // Then
+        assertEquals(List.of(2, 2, 2, 1), counts(priceFacets.countAll()));
+        assertArrayEquals(new long[]{7L, 6L, 3L, 4L, 5L, 2L, 9L},
+                priceFacets.sortByPrice(new long[]{1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L}, true));
+        priceFacets.onProductChanged(new ProductChangedEvent(3L, "Pot", "", 200, true));
+        assertEquals(List.of(2, 1, 2, 2), counts(priceFacets.countAll()));
+    }
+
+    @Test
+    void onProductChanged_WithLargeProductId_ShouldStillCountIt() {
+        // When
+        priceFacets.onProductChanged(new ProductChangedEvent(5_000_000_000L, "Desk", "", 300, true));
+
+        // Then
+        assertEquals(List.of(0, 0, 0, 1), counts(priceFacets.count(new long[]{5_000_000_000L})));
+        assertArrayEquals(new long[]{5_000_000_000L}, priceFacets.withinPrice(new long[]{5_000_000_000L, 2L}, 100, null));
+    }
+
+    private static List<Integer> counts(List<PriceFacet> facets) {
+        return facets.stream().map(PriceFacet::getCount).toList();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.models.CatalogFilter;
+import com.example.onlineShop.models.Product;
+import com.example.onlineShop.repositories.ProductRepository;
+import com.example.onlineShop.repositories.ProductRepositoryImpl;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Compares bytes allocated per catalog page: full Product entities vs the ProductCard projection.
+// Not picked up by the default surefire run; execute with
+//   mvn test -Dtest=ProductCardAllocationBenchmark
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import(ProductRepositoryImpl.class)
+class ProductCardAllocationBenchmark {
+    private static final int PRODUCTS = 2_000;
+    private static final int PAGE_SIZE = 25;
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 5_000;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        String description = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. ".repeat(20);
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setTitle("Product " + i);
+            product.setDescription(description);
+            product.setPrice(10 + i % 500);
+            product.setPreviewImageId((long) i);
+            entityManager.persist(product);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void listingPage_EntitiesVsCards() {
+        // Given
+        Runnable entities = () -> endOfRequest(entityManager
+                .createQuery("SELECT p FROM Product p WHERE p.active = true ORDER BY p.id DESC", Product.class)
+                .setMaxResults(PAGE_SIZE + 1)
+                .getResultList());
+        Runnable cards = () -> endOfRequest(productRepository.findActiveCards(CatalogFilter.title(null), null, null, PAGE_SIZE + 1));
+
+        // When
+        long entityBytes = bytesPerCall(entities);
+        long cardBytes = bytesPerCall(cards);
+
+        // Then
+        System.out.printf("listing page of %d: entities %,d B/request, cards %,d B/request (%.1f%% less)%n",
+                PAGE_SIZE, entityBytes, cardBytes, 100.0 * (entityBytes - cardBytes) / entityBytes);
+        assertTrue(cardBytes < entityBytes);
+    }
+
+    // a request ends with a flush (dirty checking every managed entity) and a fresh persistence context
+    private void endOfRequest(Object page) {
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static long bytesPerCall(Runnable call) {
+        for (int i = 0; i < WARMUP; i++) {
+            call.run();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            call.run();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / ITERATIONS;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.events.ProductChangedEvent;
+import com.example.onlineShop.models.ProductDetails;
+import com.example.onlineShop.repositories.ProductRepository;
+import com.example.onlineShop.services.ProductDetailsCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductDetailsCacheTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductDetailsCache cache;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        // room for two of the details built below, not three
+        cache = new ProductDetailsCache(productRepository, 2 * details(1L).estimatedBytes() + 10);
+        registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+    }
+
+    @Test
+    void get_ShouldLoadOnceAndServeRepeatedReadsFromCache() {
+        // Given
+        ProductDetails details = details(1L);
+        when(productRepository.findDetailsById(1L)).thenReturn(Optional.of(details));
+
+        // When
+        ProductDetails first = cache.get(1L);
+        ProductDetails second = cache.get(1L);
+
+        // Then
+        assertSame(details, first);
+        assertSame(details, second);
+        verify(productRepository, times(1)).findDetailsById(1L);
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void get_WhenProductMissing_ShouldReturnNullWithoutCaching() {
+        // Given
+        when(productRepository.findDetailsById(9L)).thenReturn(Optional.empty());
+
+        // When
+        ProductDetails result = cache.get(9L);
+
+        // Then
+        assertNull(result);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void onProductChanged_ShouldDropEntrySoNextReadReloads() {
+        // Given
+        when(productRepository.findDetailsById(1L)).thenReturn(Optional.of(details(1L)));
+        cache.get(1L);
+
+        // When
+        cache.onProductChanged(new ProductChangedEvent(1L, "Renamed", "", 10, true));
+        cache.get(1L);
+
+        // Then
+        verify(productRepository, times(2)).findDetailsById(1L);
+    }
+
+    @Test
+    void get_WhenOverByteBudget_ShouldEvictLeastRecentlyRead() {
+        // Given
+        for (long id = 1; id <= 3; id++) {
+            when(productRepository.findDetailsById(id)).thenReturn(Optional.of(details(id)));
+        }
+        cache.get(1L);
+        cache.get(2L);
+        cache.get(1L);
+
+        // When
+        cache.get(3L);
+
+        // Then
+        assertEquals(2, cache.size());
+        assertTrue(cache.weight() <= 2 * details(1L).estimatedBytes() + 10);
+        assertEquals(1.0, registry.get("cache.evictions").functionCounter().count());
+        cache.get(1L);
+        verify(productRepository, times(1)).findDetailsById(1L);
+        cache.get(2L);
+        verify(productRepository, times(2)).findDetailsById(2L);
+    }
+
+    @Test
+    void get_WhenInvalidatedDuringLoad_ShouldNotStoreStaleDetails() {
+        // Given
+        when(productRepository.findDetailsById(1L)).thenAnswer(invocation -> {
+            cache.invalidate(1L);
+            return Optional.of(details(1L));
+        });
+
+        // When
+        cache.get(1L);
+
+        // Then
+        assertEquals(0, cache.size());
+    }
+
+    private static ProductDetails details(Long id) {
+        return new ProductDetails(id, "Product " + id, "Description of product " + id, 100,
+                List.of(new ProductDetails.ImageRef(id * 10, true)), new ProductDetails.Author(1L, "Seller"));
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.events.ProductBatchChangedEvent;
+import com.example.onlineShop.events.ProductChangedEvent;
+import com.example.onlineShop.models.ImportReport;
+import com.example.onlineShop.models.Product;
+import com.example.onlineShop.models.User;
+import com.example.onlineShop.repositories.ProductRepository;
+import com.example.onlineShop.repositories.UserRepository;
+import com.example.onlineShop.services.ProductImportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductImportServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private Principal principal;
+
+    private ProductImportService importService;
+    private User seller;
+    private List<List<Product>> inserted;
+
+    @BeforeEach
+    void setUp() {
+        importService = new ProductImportService(productRepository, userRepository, transactionManager, eventPublisher);
+        seller = new User();
+        seller.setId(7L);
+        seller.setEmail("seller@example.com");
+        when(principal.getName()).thenReturn("seller@example.com");
+        when(userRepository.findByEmail("seller@example.com")).thenReturn(seller);
+        inserted = new ArrayList<>();
+        lenient().doAnswer(invocation -> {
+            List<Product> chunk = invocation.getArgument(0);
+            long id = 100 + inserted.stream().mapToInt(List::size).sum();
+            for (Product product : chunk) {
+                product.setId(id++);
+            }
+            inserted.add(List.copyOf(chunk));
+            return null;
+        }).when(productRepository).insertAll(anyList());
+    }
+
+    @Test
+    void importProducts_ShouldParseQuotedCsvAndPublishEvents() throws IOException {
+        // Given
+        String csv = "\uFEFFTitle,Price,Description\r\n" +
+                "Desk lamp,25,\"Warm light, dimmable\"\r\n" +
+                "\"Poster \"\"Waves\"\"\",10,\"Printed on\nmatte paper\"\r\n";
+
+        // When
+        ImportReport report = importService.importProducts(principal, "catalog.csv", stream(csv));
+
+        // Then
+        assertEquals(2, report.getImported());
+        assertEquals(0, report.getFailed());
+        List<Product> products = inserted.get(0);
+        assertEquals("Desk lamp", products.get(0).getTitle());
+        assertEquals("Warm light, dimmable", products.get(0).getDescription());
+        assertEquals(25, products.get(0).getPrice());
+        assertSame(seller, products.get(0).getUser());
+        assertEquals("Poster \"Waves\"", products.get(1).getTitle());
+        assertEquals("Printed on\nmatte paper", products.get(1).getDescription());
+        ArgumentCaptor<ProductBatchChangedEvent> events = ArgumentCaptor.forClass(ProductBatchChangedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(events.capture());
+        assertEquals(List.of(100L, 101L),
+                events.getValue().changes().stream().map(ProductChangedEvent::productId).toList());
+    }
+
+    @Test
+    void importProducts_ShouldReportInvalidRowsByLineAndKeepValidOnes() throws IOException {
+        // Given
+        String csv = "title,price,description\n" +
+                ",10,no title\n" +
+                "Chair,-5,negative\n" +
+                "Table,12.50,not whole\n" +
+                "Sofa,300\n" +
+                "\n" +
+                "Shelf,40,ok\n";
+
+        // When
+        ImportReport report = importService.importProducts(principal, "catalog.csv", stream(csv));
+
+        // Then
+        assertEquals(1, report.getImported());
+        assertEquals(4, report.getFailed());
+        assertEquals(List.of(2L, 3L, 4L, 5L), report.getErrors().stream().map(ImportReport.RowError::getLine).toList());
+        assertEquals("Title is required", report.getErrors().get(0).getMessage());
+        assertEquals("Price must not be negative", report.getErrors().get(1).getMessage());
+        assertEquals("Expected 3 fields but found 2", report.getErrors().get(3).getMessage());
+        assertEquals("Shelf", inserted.get(0).get(0).getTitle());
+    }
+
+    @Test
+    void importProducts_ShouldReadJsonLines() throws IOException {
+        // Given
+        String jsonl = "{\"title\": \"Kettle\", \"price\": 30, \"description\": null}\n" +
+                "\n" +
+                "{\"title\": \"Broken\", \"price\": \n" +
+                "[1, 2]\n" +
+                "{\"TITLE\": \"Mug\", \"PRICE\": \"4\"}\n";
+
+        // When
+        ImportReport report = importService.importProducts(principal, "catalog.jsonl", stream(jsonl));
+
+        // Then
+        assertEquals(2, report.getImported());
+        assertEquals(List.of(3L, 4L), report.getErrors().stream().map(ImportReport.RowError::getLine).toList());
+        assertTrue(report.getErrors().get(0).getMessage().startsWith("Malformed JSON"));
+        assertEquals("", inserted.get(0).get(0).getDescription());
+        assertEquals("Mug", inserted.get(0).get(1).getTitle());
+    }
+
+    @Test
+    void importProducts_ShouldInsertInChunks() throws IOException {
+        // Given
+        StringBuilder csv = new StringBuilder("title,price\n");
+        for (int i = 0; i < 2500; i++) {
+            csv.append("Item ").append(i).append(',').append(i).append('\n');
+        }
+
+        // When
+        ImportReport report = importService.importProducts(principal, "catalog.csv", stream(csv.toString()));
+
+        // Then
+        assertEquals(2500, report.getImported());
+        assertEquals(List.of(1000, 1000, 500), inserted.stream().map(List::size).toList());
+        verify(transactionManager, times(3)).commit(any());
+        verify(eventPublisher, times(3)).publishEvent(any(ProductBatchChangedEvent.class));
+    }
+
+    @Test
+    void importProducts_WithOverlongField_ShouldRejectOnlyThatRow() throws IOException {
+        // Given
+        String csv = "title,price,description\n" +
+                "Rug,15,\"" + "x".repeat(70_000) + "\nstill \"\"quoted\"\"\"\n" +
+                "Vase,12,\"" + "y".repeat(70_000) + "\"z\n" +
+                "Stool,20,ok\n";
+
+        // When
+        ImportReport report = importService.importProducts(principal, "catalog.csv", stream(csv));
+
+        // Then
+        assertEquals(1, report.getImported());
+        assertEquals("Stool", inserted.get(0).get(0).getTitle());
+        assertEquals(List.of(2L, 4L), report.getErrors().stream().map(ImportReport.RowError::getLine).toList());
+        assertTrue(report.getErrors().get(0).getMessage().startsWith("Field is longer than"));
+    }
+
+    @Test
+    void importProducts_WithOverlongJsonLine_ShouldRejectOnlyThatRow() throws IOException {
+        // Given
+        String jsonl = "{\"title\":\"Rug\",\"price\":15,\"description\":\"" + "x".repeat(300_000) + "\"}\n" +
+                "{\"title\":\"Stool\",\"price\":20}\r\n";
+
+        // When
+        ImportReport report = importService.importProducts(principal, "catalog.jsonl", stream(jsonl));
+
+        // Then
+        assertEquals(1, report.getImported());
+        assertEquals("Stool", inserted.get(0).get(0).getTitle());
+        assertEquals(1L, report.getErrors().get(0).getLine());
+        assertTrue(report.getErrors().get(0).getMessage().startsWith("Row is longer than"));
+    }
+
+    @Test
+    void importProducts_WithUnterminatedQuote_ShouldRejectRestAsOneRow() throws IOException {
+        // Given
+        StringBuilder csv = new StringBuilder("title,price,description\nLamp,10,ok\nDesk,20,\"never closed\n");
+        for (int i = 0; i < 20_000; i++) {
+            csv.append("Item ").append(i).append(",1,filler text\n");
+        }
+
+        // When
+        ImportReport report = importService.importProducts(principal, "catalog.csv", stream(csv.toString()));
+
+        // Then
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertEquals(3L, report.getErrors().get(0).getLine());
+        assertEquals("Unterminated quoted field", report.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    void importProducts_WhenChunkRejectedByDatabase_ShouldReportItsRows() throws IOException {
+        // Given
+        doThrow(new DataIntegrityViolationException("value too long")).when(productRepository).insertAll(anyList());
+
+        // When
+        ImportReport report = importService.importProducts(principal, "catalog.csv", stream("title,price\nLamp,10\nDesk,20\n"));
+
+        // Then
+        assertEquals(0, report.getImported());
+        assertEquals(2, report.getFailed());
+        assertEquals("Not saved: value too long", report.getErrors().get(1).getMessage());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void importProducts_WhenFileTypeUnsupported_ShouldThrow() {
+        // Then
+        assertThrows(IllegalArgumentException.class,
+                () -> importService.importProducts(principal, "catalog.xlsx", stream("")));
+        verify(productRepository, never()).insertAll(anyList());
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
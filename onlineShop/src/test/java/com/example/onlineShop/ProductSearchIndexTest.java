@@ -0,0 +1,139 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.events.ProductBatchChangedEvent;
+import com.example.onlineShop.events.ProductChangedEvent;
+import com.example.onlineShop.models.ProductDocument;
+import com.example.onlineShop.repositories.ProductRepository;
+import com.example.onlineShop.services.ProductSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSearchIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @InjectMocks
+    private ProductSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findActiveDocuments(eq(0L), anyInt())).thenReturn(List.of(
+                new ProductDocument(1L, "Red Cotton Shirt", "Soft shirt for summer"),
+                new ProductDocument(2L, "Blue phone case", "Silicone case, fits most phones"),
+                new ProductDocument(3L, "Shirt", "Plain white cotton shirt, cotton collar")));
+        when(productRepository.findActiveDocuments(eq(3L), anyInt())).thenReturn(List.of());
+        searchIndex.rebuild();
+    }
+
+    @Test
+    void rebuild_ShouldMarkIndexReady() {
+        // Then
+        assertTrue(searchIndex.isReady());
+        verify(productRepository, times(2)).findActiveDocuments(anyLong(), anyInt());
+    }
+
+    @Test
+    void search_ShouldBeCaseInsensitiveAndCoverDescription() {
+        // When
+        long[] result = searchIndex.search("SILICONE");
+
+        // Then
+        assertArrayEquals(new long[]{2L}, result);
+    }
+
+    @Test
+    void search_WithSeveralTerms_ShouldRequireAllOfThem() {
+        // When
+        long[] result = searchIndex.search("cotton shirt");
+
+        // Then
+        assertEquals(2, result.length);
+        assertFalse(List.of(result[0], result[1]).contains(2L));
+        assertEquals(0, searchIndex.search("cotton phone").length);
+    }
+
+    @Test
+    void search_ShouldRankShortTitleMatchFirst() {
+        // When
+        long[] result = searchIndex.search("shirt");
+
+        // Then
+        assertArrayEquals(new long[]{3L, 1L}, result);
+    }
+
+    @Test
+    void search_WithUnknownTermOrBlankQuery_ShouldReturnNothing() {
+        // Then
+        assertEquals(0, searchIndex.search("laptop").length);
+        assertEquals(0, searchIndex.search("  ,, ").length);
+    }
+
+    @Test
+    void onProductChanged_ShouldReindexUpdatedProduct() {
+        // When
+        searchIndex.onProductChanged(new ProductChangedEvent(2L, "Leather wallet", "Brown", 50, true));
+
+        // Then
+        assertEquals(0, searchIndex.search("phone").length);
+        assertArrayEquals(new long[]{2L}, searchIndex.search("wallet"));
+    }
+
+    @Test
+    void onProductChanged_WhenProductDeactivated_ShouldRemoveIt() {
+        // When
+        searchIndex.onProductChanged(new ProductChangedEvent(3L, "Shirt", "Plain white cotton shirt", 10, false));
+
+        // Then
+        assertArrayEquals(new long[]{1L}, searchIndex.search("shirt"));
+    }
+
+    @Test
+    void onProductChanged_WithNewProduct_ShouldMakeItSearchable() {
+        // When
+        searchIndex.onProductChanged(new ProductChangedEvent(4L, "Wool shirt", "Warm", 80, true));
+
+        // Then
+        assertEquals(3, searchIndex.search("shirt").length);
+        assertArrayEquals(new long[]{4L}, searchIndex.search("wool"));
+    }
+
+    @Test
+    void onProductsChanged_ShouldApplyWholeBatch() {
+        // When
+        searchIndex.onProductsChanged(new ProductBatchChangedEvent(List.of(
+                new ProductChangedEvent(4L, "Wool shirt", "Warm", 80, true),
+                new ProductChangedEvent(5L, "Wool scarf", "Warm", 30, true),
+                new ProductChangedEvent(1L, "Red Cotton Shirt", "", 10, false))));
+
+        // Then
+        assertArrayEquals(new long[]{5L, 4L}, searchIndex.search("wool"));
+        assertArrayEquals(new long[]{3L, 4L}, searchIndex.search("shirt"));
+    }
+
+    @Test
+    void onProductChanged_WhenUpdatedRepeatedly_ShouldReuseDocSlots() {
+        // When
+        for (int i = 0; i < 5000; i++) {
+            searchIndex.onProductChanged(new ProductChangedEvent(2L, "Blue phone case " + i, "Silicone", 10, true));
+        }
+
+        // Then
+        assertTrue(searchIndex.documentSlots() <= 2048);
+        assertArrayEquals(new long[]{2L}, searchIndex.search("phone"));
+        assertArrayEquals(new long[]{3L, 1L}, searchIndex.search("shirt"));
+    }
+}
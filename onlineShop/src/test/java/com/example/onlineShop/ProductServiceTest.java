@@ -1,27 +1,47 @@
 package com.example.onlineShop;
 
+import com.example.onlineShop.events.ProductChangedEvent;
+import com.example.onlineShop.models.CatalogFilter;
+import com.example.onlineShop.models.CatalogPage;
+import com.example.onlineShop.models.CursorPage;
 import com.example.onlineShop.models.Image;
+import com.example.onlineShop.models.PriceFacet;
 import com.example.onlineShop.models.Product;
+import com.example.onlineShop.models.ProductCard;
+import com.example.onlineShop.models.ProductDocument;
 import com.example.onlineShop.models.User;
+import com.example.onlineShop.models.enums.CatalogSort;
 import com.example.onlineShop.repositories.ImageRepository;
 import com.example.onlineShop.repositories.ProductRepository;
 import com.example.onlineShop.repositories.UserRepository;
+import com.example.onlineShop.services.BestsellerRanking;
+import com.example.onlineShop.services.BlobReferences;
+import com.example.onlineShop.services.ImageVariants;
+import com.example.onlineShop.services.PriceFacets;
+import com.example.onlineShop.services.ProductDetailsCache;
+import com.example.onlineShop.services.ProductSearchIndex;
 import com.example.onlineShop.services.ProductService;
+import com.example.onlineShop.services.SearchResultCache;
+import com.example.onlineShop.services.TrigramIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.security.Principal;
 import java.util.*;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,6 +56,33 @@ class ProductServiceTest {
     @Mock
     private ImageRepository imageRepository;
 
+    @Mock
+    private BlobReferences blobReferences;
+
+    @Mock
+    private ImageVariants imageVariants;
+
+    @Mock
+    private ProductSearchIndex searchIndex;
+
+    @Mock
+    private TrigramIndex trigramIndex;
+
+    @Mock
+    private PriceFacets priceFacets;
+
+    @Mock
+    private ProductDetailsCache detailsCache;
+
+    @Mock
+    private SearchResultCache searchResultCache;
+
+    @Mock
+    private BestsellerRanking bestsellerRanking;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @Mock
     private Principal principal;
 
@@ -53,6 +100,7 @@ class ProductServiceTest {
 
     private User testUser;
     private Product testProduct;
+    private ProductCard testCard;
     private Image testImage;
 
     @BeforeEach
@@ -69,6 +117,10 @@ class ProductServiceTest {
         testProduct.setUser(testUser);
         testProduct.setActive(true);
         testProduct.setImages(new ArrayList<>());
+        testCard = new ProductCard(1L, "Test Product", 100, null);
+        // no caching in these tests: every lookup runs the search
+        lenient().when(searchResultCache.get(anyString(), any())).thenAnswer(invocation ->
+                invocation.<Function<String, long[]>>getArgument(1).apply(invocation.getArgument(0)));
 
         testImage = new Image();
         testImage.setId(1L);
@@ -76,52 +128,416 @@ class ProductServiceTest {
         testImage.setOriginalFileName("test.jpg");
         testImage.setContentType("image/jpeg");
         testImage.setSize(1024L);
-        testImage.setBytes(new byte[]{1, 2, 3});
+        testImage.setContentHash("a".repeat(64));
+    }
+
+    @Test
+    void listProducts_WithTitle_ShouldReturnProductsInRankedOrder() {
+        // Given
+        ProductCard second = cards(2L).get(0);
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("test")).thenReturn(new long[]{2L, 1L});
+        when(productRepository.findActiveCardsByIdIn(List.of(2L, 1L))).thenReturn(Arrays.asList(testCard, second));
+
+        // When
+        CatalogPage result = productService.listProducts(CatalogFilter.title("test"), null, null, null);
+
+        // Then
+        assertEquals(List.of(second, testCard), result.getItems());
+        assertEquals(2, result.getMatchCount());
+        assertFalse(result.isHasNext());
+        verify(productRepository, never()).findActiveCards(any(), any(), any(), anyInt());
     }
 
     @Test
-    void listProducts_WithTitle_ShouldReturnFilteredProducts() {
+    void listProducts_WithTitleAndAfterCursor_ShouldContinueRankedList() {
+        // Given
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("test")).thenReturn(new long[]{5L, 9L, 3L, 7L});
+        when(productRepository.findActiveCardsByIdIn(List.of(3L, 7L))).thenReturn(cards(7L, 3L));
+
+        // When
+        CursorPage<ProductCard> result = productService.listProducts(CatalogFilter.title("test"), 9L, null, 2);
+
+        // Then
+        assertEquals(List.of(3L, 7L), result.getItems().stream().map(ProductCard::getId).toList());
+        assertNull(result.getNextCursor());
+        assertEquals(3L, result.getPrevCursor());
+    }
+
+    @Test
+    void listProducts_WithMisspelledTitle_ShouldUseTrigramMatches() {
+        // Given
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("tset")).thenReturn(new long[0]);
+        when(trigramIndex.isReady()).thenReturn(true);
+        when(trigramIndex.search("tset")).thenReturn(new long[]{1L});
+        when(productRepository.findActiveCardsByIdIn(List.of(1L))).thenReturn(List.of(testCard));
+
+        // When
+        CursorPage<ProductCard> result = productService.listProducts(CatalogFilter.title("tset"), null, null, null);
+
+        // Then
+        assertEquals(List.of(testCard), result.getItems());
+    }
+
+    @Test
+    void listProducts_WithTitle_WhenIndexNotReady_ShouldFallBackToLikeQuery() {
         // Given
         String title = "test";
-        List<Product> expectedProducts = Arrays.asList(testProduct);
-        when(productRepository.findByTitleContainingAndActiveTrue(title)).thenReturn(expectedProducts);
+        List<ProductCard> expectedProducts = Arrays.asList(testCard);
+        when(productRepository.findActiveCards(CatalogFilter.title(title), null, null, ProductService.DEFAULT_PAGE_SIZE + 1))
+                .thenReturn(expectedProducts);
 
         // When
-        List<Product> result = productService.listProducts(title);
+        CursorPage<ProductCard> result = productService.listProducts(CatalogFilter.title(title), null, null, null);
 
         // Then
-        assertEquals(expectedProducts, result);
-        verify(productRepository).findByTitleContainingAndActiveTrue(title);
-        verify(productRepository, never()).findByActiveTrue();
+        assertEquals(expectedProducts, result.getItems());
+        assertFalse(result.isHasNext());
+        assertFalse(result.isHasPrev());
     }
 
     @Test
     void listProducts_WithNullTitle_ShouldReturnAllActiveProducts() {
         // Given
-        List<Product> expectedProducts = Arrays.asList(testProduct);
-        when(productRepository.findByActiveTrue()).thenReturn(expectedProducts);
+        List<ProductCard> expectedProducts = Arrays.asList(testCard);
+        when(productRepository.findActiveCards(CatalogFilter.title(null), null, null, ProductService.DEFAULT_PAGE_SIZE + 1)).thenReturn(expectedProducts);
 
         // When
-        List<Product> result = productService.listProducts(null);
+        CursorPage<ProductCard> result = productService.listProducts(CatalogFilter.title(null), null, null, null);
 
         // Then
-        assertEquals(expectedProducts, result);
-        verify(productRepository).findByActiveTrue();
-        verify(productRepository, never()).findByTitleContainingAndActiveTrue(anyString());
+        assertEquals(expectedProducts, result.getItems());
+        verify(productRepository).findActiveCards(CatalogFilter.title(null), null, null, ProductService.DEFAULT_PAGE_SIZE + 1);
     }
 
     @Test
     void listProducts_WithEmptyTitle_ShouldReturnAllActiveProducts() {
         // Given
-        List<Product> expectedProducts = Arrays.asList(testProduct);
-        when(productRepository.findByActiveTrue()).thenReturn(expectedProducts);
+        List<ProductCard> expectedProducts = Arrays.asList(testCard);
+        when(productRepository.findActiveCards(CatalogFilter.title(""), null, null, ProductService.DEFAULT_PAGE_SIZE + 1)).thenReturn(expectedProducts);
+
+        // When
+        CursorPage<ProductCard> result = productService.listProducts(CatalogFilter.title(""), null, null, null);
+
+        // Then
+        assertEquals(expectedProducts, result.getItems());
+        verify(productRepository).findActiveCards(CatalogFilter.title(""), null, null, ProductService.DEFAULT_PAGE_SIZE + 1);
+    }
+
+    @Test
+    void listProducts_WhenMoreRowsThanPageSize_ShouldReturnNextCursor() {
+        // Given
+        when(productRepository.findActiveCards(CatalogFilter.title(null), null, null, 3)).thenReturn(cards(30L, 29L, 28L));
 
         // When
-        List<Product> result = productService.listProducts("");
+        CursorPage<ProductCard> result = productService.listProducts(CatalogFilter.title(null), null, null, 2);
 
         // Then
-        assertEquals(expectedProducts, result);
-        verify(productRepository).findByActiveTrue();
+        assertEquals(2, result.getItems().size());
+        assertEquals(29L, result.getNextCursor());
+        assertNull(result.getPrevCursor());
+    }
+
+    @Test
+    void listProducts_WithAfterCursor_ShouldReturnPrevCursor() {
+        // Given
+        when(productRepository.findActiveCards(CatalogFilter.title(null), 29L, null, 3)).thenReturn(cards(28L, 27L));
+
+        // When
+        CursorPage<ProductCard> result = productService.listProducts(CatalogFilter.title(null), 29L, null, 2);
+
+        // Then
+        assertEquals(2, result.getItems().size());
+        assertNull(result.getNextCursor());
+        assertEquals(28L, result.getPrevCursor());
+    }
+
+    @Test
+    void listProducts_WithBeforeCursor_ShouldDropRowFurthestFromCursor() {
+        // Given
+        when(productRepository.findActiveCards(CatalogFilter.title(null), null, 27L, 3)).thenReturn(cards(30L, 29L, 28L));
+
+        // When
+        CursorPage<ProductCard> result = productService.listProducts(CatalogFilter.title(null), null, 27L, 2);
+
+        // Then
+        assertEquals(List.of(29L, 28L), result.getItems().stream().map(ProductCard::getId).toList());
+        assertEquals(28L, result.getNextCursor());
+        assertEquals(29L, result.getPrevCursor());
+    }
+
+    @Test
+    void listProducts_WithTitleAndSort_WhenIndexNotReady_ShouldUseSortedQuery() {
+        // Given
+        CatalogFilter filter = new CatalogFilter("test", CatalogSort.PRICE_ASC, null, null);
+        when(productRepository.findActiveCards(filter, null, null, ProductService.DEFAULT_PAGE_SIZE + 1))
+                .thenReturn(List.of(testCard));
+
+        // When
+        CursorPage<ProductCard> result = productService.listProducts(filter, null, null, null);
+
+        // Then
+        assertEquals(List.of(testCard), result.getItems());
+        verify(searchIndex, never()).search(anyString());
+    }
+
+    @Test
+    void listProducts_WithTitleSortedByPrice_ShouldOrderMatchesIncludingDescriptionOnlyOnes() {
+        // Given
+        // product 6 mentions "lamp" only in its description, so a title LIKE would miss it
+        CatalogFilter filter = new CatalogFilter("lamp", CatalogSort.PRICE_ASC, null, null);
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("lamp")).thenReturn(new long[]{4L, 6L});
+        when(priceFacets.isReady()).thenReturn(true);
+        when(priceFacets.sortByPrice(new long[]{4L, 6L}, true)).thenReturn(new long[]{6L, 4L});
+        when(productRepository.findActiveCardsByIdIn(List.of(6L, 4L))).thenReturn(cards(4L, 6L));
+
+        // When
+        CatalogPage result = productService.listProducts(filter, null, null, null);
+
+        // Then
+        assertEquals(List.of(6L, 4L), result.getItems().stream().map(ProductCard::getId).toList());
+        assertEquals(2, result.getMatchCount());
+        verify(productRepository, never()).findActiveCards(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void listProducts_WithTitleAndPriceRange_ShouldFilterMatchesByPrice() {
+        // Given
+        CatalogFilter filter = new CatalogFilter("lamp", null, 10, 50);
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("lamp")).thenReturn(new long[]{4L, 6L, 8L});
+        when(priceFacets.isReady()).thenReturn(true);
+        when(priceFacets.withinPrice(new long[]{4L, 6L, 8L}, 10, 50)).thenReturn(new long[]{4L, 8L});
+        when(productRepository.findActiveCardsByIdIn(List.of(4L, 8L))).thenReturn(cards(4L, 8L));
+
+        // When
+        CatalogPage result = productService.listProducts(filter, null, null, null);
+
+        // Then
+        assertEquals(List.of(4L, 8L), result.getItems().stream().map(ProductCard::getId).toList());
+        verify(productRepository, never()).findActiveCards(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void listProducts_WithPriceRange_ShouldPassFilterToRepository() {
+        // Given
+        CatalogFilter filter = new CatalogFilter(null, CatalogSort.PRICE_DESC, 50, 150);
+        when(productRepository.findActiveCards(filter, 30L, null, 3)).thenReturn(cards(29L, 28L, 27L));
+
+        // When
+        CursorPage<ProductCard> result = productService.listProducts(filter, 30L, null, 2);
+
+        // Then
+        assertEquals(List.of(29L, 28L), result.getItems().stream().map(ProductCard::getId).toList());
+        assertEquals(28L, result.getNextCursor());
+        assertEquals(29L, result.getPrevCursor());
+    }
+
+    @Test
+    void listProducts_SortedByBestselling_ShouldPageThroughRankingWithinPriceRange() {
+        // Given
+        CatalogFilter filter = new CatalogFilter(null, CatalogSort.BESTSELLING, 10, 50);
+        when(priceFacets.isReady()).thenReturn(true);
+        when(bestsellerRanking.below(null, 3)).thenReturn(new long[]{5L, 3L, 8L});
+        when(bestsellerRanking.below(8L, 3)).thenReturn(new long[]{1L});
+        when(priceFacets.withinPrice(new long[]{5L, 3L, 8L}, 10, 50)).thenReturn(new long[]{5L, 8L});
+        when(priceFacets.withinPrice(new long[]{1L}, 10, 50)).thenReturn(new long[]{1L});
+        when(productRepository.findActiveCardsByIdIn(List.of(5L, 8L))).thenReturn(cards(8L, 5L));
+        when(productRepository.findActiveCardsByIdIn(List.of(1L))).thenReturn(cards(1L));
+
+        // When
+        CatalogPage result = productService.listProducts(filter, null, null, 2);
+
+        // Then
+        assertEquals(List.of(5L, 8L), result.getItems().stream().map(ProductCard::getId).toList());
+        assertEquals(8L, result.getNextCursor());
+        verify(productRepository, never()).findActiveCards(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void listProducts_SortedByBestsellingBeforeCursor_ShouldWalkUpTheRanking() {
+        // Given
+        CatalogFilter filter = new CatalogFilter(null, CatalogSort.BESTSELLING, null, null);
+        when(bestsellerRanking.above(8L, 3)).thenReturn(new long[]{3L, 5L});
+        when(bestsellerRanking.above(5L, 3)).thenReturn(new long[0]);
+        when(productRepository.findActiveCardsByIdIn(List.of(3L, 5L))).thenReturn(cards(3L, 5L));
+
+        // When
+        CatalogPage result = productService.listProducts(filter, null, 8L, 2);
+
+        // Then
+        assertEquals(List.of(5L, 3L), result.getItems().stream().map(ProductCard::getId).toList());
+        assertEquals(3L, result.getNextCursor());
+        assertNull(result.getPrevCursor());
+    }
+
+    @Test
+    void listProducts_WhenRankedPageHasInactiveProducts_ShouldFillItFromFurtherDown() {
+        // Given
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("lamp")).thenReturn(new long[]{2L, 4L, 6L, 8L});
+        when(productRepository.findActiveCardsByIdIn(List.of(2L, 4L))).thenReturn(cards(2L));
+        when(productRepository.findActiveCardsByIdIn(List.of(6L))).thenReturn(cards(6L));
+
+        // When
+        CatalogPage result = productService.listProducts(CatalogFilter.title("lamp"), null, null, 2);
+
+        // Then
+        assertEquals(List.of(2L, 6L), result.getItems().stream().map(ProductCard::getId).toList());
+        assertEquals(6L, result.getNextCursor());
+    }
+
+    @Test
+    void listProducts_WithTitleSortedByBestselling_ShouldRankMatches() {
+        // Given
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("lamp")).thenReturn(new long[]{4L, 2L});
+        when(bestsellerRanking.rank(new long[]{4L, 2L})).thenReturn(new long[]{2L, 4L});
+        when(productRepository.findActiveCardsByIdIn(List.of(2L, 4L))).thenReturn(cards(2L, 4L));
+
+        // When
+        CatalogPage result = productService.listProducts(
+                new CatalogFilter("lamp", CatalogSort.BESTSELLING, null, null), null, null, null);
+
+        // Then
+        assertEquals(List.of(2L, 4L), result.getItems().stream().map(ProductCard::getId).toList());
+        assertEquals(2, result.getMatchCount());
+    }
+
+    @Test
+    void listBestsellers_ShouldSkipInactiveProducts() {
+        // Given
+        when(bestsellerRanking.top(4)).thenReturn(new long[]{5L, 3L, 8L, 1L});
+        when(productRepository.findActiveCardsByIdIn(List.of(5L, 3L, 8L, 1L))).thenReturn(cards(1L, 8L, 5L));
+
+        // When
+        List<ProductCard> result = productService.listBestsellers(2);
+
+        // Then
+        assertEquals(List.of(5L, 8L), result.stream().map(ProductCard::getId).toList());
+    }
+
+    @Test
+    void listProducts_WithoutTitle_ShouldCountFacetsOverWholeCatalog() {
+        // Given
+        CatalogFilter filter = new CatalogFilter(null, null, 10, 20);
+        List<PriceFacet> facets = List.of(new PriceFacet("Under $10", null, 9, 3));
+        when(priceFacets.isReady()).thenReturn(true);
+        when(priceFacets.countAll()).thenReturn(facets);
+        when(productRepository.findActiveCards(filter, null, null, ProductService.DEFAULT_PAGE_SIZE + 1))
+                .thenReturn(new ArrayList<>());
+
+        // When
+        CatalogPage result = productService.listProducts(filter, null, null, null);
+
+        // Then
+        assertEquals(facets, result.getPriceFacets());
+        verify(searchIndex, never()).search(anyString());
+    }
+
+    @Test
+    void listProducts_WithTitle_ShouldCountFacetsFromSameSearch() {
+        // Given
+        List<PriceFacet> facets = List.of(new PriceFacet("Under $10", null, 9, 1));
+        when(priceFacets.isReady()).thenReturn(true);
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("lamp")).thenReturn(new long[]{4L, 2L});
+        when(priceFacets.count(new long[]{4L, 2L})).thenReturn(facets);
+        when(productRepository.findActiveCardsByIdIn(List.of(4L, 2L))).thenReturn(cards(4L, 2L));
+
+        // When
+        CatalogPage result = productService.listProducts(CatalogFilter.title("lamp"), null, null, null);
+
+        // Then
+        assertEquals(facets, result.getPriceFacets());
+        assertEquals(2, result.getItems().size());
+        verify(searchIndex, times(1)).search("lamp");
+    }
+
+    @Test
+    void listProducts_WithTitleAndPriceRange_ShouldListAsManyProductsAsTheFacetCounts() {
+        // Given
+        // real price index: product 6 mentions "lamp" only in its description, product 9 is no longer on sale
+        when(productRepository.findActivePrices(eq(0L), anyInt())).thenReturn(List.of(
+                new ProductDocument(4L, 25), new ProductDocument(6L, 30), new ProductDocument(8L, 120)));
+        when(productRepository.findActivePrices(eq(8L), anyInt())).thenReturn(List.of());
+        PriceFacets prices = new PriceFacets(productRepository);
+        prices.rebuild();
+        ProductService service = new ProductService(productRepository, userRepository, imageRepository, blobReferences,
+                imageVariants, searchIndex, trigramIndex, prices, detailsCache, searchResultCache, bestsellerRanking,
+                eventPublisher);
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("lamp")).thenReturn(new long[]{4L, 6L, 8L, 9L});
+        when(productRepository.findActiveCardsByIdIn(List.of(4L, 6L))).thenReturn(cards(4L, 6L));
+
+        // When
+        CatalogPage result = service.listProducts(new CatalogFilter("lamp", null, 10, 49), null, null, null);
+
+        // Then
+        PriceFacet tenToFifty = result.getPriceFacets().get(1);
+        assertEquals(10, tenToFifty.getMinPrice());
+        assertEquals(tenToFifty.getCount(), result.getItems().size());
+        assertEquals(List.of(4L, 6L), result.getItems().stream().map(ProductCard::getId).toList());
+    }
+
+    @Test
+    void listProducts_WhenFacetsNotReady_ShouldReturnNoFacets() {
+        // Given
+        when(priceFacets.isReady()).thenReturn(false);
+        when(productRepository.findActiveCards(CatalogFilter.title(null), null, null, ProductService.DEFAULT_PAGE_SIZE + 1))
+                .thenReturn(new ArrayList<>());
+
+        // When
+        CatalogPage result = productService.listProducts(CatalogFilter.title(null), null, null, null);
+
+        // Then
+        assertTrue(result.getPriceFacets().isEmpty());
+    }
+
+    @Test
+    void listProducts_WithHugeSize_ShouldCapPageSize() {
+        // Given
+        when(productRepository.findActiveCards(CatalogFilter.title(null), null, null, ProductService.MAX_PAGE_SIZE + 1)).thenReturn(new ArrayList<>());
+
+        // When
+        CursorPage<ProductCard> result = productService.listProducts(CatalogFilter.title(null), null, null, 100_000);
+
+        // Then
+        assertEquals(ProductService.MAX_PAGE_SIZE, result.getSize());
+        assertTrue(result.getItems().isEmpty());
+    }
+
+    @Test
+    void listSellerProducts_ShouldPageThroughSellerQuery() {
+        // Given
+        when(productRepository.findActiveCardsBySeller(1L, null, null, ProductService.DEFAULT_PAGE_SIZE + 1))
+                .thenReturn(cards(30L, 29L));
+
+        // When
+        CursorPage<ProductCard> result = productService.listSellerProducts(1L, null, null, null);
+
+        // Then
+        assertEquals(List.of(30L, 29L), result.getItems().stream().map(ProductCard::getId).toList());
+        assertNull(result.getNextCursor());
+        assertNull(result.getPrevCursor());
+        verify(productRepository, never()).findActiveCards(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void listSellerProducts_WithBeforeCursor_ShouldReturnBothCursors() {
+        // Given
+        when(productRepository.findActiveCardsBySeller(1L, null, 27L, 3)).thenReturn(cards(30L, 29L, 28L));
+
+        // When
+        CursorPage<ProductCard> result = productService.listSellerProducts(1L, null, 27L, 2);
+
+        // Then
+        assertEquals(List.of(29L, 28L), result.getItems().stream().map(ProductCard::getId).toList());
+        assertEquals(28L, result.getNextCursor());
+        assertEquals(29L, result.getPrevCursor());
     }
 
     @Test
@@ -133,7 +549,6 @@ class ProductServiceTest {
         when(file1.getName()).thenReturn("file1");
         when(file1.getOriginalFilename()).thenReturn("test1.jpg");
         when(file1.getContentType()).thenReturn("image/jpeg");
-        when(file1.getBytes()).thenReturn(new byte[]{1, 2, 3});
         when(file2.getSize()).thenReturn(0L);
         when(file3.getSize()).thenReturn(0L);
 
@@ -141,12 +556,16 @@ class ProductServiceTest {
         savedProduct.setImages(Arrays.asList(testImage));
         when(productRepository.save(any(Product.class))).thenReturn(savedProduct);
 
+        when(blobReferences.store(file1)).thenReturn("b".repeat(64));
+
         // When
         productService.saveProduct(principal, testProduct, file1, file2, file3);
 
         // Then
         assertEquals(testUser, testProduct.getUser());
+        assertEquals("b".repeat(64), testProduct.getImages().get(0).getContentHash());
         verify(productRepository, times(2)).save(any(Product.class));
+        verify(imageVariants).generateLater("b".repeat(64));
     }
 
     @Test
@@ -166,6 +585,7 @@ class ProductServiceTest {
         // Then
         assertEquals(testUser, testProduct.getUser());
         verify(productRepository, times(2)).save(any(Product.class));
+        verify(blobReferences, times(3)).store(any());
     }
 
     @Test
@@ -174,7 +594,7 @@ class ProductServiceTest {
         when(principal.getName()).thenReturn("test@example.com");
         when(userRepository.findByEmail("test@example.com")).thenReturn(testUser);
         when(file1.getSize()).thenReturn(1024L);
-        when(file1.getBytes()).thenThrow(new IOException("File read error"));
+        when(blobReferences.store(file1)).thenThrow(new IOException("File read error"));
 
         // When & Then
         assertThrows(IOException.class, () ->
@@ -217,6 +637,7 @@ class ProductServiceTest {
         // Then
         assertFalse(testProduct.isActive());
         verify(productRepository).save(testProduct);
+        verify(eventPublisher).publishEvent(ProductChangedEvent.of(testProduct));
     }
 
     @Test
@@ -340,7 +761,6 @@ class ProductServiceTest {
         when(file1.getName()).thenReturn("newFile");
         when(file1.getOriginalFilename()).thenReturn("new.jpg");
         when(file1.getContentType()).thenReturn("image/jpeg");
-        when(file1.getBytes()).thenReturn(new byte[]{4, 5, 6});
         when(file2.getSize()).thenReturn(0L);
         when(file3.getSize()).thenReturn(0L);
 
@@ -352,6 +772,7 @@ class ProductServiceTest {
 
         // Then
         verify(imageRepository).delete(testImage);
+        verify(blobReferences).release(testImage.getContentHash());
         verify(productRepository, atLeastOnce()).save(testProduct);
     }
 
@@ -382,24 +803,29 @@ class ProductServiceTest {
         verify(productRepository, times(2)).save(any(Product.class));
     }
 
+    private List<ProductCard> cards(Long... ids) {
+        List<ProductCard> result = new ArrayList<>();
+        for (Long id : ids) {
+            result.add(new ProductCard(id, "Product " + id, 10, null));
+        }
+        return result;
+    }
+
     private void setupMultipleFiles() throws IOException {
         when(file1.getSize()).thenReturn(1024L);
         when(file1.getName()).thenReturn("file1");
         when(file1.getOriginalFilename()).thenReturn("test1.jpg");
         when(file1.getContentType()).thenReturn("image/jpeg");
-        when(file1.getBytes()).thenReturn(new byte[]{1, 2, 3});
 
         when(file2.getSize()).thenReturn(2048L);
         when(file2.getName()).thenReturn("file2");
         when(file2.getOriginalFilename()).thenReturn("test2.jpg");
         when(file2.getContentType()).thenReturn("image/jpeg");
-        when(file2.getBytes()).thenReturn(new byte[]{4, 5, 6});
 
         when(file3.getSize()).thenReturn(3072L);
         when(file3.getName()).thenReturn("file3");
         when(file3.getOriginalFilename()).thenReturn("test3.jpg");
         when(file3.getContentType()).thenReturn("image/jpeg");
-        when(file3.getBytes()).thenReturn(new byte[]{7, 8, 9});
     }
     @Test
     void updateProduct_WithNewFile2_ShouldReplaceSecondImage() throws IOException {
@@ -410,7 +836,7 @@ class ProductServiceTest {
         image2.setOriginalFileName("test2.jpg");
         image2.setContentType("image/jpeg");
         image2.setSize(2048L);
-        image2.setBytes(new byte[]{4, 5, 6});
+        image2.setContentHash("c".repeat(64));
 
         testProduct.getImages().add(testImage); // First image
         testProduct.getImages().add(image2);    // Second image
@@ -423,7 +849,6 @@ class ProductServiceTest {
         when(file2.getName()).thenReturn("newFile2");
         when(file2.getOriginalFilename()).thenReturn("new2.jpg");
         when(file2.getContentType()).thenReturn("image/jpeg");
-        when(file2.getBytes()).thenReturn(new byte[]{7, 8, 9});
         when(file3.getSize()).thenReturn(0L); // No new file3
 
         when(productRepository.save(any(Product.class))).thenReturn(testProduct);
@@ -434,6 +859,7 @@ class ProductServiceTest {
 
         // Then
         verify(imageRepository).delete(image2); // Verify second image is deleted
+        verify(blobReferences).release("c".repeat(64));
         verify(productRepository, atLeastOnce()).save(testProduct);
         assertEquals(2, testProduct.getImages().size()); // Should still have 2 images
         assertEquals("new2.jpg", testProduct.getImages().get(1).getOriginalFileName()); // New file2 added
@@ -447,7 +873,7 @@ class ProductServiceTest {
         image2.setOriginalFileName("test2.jpg");
         image2.setContentType("image/jpeg");
         image2.setSize(2048L);
-        image2.setBytes(new byte[]{4, 5, 6});
+        image2.setContentHash("c".repeat(64));
 
         Image image3 = new Image();
         image3.setId(3L);
@@ -455,7 +881,7 @@ class ProductServiceTest {
         image3.setOriginalFileName("test3.jpg");
         image3.setContentType("image/jpeg");
         image3.setSize(3072L);
-        image3.setBytes(new byte[]{7, 8, 9});
+        image3.setContentHash("d".repeat(64));
 
         testProduct.getImages().add(testImage); // First image
         testProduct.getImages().add(image2);    // Second image
@@ -470,7 +896,6 @@ class ProductServiceTest {
         when(file3.getName()).thenReturn("newFile3");
         when(file3.getOriginalFilename()).thenReturn("new3.jpg");
         when(file3.getContentType()).thenReturn("image/jpeg");
-        when(file3.getBytes()).thenReturn(new byte[]{10, 11, 12});
 
         when(productRepository.save(any(Product.class))).thenReturn(testProduct);
 
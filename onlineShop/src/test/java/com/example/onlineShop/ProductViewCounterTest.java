@@ -0,0 +1,105 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.models.ProductViewReport;
+import com.example.onlineShop.repositories.ProductRepository;
+import com.example.onlineShop.services.ProductViewCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductViewCounterTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ProductViewCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        counter = new ProductViewCounter(productRepository, transactionManager);
+    }
+
+    @Test
+    void flush_ShouldAddAllViewsInOneBatch() {
+        // Given
+        counter.record(1L);
+        counter.record(2L);
+        counter.record(1L);
+
+        // When
+        counter.flush();
+
+        // Then
+        verify(productRepository).addViews(Map.of(1L, 2L, 2L, 1L));
+        verify(transactionManager).commit(any());
+        assertEquals(0, counter.pendingTotal());
+    }
+
+    @Test
+    void flush_ShouldOnlyWriteViewsSinceLastFlush() {
+        // Given
+        counter.record(1L);
+        counter.record(2L);
+        counter.flush();
+        counter.record(2L);
+
+        // When
+        counter.flush();
+        counter.flush();
+
+        // Then
+        verify(productRepository).addViews(Map.of(2L, 1L));
+        verify(productRepository, times(2)).addViews(any());
+    }
+
+    @Test
+    void flush_WhenDatabaseFails_ShouldKeepViewsForNextFlush() {
+        // Given
+        counter.record(3L);
+        counter.record(3L);
+        doThrow(new QueryTimeoutException("timeout")).doNothing().when(productRepository).addViews(any());
+        counter.flush();
+        counter.record(3L);
+
+        // When
+        counter.flush();
+
+        // Then
+        verify(productRepository).addViews(Map.of(3L, 2L));
+        verify(productRepository).addViews(Map.of(3L, 3L));
+        assertEquals(0, counter.pending(3L));
+    }
+
+    @Test
+    void mostViewed_ShouldIncludeViewsNotYetFlushed() {
+        // Given
+        when(productRepository.findMostViewed(10)).thenReturn(List.of(
+                new ProductViewReport(1L, "Lamp", true, 5L),
+                new ProductViewReport(2L, "Sofa", true, 4L)));
+        counter.record(2L);
+        counter.record(2L);
+
+        // When
+        List<ProductViewReport> report = counter.mostViewed(10);
+
+        // Then
+        assertEquals(List.of(2L, 1L), report.stream().map(ProductViewReport::getId).toList());
+        assertEquals(6, report.get(0).getViews());
+        assertEquals(2, counter.pendingTotal());
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.events.OrderPlacedEvent;
+import com.example.onlineShop.models.CustomerPurchase;
+import com.example.onlineShop.models.ProductCard;
+import com.example.onlineShop.repositories.OrderRepository;
+import com.example.onlineShop.repositories.ProductRepository;
+import com.example.onlineShop.services.RecommendationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecommendationServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RecommendationService recommendations;
+
+    @BeforeEach
+    void setUp() {
+        recommendations = new RecommendationService(orderRepository, productRepository, transactionManager, 12);
+        // every product is active; cards come back in database order, not in the requested one
+        lenient().when(productRepository.findActiveCardsByIdIn(any())).thenAnswer(invocation -> {
+            List<Long> ids = new ArrayList<>(invocation.<List<Long>>getArgument(0));
+            ids.sort(null);
+            return ids.stream().map(id -> new ProductCard(id, "Product " + id, 10, null)).toList();
+        });
+    }
+
+    @Test
+    void onOrderPlaced_ShouldRankProductsBoughtByTheSameCustomers() {
+        // When
+        recommendations.onOrderPlaced(new OrderPlacedEvent(1L, 10L, List.of(1L, 2L, 3L), List.of(1, 1, 1), List.of()));
+        recommendations.onOrderPlaced(new OrderPlacedEvent(2L, 20L, List.of(3L, 1L), List.of(1, 1), List.of()));
+        recommendations.onOrderPlaced(new OrderPlacedEvent(3L, 30L, List.of(4L), List.of(1), List.of(2L, 1L)));
+
+        // Then
+        assertEquals(List.of(3L, 2L, 4L), ids(recommendations.alsoBought(1L, 6)));
+        assertEquals(List.of(1L, 3L, 4L), ids(recommendations.alsoBought(2L, 6)));
+        assertEquals(List.of(1L), ids(recommendations.alsoBought(3L, 1)));
+    }
+
+    @Test
+    void onOrderPlaced_WhenProductBoughtAgain_ShouldNotCountCustomerTwice() {
+        // Given
+        recommendations.onOrderPlaced(new OrderPlacedEvent(1L, 40L, List.of(1L, 2L), List.of(1, 1), List.of()));
+
+        // When
+        recommendations.onOrderPlaced(new OrderPlacedEvent(1L, 50L, List.of(2L, 2L), List.of(1, 1), List.of(2L, 1L)));
+        recommendations.onOrderPlaced(new OrderPlacedEvent(2L, 60L, List.of(1L, 3L), List.of(1, 1), List.of()));
+
+        // Then
+        // 1 was bought with 2 by one customer and with 3 by another: a tie, so the older product comes first
+        assertEquals(List.of(2L, 3L), ids(recommendations.alsoBought(1L, 6)));
+    }
+
+    @Test
+    void alsoBought_WhenNothingBoughtTogether_ShouldNotQueryProducts() {
+        // When
+        List<ProductCard> cards = recommendations.alsoBought(5L, 6);
+
+        // Then
+        assertTrue(cards.isEmpty());
+        verify(productRepository, never()).findActiveCardsByIdIn(any());
+    }
+
+    @Test
+    void alsoBought_ShouldSkipInactiveProducts() {
+        // Given
+        recommendations.onOrderPlaced(new OrderPlacedEvent(1L, 70L, List.of(1L, 2L, 3L), List.of(1, 1, 1), List.of()));
+        when(productRepository.findActiveCardsByIdIn(List.of(2L, 3L)))
+                .thenReturn(List.of(new ProductCard(3L, "Lamp", 10, null)));
+
+        // When
+        List<ProductCard> cards = recommendations.alsoBought(1L, 6);
+
+        // Then
+        assertEquals(List.of(3L), ids(cards));
+    }
+
+    @Test
+    void rebuild_ShouldCountDistinctProductsPerCustomer() {
+        // Given
+        when(orderRepository.findMaxId()).thenReturn(7L);
+        when(orderRepository.streamPurchases(7L)).thenReturn(Stream.of(
+                new CustomerPurchase(1L, 2L), new CustomerPurchase(1L, 1L), new CustomerPurchase(1L, 2L),
+                new CustomerPurchase(2L, 1L), new CustomerPurchase(2L, 3L), new CustomerPurchase(2L, 2L),
+                new CustomerPurchase(3L, 4L)));
+        recommendations.onOrderPlaced(new OrderPlacedEvent(9L, 80L, List.of(7L, 8L), List.of(1, 1), List.of()));
+
+        // When
+        recommendations.rebuild();
+
+        // Then
+        assertEquals(List.of(2L, 3L), ids(recommendations.alsoBought(1L, 6)));
+        assertEquals(List.of(1L, 3L), ids(recommendations.alsoBought(2L, 6)));
+        // the rebuilt counts replace everything recorded before
+        assertTrue(recommendations.alsoBought(7L, 6).isEmpty());
+        assertTrue(recommendations.alsoBought(4L, 6).isEmpty());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void rebuild_WithManyCustomers_ShouldMergeCountsAndKeepTopNeighbours() {
+        // Given
+        recommendations = new RecommendationService(orderRepository, productRepository, transactionManager, 2);
+        List<CustomerPurchase> purchases = new ArrayList<>();
+        for (long customer = 1; customer <= 3000; customer++) {
+            purchases.add(new CustomerPurchase(customer, 100L));
+            // product 1 is bought by half of the customers, 2 by a third and 3 by a sixth
+            purchases.add(new CustomerPurchase(customer, Arrays.asList(1L, 2L, 1L, 3L, 1L, 2L).get((int) (customer % 6))));
+        }
+        when(orderRepository.streamPurchases(0L)).thenReturn(purchases.stream());
+
+        // When
+        recommendations.rebuild();
+
+        // Then
+        assertEquals(List.of(1L, 2L), ids(recommendations.alsoBought(100L, 6)));
+        assertEquals(List.of(100L), ids(recommendations.alsoBought(3L, 6)));
+    }
+
+    @Test
+    void rebuild_ShouldReplayOnlyCheckoutsPastTheOrdersItRead() {
+        // Given
+        when(orderRepository.findMaxId()).thenReturn(20L);
+        when(orderRepository.streamPurchases(20L)).thenAnswer(invocation -> {
+            // both checkouts commit while the orders are read; only the first one is among them
+            recommendations.onOrderPlaced(new OrderPlacedEvent(2L, 19L, List.of(1L, 2L), List.of(1, 1), List.of()));
+            recommendations.onOrderPlaced(new OrderPlacedEvent(3L, 21L, List.of(1L, 3L), List.of(1, 1), List.of()));
+            return Stream.of(new CustomerPurchase(1L, 3L), new CustomerPurchase(1L, 1L),
+                    new CustomerPurchase(2L, 2L), new CustomerPurchase(2L, 1L));
+        });
+
+        // When
+        recommendations.rebuild();
+
+        // Then
+        // 3 was bought with 1 by two customers and 2 by one: neither checkout is lost or counted twice
+        assertEquals(List.of(3L, 2L), ids(recommendations.alsoBought(1L, 6)));
+    }
+
+    private static List<Long> ids(List<ProductCard> cards) {
+        return cards.stream().map(ProductCard::getId).toList();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.models.SearchAnalyticsReport;
+import com.example.onlineShop.repositories.SearchStatsRepository;
+import com.example.onlineShop.services.SearchAnalytics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SearchAnalyticsTest {
+    private static final LocalDate TODAY = LocalDate.of(2025, 3, 1);
+
+    @Mock
+    private SearchStatsRepository statsRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SearchAnalytics analytics;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Clock.fixed(Instant.parse("2025-03-01T12:00:00Z"), ZoneOffset.UTC);
+        analytics = new SearchAnalytics(statsRepository, transactionManager, 1024, 100, clock);
+    }
+
+    @Test
+    void flush_ShouldAddNormalizedQueriesAndResultCounts() {
+        // Given
+        analytics.record("Lamp", 5);
+        analytics.record("  lamp ", 5);
+        analytics.record("LAMP", 5);
+        analytics.record("velvet sofa", 0);
+        analytics.record("velvet sofa", 0);
+        analytics.record("   ", 0);
+
+        // When
+        analytics.flush();
+
+        // Then
+        verify(statsRepository).addQueryStats(TODAY, "lamp", 3, 0, 15);
+        verify(statsRepository).addQueryStats(TODAY, "velvet sofa", 2, 2, 0);
+        verify(statsRepository).addResultCounts(TODAY, 0, 2);
+        verify(statsRepository).addResultCounts(TODAY, 2, 3);
+        verifyNoMoreInteractions(statsRepository);
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void flush_ShouldStartNewWindow() {
+        // Given
+        analytics.record("lamp", 5);
+        analytics.flush();
+
+        // When
+        analytics.flush();
+
+        // Then
+        verify(statsRepository, times(1)).addQueryStats(any(), anyString(), anyLong(), anyLong(), anyLong());
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    @Test
+    void record_WhenTrackedSetIsFull_ShouldOnlyAdmitFrequentQueries() {
+        // Given
+        analytics = new SearchAnalytics(statsRepository, transactionManager, 1024, 2,
+                Clock.fixed(Instant.parse("2025-03-01T12:00:00Z"), ZoneOffset.UTC));
+        analytics.record("lamp", 5);
+        analytics.record("sofa", 5);
+        for (int i = 0; i < 100; i++) {
+            analytics.record("rare " + i, 1);
+        }
+        for (int i = 0; i < 150; i++) {
+            analytics.record("desk", 3);
+        }
+
+        // When
+        analytics.flush();
+
+        // Then
+        ArgumentCaptor<String> queries = ArgumentCaptor.forClass(String.class);
+        verify(statsRepository, times(3)).addQueryStats(eq(TODAY), queries.capture(), anyLong(), anyLong(), anyLong());
+        assertEquals(Set.of("lamp", "sofa", "desk"), Set.copyOf(queries.getAllValues()));
+        // the occurrences seen before it was admitted are carried over from the sketch
+        verify(statsRepository).addQueryStats(TODAY, "desk", 150, 0, 450);
+        verify(statsRepository).addResultCounts(TODAY, 1, 100);
+    }
+
+    @Test
+    void report_ShouldShowResultCountDistribution() {
+        // Given
+        when(statsRepository.sumResultCounts(TODAY.minusDays(6), 7)).thenReturn(new long[]{1, 0, 3, 0, 0, 0, 0});
+        analytics.record("lamp", 5);
+
+        // When
+        SearchAnalyticsReport report = analytics.report(7);
+
+        // Then
+        List<SearchAnalyticsReport.ResultCountBucket> buckets = report.getResultCounts();
+        assertEquals(List.of("0", "1", "2–5", "6–20", "21–100", "101–1000", "more than 1000"),
+                buckets.stream().map(SearchAnalyticsReport.ResultCountBucket::getLabel).toList());
+        assertEquals(List.of(25, 0, 75, 0, 0, 0, 0), buckets.stream()
+                .map(SearchAnalyticsReport.ResultCountBucket::getPercent).toList());
+        assertEquals(1, report.getPendingSearches());
+        verify(statsRepository).findTopQueries(TODAY.minusDays(6), 20);
+    }
+}
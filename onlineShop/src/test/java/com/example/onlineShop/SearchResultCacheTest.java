@@ -0,0 +1,186 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.events.ProductChangedEvent;
+import com.example.onlineShop.services.CatalogVersion;
+import com.example.onlineShop.services.SearchResultCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchResultCacheTest {
+
+    private CatalogVersion catalogVersion;
+    private MutableClock clock;
+    private SearchResultCache cache;
+    private SimpleMeterRegistry registry;
+    private AtomicInteger searches;
+    private Function<String, long[]> search;
+
+    @BeforeEach
+    void setUp() {
+        catalogVersion = new CatalogVersion(List.of());
+        clock = new MutableClock();
+        cache = new SearchResultCache(catalogVersion, 2, Duration.ofMinutes(10), clock);
+        registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        searches = new AtomicInteger();
+        search = query -> {
+            searches.incrementAndGet();
+            return new long[]{query.length()};
+        };
+    }
+
+    @Test
+    void get_ShouldShareEntryBetweenQueriesThatNormalizeAlike() {
+        // When
+        long[] first = cache.get("Red  Lamp", search);
+        long[] second = cache.get("  red lamp ", search);
+
+        // Then
+        assertSame(first, second);
+        assertEquals(1, searches.get());
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void get_WhenCatalogChanged_ShouldSearchAgain() {
+        // Given
+        cache.get("lamp", search);
+
+        // When
+        catalogVersion.onProductChanged(new ProductChangedEvent(1L, "Lamp", "", 10, true));
+        cache.get("lamp", search);
+
+        // Then
+        assertEquals(2, searches.get());
+    }
+
+    @Test
+    void get_WhenEntryExpired_ShouldSearchAgain() {
+        // Given
+        cache.get("lamp", search);
+        clock.advance(Duration.ofMinutes(9));
+        cache.get("lamp", search);
+
+        // When
+        clock.advance(Duration.ofMinutes(2));
+        cache.get("lamp", search);
+
+        // Then
+        assertEquals(2, searches.get());
+    }
+
+    @Test
+    void get_WhenFull_ShouldEvictLeastRecentlyRead() {
+        // Given
+        cache.get("lamp", search);
+        cache.get("sofa", search);
+        cache.get("lamp", search);
+
+        // When
+        cache.get("chair", search);
+
+        // Then
+        assertEquals(2, cache.size());
+        cache.get("lamp", search);
+        assertEquals(3, searches.get());
+        cache.get("sofa", search);
+        assertEquals(4, searches.get());
+    }
+
+    @Test
+    void get_WhenSearchFails_ShouldNotCacheOrBlockNextCall() {
+        // Given
+        Function<String, long[]> failing = query -> {
+            throw new IllegalStateException("index unavailable");
+        };
+
+        // When
+        assertThrows(IllegalStateException.class, () -> cache.get("lamp", failing));
+        long[] result = cache.get("lamp", search);
+
+        // Then
+        assertArrayEquals(new long[]{4L}, result);
+        assertEquals(1, searches.get());
+    }
+
+    @Test
+    void get_ShouldCoalesceConcurrentMissesIntoOneSearch() throws Exception {
+        // Given
+        CountDownLatch searching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<String, long[]> slow = query -> {
+            searches.incrementAndGet();
+            searching.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new long[]{7L};
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // When
+        List<Future<long[]>> results = new ArrayList<>();
+        try {
+            results.add(executor.submit(() -> cache.get("lamp", slow)));
+            assertTrue(searching.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> cache.get("Lamp", slow)));
+            }
+            while (registry.get("cache.gets").tag("result", "coalesced").functionCounter().count() < 3) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            // Then
+            for (Future<long[]> result : results) {
+                assertArrayEquals(new long[]{7L}, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, searches.get());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
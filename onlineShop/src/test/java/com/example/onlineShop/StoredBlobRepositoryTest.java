@@ -0,0 +1,120 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.models.StoredBlob;
+import com.example.onlineShop.repositories.StoredBlobRepository;
+import com.example.onlineShop.repositories.StoredBlobRepositoryImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Each upload counts its reference in a transaction of its own, as the image saves do.
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import(StoredBlobRepositoryImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StoredBlobRepositoryTest {
+    private static final String KEY = "b".repeat(64);
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void addReference_WhenSameContentUploadedConcurrently_ShouldCountBoth() throws Exception {
+        // Given
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CountDownLatch firstCounted = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // When
+        try {
+            Future<?> second = executor.submit(() -> {
+                await(firstCounted);
+                // waits on the first upload's uncommitted row, then finds the key taken
+                transaction.executeWithoutResult(status -> storedBlobRepository.addReference(KEY));
+            });
+            transaction.executeWithoutResult(status -> {
+                storedBlobRepository.addReference(KEY);
+                firstCounted.countDown();
+                sleep(300);
+            });
+            second.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then
+        StoredBlob blob = transaction.execute(status -> storedBlobRepository.findForUpdate(KEY).orElseThrow());
+        assertEquals(2, blob.getRefCount());
+        transaction.executeWithoutResult(status -> storedBlobRepository.delete(
+                storedBlobRepository.findForUpdate(KEY).orElseThrow()));
+    }
+
+    @Test
+    void addReference_WhenCounted_ShouldIncrement() {
+        // Given
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> storedBlobRepository.addReference(KEY));
+
+        // When
+        transaction.executeWithoutResult(status -> storedBlobRepository.addReference(KEY));
+
+        // Then
+        Long left = transaction.execute(status -> storedBlobRepository.removeReference(KEY));
+        assertEquals(1L, left);
+        transaction.executeWithoutResult(status -> storedBlobRepository.delete(
+                storedBlobRepository.findForUpdate(KEY).orElseThrow()));
+    }
+
+    @Test
+    void addUnreferenced_ShouldCountNewKeyAtZeroAndLeaveCountedKeyAlone() {
+        // Given
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        String other = "c".repeat(64);
+        transaction.executeWithoutResult(status -> storedBlobRepository.addReference(KEY));
+
+        // When
+        transaction.executeWithoutResult(status -> {
+            storedBlobRepository.addUnreferenced(KEY);
+            storedBlobRepository.addUnreferenced(other);
+        });
+
+        // Then
+        assertEquals(1, transaction.execute(status -> storedBlobRepository.findForUpdate(KEY).orElseThrow()).getRefCount());
+        assertEquals(0, transaction.execute(status -> storedBlobRepository.findForUpdate(other).orElseThrow()).getRefCount());
+        transaction.executeWithoutResult(status -> {
+            storedBlobRepository.delete(storedBlobRepository.findForUpdate(KEY).orElseThrow());
+            storedBlobRepository.delete(storedBlobRepository.findForUpdate(other).orElseThrow());
+        });
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.events.ProductChangedEvent;
+import com.example.onlineShop.models.ProductDocument;
+import com.example.onlineShop.models.ProductSuggestion;
+import com.example.onlineShop.repositories.ProductRepository;
+import com.example.onlineShop.services.TitleAutocomplete;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TitleAutocompleteTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @InjectMocks
+    private TitleAutocomplete titleAutocomplete;
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findActiveTitles(eq(0L), anyInt())).thenReturn(List.of(
+                new ProductDocument(1L, "Samsung Galaxy S23"),
+                new ProductDocument(2L, "Samsung TV"),
+                new ProductDocument(3L, "Galaxy projector"),
+                new ProductDocument(4L, "Sandals")));
+        when(productRepository.findActiveTitles(eq(4L), anyInt())).thenReturn(List.of());
+        titleAutocomplete.rebuild();
+    }
+
+    @Test
+    void suggest_ShouldReturnNewestCompletionsFirst() {
+        // When
+        List<ProductSuggestion> result = titleAutocomplete.suggest("Sa", 10);
+
+        // Then
+        assertEquals(List.of(4L, 2L, 1L), ids(result));
+        assertEquals("Sandals", result.get(0).title());
+    }
+
+    @Test
+    void suggest_ShouldMatchLaterWordsOfTitle() {
+        // When
+        List<ProductSuggestion> result = titleAutocomplete.suggest("galaxy", 10);
+
+        // Then
+        assertEquals(List.of(3L, 1L), ids(result));
+    }
+
+    @Test
+    void suggest_ShouldRespectLimitAndUnknownPrefix() {
+        // Then
+        assertEquals(List.of(4L), ids(titleAutocomplete.suggest("s", 1)));
+        assertTrue(titleAutocomplete.suggest("xbox", 10).isEmpty());
+        assertTrue(titleAutocomplete.suggest("  ", 10).isEmpty());
+    }
+
+    @Test
+    void onProductChanged_WhenDeactivated_ShouldDropSuggestion() {
+        // When
+        titleAutocomplete.onProductChanged(new ProductChangedEvent(4L, "Sandals", "", 20, false));
+
+        // Then
+        assertEquals(List.of(2L, 1L), ids(titleAutocomplete.suggest("sa", 10)));
+        assertTrue(titleAutocomplete.suggest("sand", 10).isEmpty());
+    }
+
+    @Test
+    void onProductChanged_WhenRenamed_ShouldMoveSuggestion() {
+        // When
+        titleAutocomplete.onProductChanged(new ProductChangedEvent(2L, "Galaxy Watch", "", 200, true));
+
+        // Then
+        assertEquals(List.of(1L), ids(titleAutocomplete.suggest("samsung", 10)));
+        assertEquals(List.of(3L, 2L, 1L), ids(titleAutocomplete.suggest("gal", 10)));
+    }
+
+    @Test
+    void suggest_WhenMoreMatchesThanTopList_ShouldRefillAfterRemoval() {
+        // Given
+        for (long id = 10; id < 25; id++) {
+            titleAutocomplete.onProductChanged(new ProductChangedEvent(id, "Lamp " + id, "", 10, true));
+        }
+
+        // When
+        titleAutocomplete.onProductChanged(new ProductChangedEvent(24L, "Lamp 24", "", 10, false));
+
+        // Then
+        List<Long> result = ids(titleAutocomplete.suggest("lamp", 10));
+        assertEquals(10, result.size());
+        assertEquals(23L, result.get(0));
+        assertEquals(14L, result.get(9));
+    }
+
+    @Test
+    void onProductChanged_WhenUpdatedRepeatedly_ShouldReuseDocSlots() {
+        // When
+        for (int i = 0; i < 5000; i++) {
+            titleAutocomplete.onProductChanged(new ProductChangedEvent(2L, "Samsung TV " + i, "", 300, true));
+        }
+
+        // Then
+        assertTrue(titleAutocomplete.documentSlots() <= 2048);
+        assertEquals(List.of(4L, 2L, 1L), ids(titleAutocomplete.suggest("sa", 10)));
+        assertEquals("Samsung TV 4999", titleAutocomplete.suggest("samsung tv", 10).get(0).title());
+        assertEquals(List.of(2L), ids(titleAutocomplete.suggest("4999", 10)));
+    }
+
+    @Test
+    void suggest_WithPrefixLongerThanWord_ShouldMatchAcrossWords() {
+        // Then
+        assertEquals(List.of(1L), ids(titleAutocomplete.suggest("samsung galaxy s2", 10)));
+        assertEquals(List.of(3L), ids(titleAutocomplete.suggest("galaxy pro", 10)));
+        assertTrue(titleAutocomplete.suggest("galaxy s23 ultra", 10).isEmpty());
+    }
+
+    @Test
+    void suggest_AfterManyChanges_ShouldMatchNewestLiveTitles() {
+        // Given
+        Random random = new Random(7);
+        Map<Long, String> live = new HashMap<>();
+        for (int step = 0; step < 20_000; step++) {
+            long id = 100 + random.nextInt(3000);
+            if (random.nextInt(3) == 0) {
+                titleAutocomplete.onProductChanged(new ProductChangedEvent(id, "", "", 1, false));
+                live.remove(id);
+            } else {
+                String title = "item " + (char) ('a' + random.nextInt(5)) + random.nextInt(50);
+                titleAutocomplete.onProductChanged(new ProductChangedEvent(id, title, "", 1, true));
+                live.put(id, title);
+            }
+        }
+
+        // When / Then
+        for (String prefix : List.of("item", "item c", "c1", "e49", "item a3")) {
+            List<Long> expected = live.entrySet().stream()
+                    .filter(entry -> entry.getValue().startsWith(prefix) || entry.getValue().contains(" " + prefix))
+                    .map(Map.Entry::getKey).sorted(Comparator.reverseOrder()).limit(10).toList();
+            assertEquals(expected, ids(titleAutocomplete.suggest(prefix, 10)), prefix);
+        }
+    }
+
+    private static List<Long> ids(List<ProductSuggestion> suggestions) {
+        List<Long> ids = new ArrayList<>();
+        suggestions.forEach(suggestion -> ids.add(suggestion.id()));
+        return ids;
+    }
+}
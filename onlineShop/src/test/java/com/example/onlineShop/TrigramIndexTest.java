@@ -0,0 +1,105 @@
+package com.example.onlineShop;
+
+import com.example.onlineShop.events.ProductChangedEvent;
+import com.example.onlineShop.models.ProductDocument;
+import com.example.onlineShop.repositories.ProductRepository;
+import com.example.onlineShop.services.TrigramIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TrigramIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private TrigramIndex trigramIndex;
+
+    @BeforeEach
+    void setUp() {
+        trigramIndex = new TrigramIndex(productRepository, 0.5);
+        when(productRepository.findActiveTitles(eq(0L), anyInt())).thenReturn(List.of(
+                new ProductDocument(1L, "Samsung Galaxy phone"),
+                new ProductDocument(2L, "Leather wallet"),
+                new ProductDocument(3L, "Galaxy projector lamp")));
+        when(productRepository.findActiveTitles(eq(3L), anyInt())).thenReturn(List.of());
+        trigramIndex.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        trigramIndex.shutdown();
+    }
+
+    @Test
+    void search_WithSubstring_ShouldReturnAllContainingTitlesNewestFirst() {
+        // When
+        long[] result = trigramIndex.search("ALAXY");
+
+        // Then
+        assertArrayEquals(new long[]{3L, 1L}, result);
+    }
+
+    @Test
+    void search_WithTypo_ShouldFindSimilarTitle() {
+        // When
+        long[] result = trigramIndex.search("lether walet");
+
+        // Then
+        assertArrayEquals(new long[]{2L}, result);
+    }
+
+    @Test
+    void search_WithUnrelatedQuery_ShouldReturnNothing() {
+        // Then
+        assertEquals(0, trigramIndex.search("bicycle").length);
+        assertEquals(0, trigramIndex.search("   ").length);
+    }
+
+    @Test
+    void onProductChanged_ShouldDropDeactivatedTitle() {
+        // When
+        trigramIndex.onProductChanged(new ProductChangedEvent(1L, "Samsung Galaxy phone", "", 100, false));
+
+        // Then
+        assertArrayEquals(new long[]{3L}, trigramIndex.search("galaxy"));
+    }
+
+    @Test
+    void onProductChanged_ShouldIndexRenamedTitle() {
+        // When
+        trigramIndex.onProductChanged(new ProductChangedEvent(2L, "Canvas backpack", "", 40, true));
+
+        // Then
+        assertEquals(0, trigramIndex.search("wallet").length);
+        assertArrayEquals(new long[]{2L}, trigramIndex.search("backpak"));
+    }
+
+    @Test
+    void onProductChanged_WhenUpdatedRepeatedly_ShouldCompactInBackground() throws Exception {
+        // When
+        for (int i = 0; i < 5000; i++) {
+            trigramIndex.onProductChanged(new ProductChangedEvent(2L, "Leather wallet " + i, "", 40, true));
+        }
+
+        // Then
+        for (int i = 0; i < 100 && trigramIndex.documentSlots() > 2048; i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(trigramIndex.documentSlots() <= 2048);
+        assertArrayEquals(new long[]{2L}, trigramIndex.search("wallet 4999"));
+        assertArrayEquals(new long[]{2L}, trigramIndex.search("lether walet"));
+        assertArrayEquals(new long[]{3L, 1L}, trigramIndex.search("galaxy"));
+    }
+}